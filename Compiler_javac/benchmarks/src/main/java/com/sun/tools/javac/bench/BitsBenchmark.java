@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.tools.javac.util.Bits;
+
+/**
+ * The bit sets of the definite assignment analysis in Flow: the merges
+ * at the joins of the control flow, and the search for variables that are
+ * assigned in a loop (uninitsEntry minus uninits), in place and, as Flow
+ * did before, on a copy.  The *IntBits benchmarks run the same operations
+ * on a copy of the int[] based Bits that the long[] version replaced.
+ * vars：方法中变量的个数，32和64在一个字之内，256需要数组；
+ * 1024和4096是变量很多的方法(比如生成的代码)。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class BitsBenchmark {
+
+    @Param({"32", "64", "256", "1024", "4096"})
+    public int vars;
+
+    private Bits inits;
+    private Bits uninits;
+    private Bits uninitsEntry;
+
+    private IntBits intInits;
+    private IntBits intUninits;
+    private IntBits intUninitsEntry;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random r = new Random(42);
+        inits = new Bits();
+        uninits = new Bits();
+        uninitsEntry = new Bits();
+        intInits = new IntBits();
+        intUninits = new IntBits();
+        intUninitsEntry = new IntBits();
+        // the same elements in both representations
+        for (int i = 0; i < vars; i++) {
+            if (r.nextBoolean()) {
+                inits.incl(i);
+                intInits.incl(i);
+            }
+            if (r.nextBoolean()) {
+                uninits.incl(i);
+                intUninits.incl(i);
+            }
+            if (r.nextBoolean()) {
+                uninitsEntry.incl(i);
+                intUninitsEntry.incl(i);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object merge() {
+        Bits b = inits.dup();
+        b.andSet(uninits);
+        return b.orSet(uninitsEntry);
+    }
+
+    @Benchmark
+    public int diffNextBit() {
+        int n = 0;
+        for (int i = uninitsEntry.diffNextBit(uninits, 0); i >= 0; i = uninitsEntry.diffNextBit(uninits, i + 1))
+            n++;
+        return n;
+    }
+
+    @Benchmark
+    public int dupDiffNextBit() {
+        int n = 0;
+        for (int i = uninitsEntry.dup().diffSet(uninits).nextBit(0); i >= 0;
+                i = uninitsEntry.dup().diffSet(uninits).nextBit(i + 1))
+            n++;
+        return n;
+    }
+
+    @Benchmark
+    public int nextBit() {
+        int n = 0;
+        for (int i = inits.nextBit(0); i >= 0; i = inits.nextBit(i + 1))
+            n++;
+        return n;
+    }
+
+    @Benchmark
+    public Object mergeIntBits() {
+        IntBits b = intInits.dup();
+        b.andSet(intUninits);
+        return b.orSet(intUninitsEntry);
+    }
+
+    @Benchmark
+    public int dupDiffNextBitIntBits() {
+        int n = 0;
+        for (int i = intUninitsEntry.dup().diffSet(intUninits).nextBit(0); i >= 0;
+                i = intUninitsEntry.dup().diffSet(intUninits).nextBit(i + 1))
+            n++;
+        return n;
+    }
+
+    @Benchmark
+    public int nextBitIntBits() {
+        int n = 0;
+        for (int i = intInits.nextBit(0); i >= 0; i = intInits.nextBit(i + 1))
+            n++;
+        return n;
+    }
+
+    /** The operations used here of the int[] based Bits, as it was. */
+    static class IntBits {
+        private int[] bits = new int[1];
+
+        private void sizeTo(int len) {
+            if (bits.length < len) {
+                int[] newbits = new int[len];
+                System.arraycopy(bits, 0, newbits, 0, bits.length);
+                bits = newbits;
+            }
+        }
+
+        IntBits dup() {
+            IntBits b = new IntBits();
+            b.bits = new int[bits.length];
+            System.arraycopy(bits, 0, b.bits, 0, bits.length);
+            return b;
+        }
+
+        void incl(int x) {
+            sizeTo((x >>> 5) + 1);
+            bits[x >>> 5] = bits[x >>> 5] | (1 << (x & 31));
+        }
+
+        IntBits andSet(IntBits xs) {
+            sizeTo(xs.bits.length);
+            for (int i = 0; i < xs.bits.length; i++)
+                bits[i] = bits[i] & xs.bits[i];
+            return this;
+        }
+
+        IntBits orSet(IntBits xs) {
+            sizeTo(xs.bits.length);
+            for (int i = 0; i < xs.bits.length; i++)
+                bits[i] = bits[i] | xs.bits[i];
+            return this;
+        }
+
+        IntBits diffSet(IntBits xs) {
+            for (int i = 0; i < bits.length; i++) {
+                if (i < xs.bits.length)
+                    bits[i] = bits[i] & ~xs.bits[i];
+            }
+            return this;
+        }
+
+        private static int trailingZeroBits(int x) {
+            if (x == 0) return 32;
+            int n = 1;
+            if ((x & 0xffff) == 0) { n += 16; x >>>= 16; }
+            if ((x & 0x00ff) == 0) { n +=  8; x >>>=  8; }
+            if ((x & 0x000f) == 0) { n +=  4; x >>>=  4; }
+            if ((x & 0x0003) == 0) { n +=  2; x >>>=  2; }
+            return n - (x&1);
+        }
+
+        int nextBit(int x) {
+            int windex = x >>> 5;
+            if (windex >= bits.length) return -1;
+            int word = bits[windex] & ~((1 << (x & 31))-1);
+            while (true) {
+                if (word != 0)
+                    return (windex << 5) + trailingZeroBits(word);
+                windex++;
+                if (windex >= bits.length) return -1;
+                word = bits[windex];
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.bench.Compilation.Stage;
+
+/**
+ * The reading of class files by ClassReader: the classes of a compiled
+ * corpus, or of a few packages of the platform, are completed with their
+ * members in a new compilation for every invocation.
+ * generic、small：先编译语料库，把类文件写到临时目录中，再从类路径读取；
+ * platform：读取java.lang、java.util、java.util.concurrent和java.io的顶层类。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ClassReaderBenchmark {
+
+    private static final String[] PLATFORM_PACKAGES = {
+        "java.lang", "java.util", "java.util.concurrent", "java.io"
+    };
+
+    @State(Scope.Benchmark)
+    public static class ClassPath {
+        @Param({"generic", "small", "platform"})
+        public String classes;
+
+        File dir;
+        List<String> names;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            names = new ArrayList<String>();
+            if (classes.equals("platform")) {
+                listPlatform();
+            } else {
+                dir = File.createTempFile("classreader", "");
+                if (!dir.delete() || !dir.mkdir())
+                    throw new IOException("cannot create " + dir);
+                Compilation c = new Compilation(Corpus.forName(classes).files());
+                c.advanceTo(Stage.GENERATED);
+                for (Map.Entry<String, byte[]> e : c.fileManager.classes().entrySet()) {
+                    write(new File(dir, e.getKey().replace('.', File.separatorChar) + ".class"),
+                          e.getValue());
+                    if (e.getKey().indexOf('$') < 0)
+                        names.add(e.getKey());
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (dir != null)
+                delete(dir);
+        }
+
+        private void listPlatform() throws IOException {
+            StandardJavaFileManager fm = JavacTool.create().getStandardFileManager(null, null, null);
+            try {
+                for (String p : PLATFORM_PACKAGES) {
+                    for (JavaFileObject fo : fm.list(StandardLocation.PLATFORM_CLASS_PATH, p,
+                            EnumSet.of(JavaFileObject.Kind.CLASS), false)) {
+                        String name = fm.inferBinaryName(StandardLocation.PLATFORM_CLASS_PATH, fo);
+                        if (name.indexOf('$') < 0)
+                            names.add(name);
+                    }
+                }
+            } finally {
+                fm.close();
+            }
+            Collections.sort(names);
+        }
+
+        private static void write(File f, byte[] bytes) throws IOException {
+            File parent = f.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs())
+                throw new IOException("cannot create " + parent);
+            OutputStream out = new FileOutputStream(f);
+            try {
+                out.write(bytes);
+            } finally {
+                out.close();
+            }
+        }
+
+        private static void delete(File f) {
+            File[] files = f.listFiles();
+            if (files != null) {
+                for (File g : files)
+                    delete(g);
+            }
+            f.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        Compilation compilation;
+
+        @Setup(Level.Invocation)
+        public void setup(ClassPath cp) throws IOException {
+            List<JavaFileObject> none = Collections.emptyList();
+            compilation = (cp.dir == null)
+                    ? new Compilation(none)
+                    : new Compilation(none, "-classpath", cp.dir.getPath());
+            compilation.advanceTo(Stage.ENTERED);
+        }
+    }
+
+    @Benchmark
+    public int read(ClassPath cp, Reader r) {
+        return r.compilation.readClasses(cp.names);
+    }
+}
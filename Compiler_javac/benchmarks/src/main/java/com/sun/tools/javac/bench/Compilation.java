@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.bench;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.JavaFileObject;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.comp.AttrContext;
+import com.sun.tools.javac.comp.Env;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.parser.Scanner;
+import com.sun.tools.javac.parser.ScannerFactory;
+import com.sun.tools.javac.parser.Token;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.util.Pair;
+
+/**
+ * One compilation, taken through the phases one at a time: the task's
+ * parse() and enter(), then the attribution, flow analysis, desugaring
+ * and code generation of JavaCompiler, which JavacTaskImpl's analyze()
+ * and generate() would run two at a time.
+ * 一次编译，可以逐个阶段地执行，基准测试在@Setup中把编译推进到要测量的阶段之前。
+ */
+class Compilation {
+
+    enum Stage { NEW, PARSED, ENTERED, ATTRIBUTED, FLOWED, DESUGARED, GENERATED }
+
+    static {
+        // The Scanner of this tree traces every token on System.out
+        // (Scanner.scannerDebug), which would swamp the measurements.
+        try {
+            Field f = Scanner.class.getDeclaredField("scannerDebug");
+            f.setAccessible(true);
+            f.setBoolean(null, false);
+        } catch (NoSuchFieldException e) {
+            // not traced
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static final JavacTool tool = JavacTool.create();
+
+    final MemoryFileManager fileManager;
+    final JavacTaskImpl task;
+    private final List<JavaFileObject> files;
+    /** The diagnostics, which would otherwise be printed for each compilation. */
+    private final StringWriter log = new StringWriter();
+
+    private Stage stage = Stage.NEW;
+    private JavaCompiler compiler;
+    private Queue<Env<AttrContext>> attributed;
+    private Queue<Env<AttrContext>> flowed;
+    private Queue<Pair<Env<AttrContext>, JCClassDecl>> desugared;
+
+    Compilation(List<JavaFileObject> files, String... options) {
+        this.files = files;
+        fileManager = new MemoryFileManager(tool.getStandardFileManager(null, null, null));
+        List<String> opts = new ArrayList<String>();
+        opts.add("-proc:none");
+        opts.addAll(Arrays.asList(options));
+        task = (JavacTaskImpl) tool.getTask(log, fileManager, null, opts, null, files);
+    }
+
+    /** Run the phases up to the given one. */
+    void advanceTo(Stage target) throws IOException {
+        while (stage.compareTo(target) < 0) {
+            switch (stage) {
+            case NEW:        parse(); break;
+            case PARSED:     enter(); break;
+            case ENTERED:    attribute(); break;
+            case ATTRIBUTED: flow(); break;
+            case FLOWED:     desugar(); break;
+            case DESUGARED:  generate(); break;
+            default:         throw new AssertionError(stage);
+            }
+        }
+    }
+
+    /** Scan the source files, without parsing them; returns the number of tokens. */
+    int scan() throws IOException {
+        ScannerFactory factory = ScannerFactory.instance(task.getContext());
+        int count = 0;
+        for (JavaFileObject file : files) {
+            Scanner scanner = factory.newScanner(file.getCharContent(false), false);
+            do {
+                scanner.nextToken();
+                count++;
+            } while (scanner.token() != Token.EOF);
+        }
+        return count;
+    }
+
+    Iterable<? extends CompilationUnitTree> parse() throws IOException {
+        Iterable<? extends CompilationUnitTree> trees = task.parse();
+        done(Stage.PARSED);
+        return trees;
+    }
+
+    Iterable<? extends TypeElement> enter() throws IOException {
+        Iterable<? extends TypeElement> classes = task.enter();
+        done(Stage.ENTERED);
+        return classes;
+    }
+
+    Queue<Env<AttrContext>> attribute() {
+        attributed = compiler.attribute(compiler.todo);
+        done(Stage.ATTRIBUTED);
+        return attributed;
+    }
+
+    Queue<Env<AttrContext>> flow() {
+        flowed = compiler.flow(attributed);
+        done(Stage.FLOWED);
+        return flowed;
+    }
+
+    Queue<Pair<Env<AttrContext>, JCClassDecl>> desugar() {
+        desugared = compiler.desugar(flowed);
+        done(Stage.DESUGARED);
+        return desugared;
+    }
+
+    /** Generate and write the class files; returns their number. */
+    int generate() {
+        compiler.generate(desugared);
+        done(Stage.GENERATED);
+        return fileManager.classes().size();
+    }
+
+    /**
+     * Read the given classes from the class path, with their members and
+     * the types of the methods; returns the number of members.
+     */
+    int readClasses(Iterable<String> classNames) {
+        Elements elements = task.getElements();
+        int count = 0;
+        for (String name : classNames) {
+            TypeElement c = elements.getTypeElement(name);
+            if (c == null)
+                continue;
+            for (Element e : c.getEnclosedElements()) {
+                if (e instanceof ExecutableElement)
+                    count += ((ExecutableElement) e).getParameters().size();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void done(Stage s) {
+        // the task has created the compiler by now
+        if (compiler == null)
+            compiler = JavaCompiler.instance(task.getContext());
+        if (compiler.errorCount() > 0)
+            throw new IllegalStateException("errors in " + s + ":\n" + log);
+        stage = s;
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.bench;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * The synthetic sources compiled by the benchmarks.  They are generated,
+ * always the same way, so that the results of different builds can be
+ * compared.
+ * LARGE：一个有几百个方法的大文件(循环、switch、try、字符串连接、匿名类)；
+ * GENERIC：大量使用泛型方法、通配符和类型推断的类；
+ * SMALL：几百个很小的类，分布在多个包中，互相继承。
+ */
+enum Corpus {
+    LARGE {
+        void generate(List<JavaFileObject> files) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("package bench.large;\n")
+              .append("import java.util.*;\n")
+              .append("public class Large {\n")
+              .append("    private int counter;\n")
+              .append("    private final List<String> names = new ArrayList<String>();\n")
+              .append("    private final Map<String, Integer> index = new HashMap<String, Integer>();\n");
+            for (int i = 0; i < LARGE_METHODS; i++) {
+                sb.append("    public int m").append(i).append("(int a, String s) {\n")
+                  .append("        int x = a * ").append(i).append(" + s.length();\n")
+                  .append("        for (int i = 0; i < a; i++) {\n")
+                  .append("            x += i ^ ").append(i).append(";\n")
+                  .append("            if ((x & 1) == 0) x >>= 1; else x = x * 3 + 1;\n")
+                  .append("        }\n")
+                  .append("        switch (a % 4) {\n")
+                  .append("        case 0: x++; break;\n")
+                  .append("        case 1: x--; break;\n")
+                  .append("        case 2: x += index.size(); break;\n")
+                  .append("        default: x += a;\n")
+                  .append("        }\n")
+                  .append("        try {\n")
+                  .append("            names.add(s + x + ':' + a + \"/").append(i).append("\");\n")
+                  .append("            index.put(s, x);\n")
+                  .append("        } catch (RuntimeException e) {\n")
+                  .append("            x = -1;\n")
+                  .append("        } finally {\n")
+                  .append("            counter++;\n")
+                  .append("        }\n");
+                if (i % 10 == 0) {
+                    sb.append("        final int y = x;\n")
+                      .append("        Runnable r = new Runnable() {\n")
+                      .append("            public void run() { counter += y; }\n")
+                      .append("        };\n")
+                      .append("        r.run();\n");
+                }
+                if (i > 0)
+                    sb.append("        if (a > 1000) x += m").append(i - 1).append("(a - 1, s);\n");
+                sb.append("        return x;\n")
+                  .append("    }\n");
+            }
+            sb.append("}\n");
+            files.add(new Source("bench/large/Large.java", sb));
+        }
+    },
+
+    GENERIC {
+        void generate(List<JavaFileObject> files) {
+            files.add(new Source("bench/generic/Fn.java",
+                "package bench.generic;\n"
+                + "public interface Fn<A, B> {\n"
+                + "    B apply(A a);\n"
+                + "}\n"));
+            files.add(new Source("bench/generic/Util.java",
+                "package bench.generic;\n"
+                + "import java.util.*;\n"
+                + "public class Util {\n"
+                + "    public static <T> List<T> list(T a, T b) {\n"
+                + "        List<T> l = new ArrayList<T>();\n"
+                + "        l.add(a);\n"
+                + "        l.add(b);\n"
+                + "        return l;\n"
+                + "    }\n"
+                + "    public static <A, B> List<B> map(Collection<? extends A> as, Fn<? super A, ? extends B> f) {\n"
+                + "        List<B> result = new ArrayList<B>(as.size());\n"
+                + "        for (A a : as)\n"
+                + "            result.add(f.apply(a));\n"
+                + "        return result;\n"
+                + "    }\n"
+                + "    public static <T extends Comparable<? super T>> T max(Collection<? extends T> ts) {\n"
+                + "        Iterator<? extends T> it = ts.iterator();\n"
+                + "        T best = it.next();\n"
+                + "        while (it.hasNext()) {\n"
+                + "            T t = it.next();\n"
+                + "            if (t.compareTo(best) > 0)\n"
+                + "                best = t;\n"
+                + "        }\n"
+                + "        return best;\n"
+                + "    }\n"
+                + "    public static <K, V> Map<K, V> zip(List<? extends K> ks, List<? extends V> vs) {\n"
+                + "        Map<K, V> m = new LinkedHashMap<K, V>();\n"
+                + "        for (int i = 0; i < ks.size(); i++)\n"
+                + "            m.put(ks.get(i), vs.get(i));\n"
+                + "        return m;\n"
+                + "    }\n"
+                + "}\n"));
+            for (int i = 0; i < GENERIC_CLASSES; i++) {
+                String name = "G" + i;
+                String sup = (i == 0) ? "Object" : "G" + (i - 1) + "<K, V>";
+                StringBuilder sb = new StringBuilder();
+                sb.append("package bench.generic;\n")
+                  .append("import java.util.*;\n")
+                  .append("public class ").append(name)
+                  .append("<K extends Comparable<? super K>, V> extends ").append(sup);
+                if (i == 0)
+                    sb.append(" implements Comparable<G0<K, V>>");
+                sb.append(" {\n")
+                  .append("    private final Map<K, List<V>> map").append(i)
+                  .append(" = new HashMap<K, List<V>>();\n")
+                  .append("    public <T extends V> void put").append(i).append("(K k, T v) {\n")
+                  .append("        List<V> l = map").append(i).append(".get(k);\n")
+                  .append("        if (l == null) {\n")
+                  .append("            l = new ArrayList<V>();\n")
+                  .append("            map").append(i).append(".put(k, l);\n")
+                  .append("        }\n")
+                  .append("        l.add(v);\n")
+                  .append("    }\n")
+                  .append("    public K maxKey").append(i).append("() {\n")
+                  .append("        return Util.max(map").append(i).append(".keySet());\n")
+                  .append("    }\n")
+                  .append("    public List<Map.Entry<K, List<V>>> entries").append(i).append("() {\n")
+                  .append("        return new ArrayList<Map.Entry<K, List<V>>>(map").append(i).append(".entrySet());\n")
+                  .append("    }\n")
+                  .append("    public Map<K, Integer> sizes").append(i).append("() {\n")
+                  .append("        List<K> keys = new ArrayList<K>(map").append(i).append(".keySet());\n")
+                  .append("        return Util.zip(keys, Util.map(keys, new Fn<K, Integer>() {\n")
+                  .append("            public Integer apply(K k) { return map").append(i).append(".get(k).size(); }\n")
+                  .append("        }));\n")
+                  .append("    }\n")
+                  .append("    public static <A extends Comparable<? super A>, B> ").append(name)
+                  .append("<A, List<B>> group").append(i)
+                  .append("(Collection<? extends B> bs, Fn<? super B, ? extends A> key) {\n")
+                  .append("        ").append(name).append("<A, List<B>> g = new ").append(name)
+                  .append("<A, List<B>>();\n")
+                  .append("        for (B b : bs)\n")
+                  .append("            g.put").append(i).append("(key.apply(b), Util.list(b, b));\n")
+                  .append("        return g;\n")
+                  .append("    }\n")
+                  .append("    public List<String> names").append(i).append("(List<? extends K> ks) {\n")
+                  .append("        return Util.map(Util.list(Util.max(ks), ks.get(0)), new Fn<Object, String>() {\n")
+                  .append("            public String apply(Object o) { return String.valueOf(o); }\n")
+                  .append("        });\n")
+                  .append("    }\n")
+                  .append("    public int compareTo(G0<K, V> o) {\n");
+                if (i == 0) {
+                    sb.append("        return map0.size() - o.map0.size();\n");
+                } else {
+                    sb.append("        if (o instanceof ").append(name).append(")\n")
+                      .append("            return map").append(i).append(".size() - ((").append(name)
+                      .append("<?, ?>) o).map").append(i).append(".size();\n")
+                      .append("        return super.compareTo(o);\n");
+                }
+                sb.append("    }\n")
+                  .append("}\n");
+                files.add(new Source("bench/generic/" + name + ".java", sb));
+            }
+        }
+    },
+
+    SMALL {
+        void generate(List<JavaFileObject> files) {
+            for (int i = 0; i < SMALL_CLASSES; i++) {
+                String pkg = "bench.small.p" + (i / SMALL_PER_PACKAGE);
+                String name = "Small" + i;
+                StringBuilder sb = new StringBuilder();
+                sb.append("package ").append(pkg).append(";\n")
+                  .append("public class ").append(name);
+                if (i > 0) {
+                    int j = (i - 1) / 2;
+                    sb.append(" extends bench.small.p").append(j / SMALL_PER_PACKAGE)
+                      .append(".Small").append(j);
+                }
+                sb.append(" implements Runnable {\n")
+                  .append("    private int value = ").append(i).append(";\n")
+                  .append("    public void run() {\n")
+                  .append("        value += helper(value);\n")
+                  .append("    }\n")
+                  .append("    protected int helper(int x) {\n")
+                  .append("        return x * 31 + ").append(i).append(";\n")
+                  .append("    }\n")
+                  .append("    public static ").append(name).append(" create() {\n")
+                  .append("        return new ").append(name).append("();\n")
+                  .append("    }\n")
+                  .append("    public String toString() {\n")
+                  .append("        return \"").append(name).append("[\" + value + \"]\";\n")
+                  .append("    }\n")
+                  .append("}\n");
+                files.add(new Source(pkg.replace('.', '/') + "/" + name + ".java", sb));
+            }
+        }
+    };
+
+    private static final int LARGE_METHODS = 400;
+    private static final int GENERIC_CLASSES = 40;
+    private static final int SMALL_CLASSES = 500;
+    private static final int SMALL_PER_PACKAGE = 50;
+
+    private List<JavaFileObject> files;
+
+    abstract void generate(List<JavaFileObject> files);
+
+    /** The source files of this corpus. */
+    synchronized List<JavaFileObject> files() {
+        if (files == null) {
+            List<JavaFileObject> l = new ArrayList<JavaFileObject>();
+            generate(l);
+            files = Collections.unmodifiableList(l);
+        }
+        return files;
+    }
+
+    /** The corpus of a benchmark parameter: "large", "generic" or "small". */
+    static Corpus forName(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+    /** A generated source file. */
+    static class Source extends SimpleJavaFileObject {
+        private final String content;
+
+        Source(String path, CharSequence content) {
+            super(URI.create("bench:///" + path), JavaFileObject.Kind.SOURCE);
+            this.content = content.toString();
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * A file manager that keeps the class files written in memory, so that
+ * the benchmarks of the code generator do not measure the file system.
+ */
+class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+    /** The class files written, by binary name. */
+    private final Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+
+    MemoryFileManager(StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    Map<String, byte[]> classes() {
+        return classes;
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, final String className,
+            JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+        if (location != StandardLocation.CLASS_OUTPUT || kind != JavaFileObject.Kind.CLASS)
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        URI uri = URI.create("mem:///" + className.replace('.', '/') + kind.extension);
+        return new SimpleJavaFileObject(uri, kind) {
+            @Override
+            public OutputStream openOutputStream() {
+                return new ByteArrayOutputStream() {
+                    @Override
+                    public void close() {
+                        classes.put(className, toByteArray());
+                    }
+                };
+            }
+            @Override
+            public boolean delete() {
+                return classes.remove(className) != null;
+            }
+        };
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.tools.javac.bench.Compilation.Stage;
+
+/**
+ * Each phase of javac on its own: a fresh compilation is taken up to the
+ * phase before the measured one for every invocation, so a regression in
+ * one phase is not hidden by the time of the others.
+ * scan：Scanner；parse：Scanner和JavacParser；enter：Enter和MemberEnter；
+ * attribute：Attr；flow：Flow；desugar：TransTypes和Lower；generate：Gen和ClassWriter；
+ * compile：全部阶段。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PhaseBenchmark {
+
+    @State(Scope.Thread)
+    public static abstract class AtStage {
+        @Param({"large", "generic", "small"})
+        public String corpus;
+
+        Compilation compilation;
+
+        void prepare(Stage stage) throws IOException {
+            compilation = new Compilation(Corpus.forName(corpus).files());
+            compilation.advanceTo(stage);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class New extends AtStage {
+        @Setup(Level.Invocation)
+        public void setup() throws IOException {
+            prepare(Stage.NEW);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Parsed extends AtStage {
+        @Setup(Level.Invocation)
+        public void setup() throws IOException {
+            prepare(Stage.PARSED);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Entered extends AtStage {
+        @Setup(Level.Invocation)
+        public void setup() throws IOException {
+            prepare(Stage.ENTERED);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Attributed extends AtStage {
+        @Setup(Level.Invocation)
+        public void setup() throws IOException {
+            prepare(Stage.ATTRIBUTED);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Flowed extends AtStage {
+        @Setup(Level.Invocation)
+        public void setup() throws IOException {
+            prepare(Stage.FLOWED);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Desugared extends AtStage {
+        @Setup(Level.Invocation)
+        public void setup() throws IOException {
+            prepare(Stage.DESUGARED);
+        }
+    }
+
+    @Benchmark
+    public int scan(New s) throws IOException {
+        return s.compilation.scan();
+    }
+
+    @Benchmark
+    public Object parse(New s) throws IOException {
+        return s.compilation.parse();
+    }
+
+    @Benchmark
+    public Object enter(Parsed s) throws IOException {
+        return s.compilation.enter();
+    }
+
+    @Benchmark
+    public Object attribute(Entered s) {
+        return s.compilation.attribute();
+    }
+
+    @Benchmark
+    public Object flow(Attributed s) {
+        return s.compilation.flow();
+    }
+
+    @Benchmark
+    public Object desugar(Flowed s) {
+        return s.compilation.desugar();
+    }
+
+    @Benchmark
+    public int generate(Desugared s) {
+        return s.compilation.generate();
+    }
+
+    @Benchmark
+    public int compile(New s) throws IOException {
+        s.compilation.advanceTo(Stage.GENERATED);
+        return s.compilation.fileManager.classes().size();
+    }
+}
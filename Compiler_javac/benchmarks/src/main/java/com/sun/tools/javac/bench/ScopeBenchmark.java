@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+
+/**
+ * The symbol table of javac (code.Scope): filling a member scope, with and
+ * without a table presized for its members, looking up the members, and
+ * the dup()/leave() of the block scopes of Attr.
+ * size：符号的个数，16和256是普通的类，20000是生成的代码中很大的类。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class ScopeBenchmark {
+
+    @Param({"16", "256", "20000"})
+    public int size;
+
+    private Symbol owner;
+    private Symbol[] symbols;
+    private Name[] names;
+    private com.sun.tools.javac.code.Scope filled;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Names table = Names.instance(new Context());
+        owner = new ClassSymbol(0, table.fromString("C"), null);
+        symbols = new Symbol[size];
+        names = new Name[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = table.fromString("m" + i);
+            symbols[i] = new VarSymbol(0, names[i], null, owner);
+        }
+        filled = fill(new com.sun.tools.javac.code.Scope(owner));
+    }
+
+    private com.sun.tools.javac.code.Scope fill(com.sun.tools.javac.code.Scope s) {
+        for (Symbol sym : symbols)
+            s.enter(sym);
+        return s;
+    }
+
+    @Benchmark
+    public Object enter() {
+        return fill(new com.sun.tools.javac.code.Scope(owner));
+    }
+
+    @Benchmark
+    public Object enterPresized() {
+        return fill(new com.sun.tools.javac.code.Scope(owner, size));
+    }
+
+    @Benchmark
+    public int lookup() {
+        int found = 0;
+        for (Name name : names) {
+            if (filled.lookup(name).scope != null)
+                found++;
+        }
+        return found;
+    }
+
+    /** A block scope on top of the filled one, as Attr opens for each block. */
+    @Benchmark
+    public Object dupLeave() {
+        com.sun.tools.javac.code.Scope block = filled.dup();
+        for (int i = 0; i < 8 && i < symbols.length; i++)
+            block.enter(symbols[i]);
+        return block.leave();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.bench;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaFileObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.tools.javac.bench.Compilation.Stage;
+
+/**
+ * The dispatch of the switches generated by Gen: a protocol decoder whose
+ * opcodes fall into a few dense ranges far apart is compiled, with one
+ * lookupswitch or, with -XDclusterSwitches, with a tableswitch per range,
+ * and decodes a stream of opcodes.  The time is that of the whole stream.
+ * lowering：default为一个lookupswitch，clustered为-XDclusterSwitches，
+ * 由二分比较分派到每个范围的tableswitch。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class SwitchBenchmark {
+
+    private static final int CLUSTERS = 8;
+    private static final int OPCODES_PER_CLUSTER = 48;
+    private static final int STREAM_LENGTH = 1024;
+
+    @Param({"default", "clustered"})
+    public String lowering;
+
+    private Method decodeAll;
+    private int[] stream;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, ReflectiveOperationException {
+        List<Integer> opcodes = new ArrayList<Integer>();
+        Compilation c = lowering.equals("clustered")
+                ? new Compilation(decoder(opcodes), "-XDclusterSwitches")
+                : new Compilation(decoder(opcodes));
+        c.advanceTo(Stage.GENERATED);
+        Class<?> decoder = new Loader(c.fileManager.classes()).loadClass("bench.decoder.Decoder");
+        decodeAll = decoder.getMethod("decodeAll", int[].class);
+
+        Random r = new Random(42);
+        stream = new int[STREAM_LENGTH];
+        for (int i = 0; i < stream.length; i++) {
+            // one opcode in sixteen is unknown
+            stream[i] = (i % 16 == 15)
+                    ? r.nextInt()
+                    : opcodes.get(r.nextInt(opcodes.size()));
+        }
+    }
+
+    @Benchmark
+    public Object decode() throws IllegalAccessException, InvocationTargetException {
+        return decodeAll.invoke(null, (Object) stream);
+    }
+
+    /**
+     * The source of the decoder; the opcodes of its cases are added to the
+     * given list.
+     */
+    private static List<JavaFileObject> decoder(List<Integer> opcodes) {
+        Random r = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        sb.append("package bench.decoder;\n")
+          .append("public class Decoder {\n")
+          .append("    public static int decode(int op, int arg) {\n")
+          .append("        switch (op) {\n");
+        for (int c = 0; c < CLUSTERS; c++) {
+            int base = c << 16 | r.nextInt(0x1000);
+            for (int i = 0; i < OPCODES_PER_CLUSTER; i++) {
+                // a few opcodes of each range are unassigned
+                if (r.nextInt(8) == 0)
+                    continue;
+                int op = base + i;
+                opcodes.add(op);
+                sb.append("        case ").append(op).append(": return arg * ")
+                  .append(r.nextInt(100) + 1).append(" + ").append(i).append(";\n");
+            }
+        }
+        sb.append("        default: return -arg;\n")
+          .append("        }\n")
+          .append("    }\n")
+          .append("    public static int decodeAll(int[] ops) {\n")
+          .append("        int sum = 0;\n")
+          .append("        for (int i = 0; i < ops.length; i++)\n")
+          .append("            sum += decode(ops[i], i);\n")
+          .append("        return sum;\n")
+          .append("    }\n")
+          .append("}\n");
+        return Collections.<JavaFileObject>singletonList(
+                new Corpus.Source("bench/decoder/Decoder.java", sb));
+    }
+
+    /** A class loader for the class files of a compilation. */
+    private static class Loader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        Loader(Map<String, byte[]> classes) {
+            super(SwitchBenchmark.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null)
+                throw new ClassNotFoundException(name);
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
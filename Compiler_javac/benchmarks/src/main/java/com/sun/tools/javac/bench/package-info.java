@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+/**
+ * JMH benchmarks of the phases of javac, run on synthetic sources
+ * (see Corpus): PhaseBenchmark measures each phase on its own, from the
+ * scanner to Gen and ClassWriter, ClassReaderBenchmark the reading of
+ * class files, and ScopeBenchmark and BitsBenchmark two data structures
+ * on the hot paths of Enter, Attr and Flow.
+ * 基准测试：先在Compiler_javac目录中执行mvn install，然后在这个目录中执行
+ * mvn package，再用java -jar target/benchmarks.jar [benchmark的正则表达式]
+ * 运行，例如 java -jar target/benchmarks.jar PhaseBenchmark.attribute -p corpus=generic
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+package com.sun.tools.javac.bench;
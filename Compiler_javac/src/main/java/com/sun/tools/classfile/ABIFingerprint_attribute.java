@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.tools.classfile;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A digest of the binary interface of a class, as seen by the classes that
+ * use it: its flags, supertypes and signature, and the names, flags,
+ * descriptors, signatures, thrown types, constant values and annotations
+ * of its non-private members.  It is written by javac with
+ * -XDabiFingerprint, and is the same for two versions of a class that
+ * differ only in the code of their methods, or in private members.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class ABIFingerprint_attribute extends Attribute {
+    ABIFingerprint_attribute(ClassReader cr, int name_index, int length) throws IOException {
+        super(name_index, length);
+        fingerprint = new byte[attribute_length];
+        cr.readFully(fingerprint);
+    }
+
+    public ABIFingerprint_attribute(ConstantPool constant_pool, byte[] fingerprint)
+            throws ConstantPoolException {
+        this(constant_pool.getUTF8Index(Attribute.ABIFingerprint), fingerprint);
+    }
+
+    public ABIFingerprint_attribute(int name_index, byte[] fingerprint) {
+        super(name_index, fingerprint.length);
+        this.fingerprint = fingerprint;
+    }
+
+    /** Return the fingerprint as a string of hexadecimal digits. */
+    public String getValue() {
+        StringBuilder sb = new StringBuilder(fingerprint.length * 2);
+        for (byte b : fingerprint) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /** Return the fingerprint of a class, or null if it has none. */
+    public static ABIFingerprint_attribute get(ClassFile cf) {
+        return (ABIFingerprint_attribute) cf.attributes.get(Attribute.ABIFingerprint);
+    }
+
+    /**
+     * Return true if two class files are known to have the same binary
+     * interface, which is only the case if both have a fingerprint.
+     * Classes that depend on one of them need not be compiled again if it
+     * is replaced by the other.
+     */
+    public static boolean isSameABI(ClassFile cf1, ClassFile cf2) {
+        ABIFingerprint_attribute a1 = get(cf1);
+        ABIFingerprint_attribute a2 = get(cf2);
+        return a1 != null && a2 != null && Arrays.equals(a1.fingerprint, a2.fingerprint);
+    }
+
+    public <R, D> R accept(Visitor<R, D> visitor, D data) {
+        return visitor.visitABIFingerprint(this, data);
+    }
+
+    public final byte[] fingerprint;
+}
@@ -38,6 +38,7 @@ import java.util.Map;
  */
 
 public abstract class Attribute {
+    public static final String ABIFingerprint           = "ABIFingerprint";
     public static final String AnnotationDefault        = "AnnotationDefault";
     public static final String BootstrapMethods         = "BootstrapMethods";
     public static final String CharacterRangeTable      = "CharacterRangeTable";
@@ -113,6 +114,7 @@ public abstract class Attribute {
             standardAttributes.put(LocalVariableTypeTable, LocalVariableTypeTable_attribute.class);
 
             if (!compat) { // old javap does not recognize recent attributes
+                standardAttributes.put(ABIFingerprint, ABIFingerprint_attribute.class);
                 standardAttributes.put(CompilationID, CompilationID_attribute.class);
                 standardAttributes.put(RuntimeInvisibleAnnotations, RuntimeInvisibleAnnotations_attribute.class);
                 standardAttributes.put(RuntimeInvisibleParameterAnnotations, RuntimeInvisibleParameterAnnotations_attribute.class);
@@ -157,6 +159,7 @@ public abstract class Attribute {
 
 
     public interface Visitor<R,P> {
+        R visitABIFingerprint(ABIFingerprint_attribute attr, P p);
         R visitBootstrapMethods(BootstrapMethods_attribute attr, P p);
         R visitDefault(DefaultAttribute attr, P p);
         R visitAnnotationDefault(AnnotationDefault_attribute attr, P p);
@@ -396,6 +396,11 @@ public class ClassWriter {
             out.writeShort(exception_data.catch_type);
         }
 
+        public Void visitABIFingerprint(ABIFingerprint_attribute attr, ClassOutputStream out) {
+            out.write(attr.fingerprint, 0, attr.fingerprint.length);
+            return null;
+        }
+
         public Void visitCompilationID(CompilationID_attribute attr, ClassOutputStream out) {
             out.writeShort(attr.compilationID_index);
             return null;
@@ -142,6 +142,15 @@ public class Dependencies {
         return new APIDependencyFinder(access);
     }
 
+    /**
+     * Get a finder used to locate all the classes referenced by a class,
+     * directly or indirectly, in its constant pool.
+     * @return a finder for all the classes used by a class
+     */
+    public static Finder getClassDependencyFinder() {
+        return new ClassDependencyFinder();
+    }
+
     /**
      * Get the finder used to locate the dependencies for a class.
      * @return the finder
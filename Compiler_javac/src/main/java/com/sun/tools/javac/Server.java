@@ -32,12 +32,26 @@ import java.util.concurrent.*;
 import java.util.logging.Logger;
 import javax.tools.*;
 
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.jvm.PlatformClassCache;
+import com.sun.tools.javac.main.CommandLine;
+import com.sun.tools.javac.main.Main;
+import com.sun.tools.javac.util.Context;
+
 /**
  * Java Compiler Server.  Can be used to speed up a set of (small)
  * compilation tasks by caching jar files between compilations.
  * 
  * 这个类在JDK1.6内不是有效的，默认情况下它不会被编译进tools.jar。(但是JDK1.7版本中tools.jar中已经有这个类了)
  *
+ * 每个请求是若干行命令行参数(每行一个)，以"END"结束；可以用"PWD:"行给出客户端的工作目录，
+ * 参数中的相对路径(源文件、@文件以及-d、-cp等选项的路径)按这个目录解析，参见resolve。
+ * 不能解析的参数(读不到的@文件)使请求被拒绝，回复"EXIT: 2"。
+ * 编译输出之后回复一行"EXIT: n"。
+ * 请求之间保留名称表以及平台类(rt.jar/ct.sym)的符号，参见PlatformClassCache。
+ * 不带参数时在本机的0xcafe端口上监听；带两个参数时反复从第一个文件(比如命名管道)
+ * 读请求，把回复写到第二个文件。
+ *
  * <p><b>This is NOT part of any supported API.
  * If you write code that depends on this, you do so at your own
  * risk.  This code and its internal interfaces are subject to change
@@ -50,33 +64,12 @@ class Server implements Runnable {
     private final BufferedReader in;
     private final OutputStream out;
     private final boolean isSocket;
-    private static final JavaCompiler tool = ToolProvider.getSystemJavaCompiler();
+    /** Main.EXIT_CMDERR: bad command-line arguments. */
+    private static final int EXIT_CMDERR = 2;
     private static Logger logger = Logger.getLogger("com.sun.tools.javac");
-    static class CwdFileManager extends ForwardingJavaFileManager<JavaFileManager> {
-        String cwd;
-        CwdFileManager(JavaFileManager fileManager) {
-            super(fileManager);
-        }
-        String getAbsoluteName(String name) {
-            if (new File(name).isAbsolute()) {
-                return name;
-            } else {
-                return new File(cwd,name).getPath();
-            }
-        }
-//      public JavaFileObject getFileForInput(String name)
-//          throws IOException
-//      {
-//          return super.getFileForInput(getAbsoluteName(name));
-//      }
-    }
-    // static CwdFileManager fm = new CwdFileManager(tool.getStandardFileManager());
-    static StandardJavaFileManager fm = tool.getStandardFileManager(null, null, null);
+    /** The platform classes kept between compilations. */
+    private static final PlatformClassCache cache = new PlatformClassCache();
     static {
-        // Use the same file manager for all compilations.  This will
-        // cache jar files in the standard file manager.  Use
-        // tool.getStandardFileManager().close() to release.
-        // FIXME tool.setFileManager(fm);
         logger.setLevel(java.util.logging.Level.SEVERE);
     }
     private Server(BufferedReader in, OutputStream out, boolean isSocket) {
@@ -122,15 +115,28 @@ class Server implements Runnable {
                     line = null;
                 }
             }
-            Iterable<File> path = cwd == null ? null : Arrays.<File>asList(new File(cwd));
+            // relative paths in the arguments would be resolved against the
+            // server's working directory, so resolve them against the client's
+            File dir = new File(System.getProperty("user.dir")).getAbsoluteFile();
+            if (cwd != null && !new File(cwd).getAbsoluteFile().equals(dir)) {
+                try {
+                    args = resolve(new File(cwd).getAbsoluteFile(), args);
+                } catch (IOException e) {
+                    String msg = String.format("javac server: cannot resolve arguments in %s: %s",
+                                               cwd, e.getLocalizedMessage());
+                    logger.warning(msg);
+                    PrintWriter p = new PrintWriter(out, true);
+                    p.println(msg);
+                    p.flush();
+                    res = EXIT_CMDERR;
+                    return;
+                }
+            }
             // try { in.close(); } catch (IOException e) {}
             long msec = System.currentTimeMillis();
             try {
-                synchronized (tool) {
-                    for (StandardLocation location : StandardLocation.values())
-                        fm.setLocation(location, path);
-                    res = compile(out, fm, args);
-                    // FIXME res = tool.run((InputStream)null, null, out, args.toArray(new String[args.size()]));
+                synchronized (cache) {
+                    res = compile(out, args);
                 }
             } catch (Throwable ex) {
                 logger.log(java.util.logging.Level.SEVERE, args.toString(), ex);
@@ -164,21 +170,21 @@ class Server implements Runnable {
             logger.info(String.format("EXIT: %s", res));
         }
     }
-    public static void main(String... args) throws FileNotFoundException {
+    public static void main(String... args) throws IOException {
         if (args.length == 2) {
             for (;;) {
-                throw new UnsupportedOperationException("TODO");
-//              BufferedReader in = new BufferedReader(new FileReader(args[0]));
-//              PrintWriter out = new PrintWriter(args[1]);
-//              new Server(in, out).run();
-//              System.out.flush();
-//              System.err.flush();
+                BufferedReader in = new BufferedReader(new FileReader(args[0]));
+                OutputStream out = new FileOutputStream(args[1]);
+                new Server(in, out).run();
+                System.out.flush();
+                System.err.flush();
             }
         } else {
             ExecutorService pool = Executors.newCachedThreadPool();
             try
                 {
-                ServerSocket socket = new ServerSocket(0xcafe, -1, null);
+                // only accept local clients
+                ServerSocket socket = new ServerSocket(0xcafe, -1, InetAddress.getByName(null));
                 for (;;) {
                     pool.execute(new Server(socket.accept()));
                 }
@@ -190,9 +196,120 @@ class Server implements Runnable {
         }
     }
 
-    private int compile(OutputStream out, StandardJavaFileManager fm, List<String> args) {
-        // FIXME parse args and use getTask
-        // System.err.println("Running " + args);
-        return tool.run(null, null, out, args.toArray(new String[args.size()]));
+    /** Options whose value, the next argument, is a file or a directory. */
+    private static final Set<String> fileOptions = new HashSet<String>(Arrays.asList(
+        "-d", "-s", "-Xstdout"));
+
+    /** Options whose value, the next argument, is a list of paths. */
+    private static final Set<String> pathOptions = new HashSet<String>(Arrays.asList(
+        "-classpath", "-cp", "-sourcepath", "-bootclasspath", "-extdirs",
+        "-endorseddirs", "-processorpath"));
+
+    /** Options whose value, the next argument, is not a path. */
+    private static final Set<String> valueOptions = new HashSet<String>(Arrays.asList(
+        "-encoding", "-source", "-target", "-processor", "-Xmaxerrs", "-Xmaxwarns"));
+
+    /** Options followed by a list of paths in the same argument. */
+    private static final String[] pathPrefixes = {
+        "-Xbootclasspath/p:", "-Xbootclasspath/a:", "-Xbootclasspath:"
+    };
+
+    /** Options followed by a file or a directory in the same argument. */
+    private static final String[] filePrefixes = {
+        "-XDincremental=", "-XDcachezipindexdir="
+    };
+
+    /**
+     * Make the relative paths in the arguments of a client in directory
+     * dir absolute: source files, @files and their contents, and the values
+     * of the options that name files, directories or paths.  Without a
+     * class path option, the class path is dir, as "." would be for the
+     * client.  Other arguments, such as -A options for processors, are
+     * passed as they are.
+     * @throws IOException if an @file cannot be read
+     */
+    static List<String> resolve(File dir, List<String> args) throws IOException {
+        List<String> expanded = new ArrayList<String>();
+        for (String arg : args) {
+            if (arg.length() > 1 && arg.charAt(0) == '@' && arg.charAt(1) != '@')
+                arg = "@" + resolveFile(dir, arg.substring(1));
+            expanded.add(arg);
+        }
+        String[] flat = CommandLine.parse(expanded.toArray(new String[expanded.size()]));
+        List<String> result = new ArrayList<String>(flat.length + 2);
+        boolean hasClassPath = false;
+        for (int i = 0; i < flat.length; i++) {
+            String arg = flat[i];
+            result.add(arg);
+            if (i + 1 < flat.length && fileOptions.contains(arg)) {
+                result.add(resolveFile(dir, flat[++i]));
+            } else if (i + 1 < flat.length && pathOptions.contains(arg)) {
+                hasClassPath |= arg.equals("-classpath") || arg.equals("-cp");
+                result.add(resolvePath(dir, flat[++i]));
+            } else if (i + 1 < flat.length && valueOptions.contains(arg)) {
+                result.add(flat[++i]);
+            } else if (arg.startsWith("-")) {
+                for (String prefix : pathPrefixes) {
+                    if (arg.startsWith(prefix)) {
+                        arg = prefix + resolvePath(dir, arg.substring(prefix.length()));
+                        break;
+                    }
+                }
+                for (String prefix : filePrefixes) {
+                    if (arg.startsWith(prefix)) {
+                        arg = prefix + resolveFile(dir, arg.substring(prefix.length()));
+                        break;
+                    }
+                }
+                result.set(result.size() - 1, arg);
+            } else if (arg.endsWith(".java")) {
+                result.set(result.size() - 1, resolveFile(dir, arg));
+            }
+        }
+        if (!hasClassPath) {
+            result.add(0, "-classpath");
+            result.add(1, dir.getPath());
+        }
+        return result;
+    }
+
+    private static String resolveFile(File dir, String name) {
+        if (name.length() == 0 || new File(name).isAbsolute())
+            return name;
+        return new File(dir, name).getPath();
+    }
+
+    private static String resolvePath(File dir, String path) {
+        String[] names = path.split(File.pathSeparator, -1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0)
+                sb.append(File.pathSeparator);
+            sb.append(resolveFile(dir, names[i]));
+        }
+        return sb.toString();
+    }
+
+    private int compile(OutputStream out, List<String> args) {
+        PrintWriter p = new PrintWriter(out, true);
+        Context context = new Context();
+        final JavacFileManager[] fileManager = new JavacFileManager[1];
+        context.put(JavaFileManager.class, new Context.Factory<JavaFileManager>() {
+            public JavaFileManager make(Context c) {
+                return fileManager[0] = new JavacFileManager(c, true, null);
+            }
+        });
+        cache.preRegister(context);
+        int res = -1;
+        try {
+            res = new Main("javac", p).compile(args.toArray(new String[args.size()]), context);
+        } finally {
+            // keep the symbol table unless the compiler gave up half way
+            cache.compilationFinished(res == 0 || res == 1);
+            if (fileManager[0] != null)
+                fileManager[0].close();
+            p.flush();
+        }
+        return res;
     }
 }
@@ -172,6 +172,7 @@ public class JavacTaskImpl extends JavacTask {
             initContext();
             compilerMain.setOptions(Options.instance(context));
             compilerMain.filenames = new ListBuffer<File>();
+            compilerMain.classnames = new ListBuffer<String>();
             List<File> filenames = compilerMain.processArgs(CommandLine.parse(args));
             if (!filenames.isEmpty())
                 throw new IllegalArgumentException("Malformed arguments " + filenames.toString(" "));
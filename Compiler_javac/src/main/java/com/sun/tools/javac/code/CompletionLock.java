@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 1999, 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.code;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.tools.javac.util.Assert;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * The lock that guards the completion of symbols, and the components
+ * shared between threads, while some phase of a compilation runs on
+ * several threads (see JavaCompiler.CompilePolicy.PARALLEL).
+ * There is one lock per compilation context.  The threads taking part in
+ * a parallel phase register with it (see enter), and only for them does
+ * Symbol.complete take the lock; other threads, including those of other
+ * compilations, complete symbols as usual.
+ * 每个线程在参与并行阶段期间向本context的锁登记(enter/leave)，
+ * Symbol.complete只对登记过的线程加锁。
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class CompletionLock {
+    protected static final Context.Key<CompletionLock> completionLockKey =
+        new Context.Key<CompletionLock>();
+
+    public static CompletionLock instance(Context context) {
+        CompletionLock instance = context.get(completionLockKey);
+        if (instance == null)
+            instance = new CompletionLock(context);
+        return instance;
+    }
+
+    protected CompletionLock(Context context) {
+        context.put(completionLockKey, this);
+    }
+
+    /** The lock each thread is registered with, if any. */
+    private static final ThreadLocal<CompletionLock> current = new ThreadLocal<CompletionLock>();
+
+    /** The number of threads registered with any lock, so that threads
+     *  can skip looking up current when there are none.
+     */
+    private static final AtomicInteger registered = new AtomicInteger();
+
+    /** The depth of the completions in progress on the thread that holds
+     *  this lock; written only while holding it.
+     */
+    volatile int completing;
+
+    /** Register the current thread for a parallel phase.  Until the
+     *  matching call of leave, the thread completes symbols while holding
+     *  this lock, and each of them only once.  The thread must also hold
+     *  this lock when it calls into other shared components that may
+     *  complete symbols, such as Types or Check.
+     */
+    public void enter() {
+        Assert.check(current.get() == null);
+        current.set(this);
+        registered.incrementAndGet();
+    }
+
+    /** Called when the current thread has finished its part of the
+     *  parallel phase started with enter.
+     */
+    public void leave() {
+        Assert.check(current.get() == this);
+        current.remove();
+        registered.decrementAndGet();
+    }
+
+    /** The lock the current thread is registered with, or null if it is
+     *  not taking part in a parallel phase.
+     */
+    static CompletionLock current() {
+        return (registered.get() == 0) ? null : current.get();
+    }
+}
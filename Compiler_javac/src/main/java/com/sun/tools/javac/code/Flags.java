@@ -257,6 +257,13 @@ public class Flags {
      */
     public static final long CLASH = 1L<<43;
 
+    /**
+     * Flag that marks a private member that other classes of its top level
+     * class access directly, without access methods; it is written as a
+     * package private synthetic member (see Lower.needsPrivateAccess).
+     */
+    public static final long WIDENED = 1L<<44;
+
     /** Modifier masks.
      */
     public static final int
@@ -120,6 +120,24 @@ public class Lint
         this.suppressedValues = other.suppressedValues.clone();
     }
 
+    private Lint(Lint other, AugmentVisitor augmentor) {
+        this.augmentor = augmentor;
+        this.values = other.values.clone();
+        this.suppressedValues = other.suppressedValues.clone();
+    }
+
+    /**
+     * Returns a copy of this Lint, and of the Lints derived from it by
+     * augment, that can be used on another thread: the copy has its own
+     * augmentor, which keeps state while it visits the annotations.
+     * Must be called on the thread that owns the context.
+     */
+    public Lint fork() {
+        AugmentVisitor a = new AugmentVisitor(augmentor.context);
+        a.initSyms();
+        return new Lint(this, a);
+    }
+
     @Override
     public String toString() {
         return "Lint:[values" + values + " suppressedValues" + suppressedValues + "]";
@@ -113,6 +113,24 @@ public class Scope {
         this(null, owner, new Entry[INITIAL_SIZE]);
     }
 
+    /** Construct a new scope with given owner, using a fresh table large
+     *  enough for the given number of entries, so that the table does not
+     *  have to grow while they are entered.  Used for class member scopes
+     *  whose size is known in advance.
+     */
+    public Scope(Symbol owner, int expectedSize) {
+        this(null, owner, new Entry[tableSize(expectedSize)]);
+    }
+
+    /** The length of a table that holds n entries without growing.
+     */
+    static int tableSize(int n) {
+        int length = INITIAL_SIZE;
+        while (n * 3 >= (length - 1) * 2)
+            length <<= 1;
+        return length;
+    }
+
     /** Construct a fresh scope within this scope, with same owner,
      *  which shares its table with the outer scope. Used in connection with
      *  method leave if scope access is stack-like in order to avoid allocation
@@ -164,12 +182,22 @@ public class Scope {
         return next;
     }
 
-    /** Double size of hash table.
+    /** Rebuild the hash table when it is full, dropping the entries of
+     *  deleted items.  The size of the table is doubled, unless fewer
+     *  than a third of its slots hold live entries, in which case the
+     *  table keeps its size.
      */
-    private void dble() {
+    private void rehash() {
         Assert.check(shared == 0);
         Entry[] oldtable = table;
-        Entry[] newtable = new Entry[oldtable.length * 2];
+        int live = 0;
+        for (int i = oldtable.length; --i >= 0; ) {
+            Entry e = oldtable[i];
+            if (e != null && e != sentinel)
+                live++;
+        }
+        int length = (live * 3 < oldtable.length) ? oldtable.length : oldtable.length * 2;
+        Entry[] newtable = new Entry[length];
         for (Scope s = this; s != null; s = s.next) {
             if (s.table == oldtable) {
                 Assert.check(s == this || s.shared != 0);
@@ -209,7 +237,7 @@ public class Scope {
     public void enter(Symbol sym, Scope s, Scope origin) {
         Assert.check(shared == 0);
         if (nelems * 3 >= hashMask * 2)
-            dble();
+            rehash();
         int hash = getIndex(sym.name);
         Entry old = table[hash];
         if (old == null) {
@@ -528,25 +556,150 @@ public class Scope {
         }
     }
 
+    /** The scope of the import-on-demand declarations of a compilation unit.
+     *  The types imported from a package or class are not copied into this
+     *  scope; instead, the scopes imported from are searched by name when a
+     *  name is looked up, and the result is cached.  Only the types and
+     *  members imported by static imports are entered in the table of this
+     *  scope.  Lookups return the same entries, in the same order, as if
+     *  every imported type had been entered, one import after the other.
+     */
     public static class StarImportScope extends ImportScope implements ScopeListener {
 
+        /** The scopes imported by importAll, latest first. */
+        private List<StarImport> imports = List.nil();
+
+        /** The number of imports and entries so far; orders the imported
+         *  scopes and the entries of the table.
+         */
+        private int stamp;
+
+        /** The entries found so far, by name, see lookup. */
+        private final java.util.Map<Name, Entry> cache = new java.util.HashMap<Name, Entry>();
+
         public StarImportScope(Symbol owner) {
             super(owner);
         }
 
-        public void importAll (Scope fromScope) {
-            for (Scope.Entry e = fromScope.elems; e != null; e = e.sibling) {
-                if (e.sym.kind == Kinds.TYP && !includes(e.sym))
-                    enter(e.sym, fromScope);
+        private static class StarImport {
+            final Scope scope;
+            final int stamp;
+            StarImport(Scope scope, int stamp) {
+                this.scope = scope;
+                this.stamp = stamp;
             }
-            // Register to be notified when imported items are removed
+        }
+
+        /** An entry of the table of this scope. */
+        private static class StarImportEntry extends ImportEntry {
+            final int stamp;
+            StarImportEntry(Symbol sym, Entry shadowed, Entry sibling, Scope scope, Scope origin, int stamp) {
+                super(sym, shadowed, sibling, scope, origin);
+                this.stamp = stamp;
+            }
+        }
+
+        public void importAll (Scope fromScope) {
+            imports = imports.prepend(new StarImport(fromScope, stamp++));
+            cache.clear();
+            // Register to be notified when imported items are added or removed
             fromScope.addScopeListener(this);
         }
 
+        /** Has anything been imported into this scope? */
+        public boolean isFilled() {
+            return imports.nonEmpty() || elems != null;
+        }
+
+        @Override
+        Entry makeEntry(Symbol sym, Entry shadowed, Entry sibling, Scope scope, Scope origin) {
+            cache.clear();
+            return new StarImportEntry(sym, shadowed, sibling, scope, origin, stamp++);
+        }
+
+        @Override
+        public Entry lookup(Name name, Filter<Symbol> sf) {
+            Entry e = cache.get(name);
+            if (e == null) {
+                e = find(name);
+                cache.put(name, e);
+            }
+            while (e.scope != null && !sf.accepts(e.sym))
+                e = e.shadowed;
+            return e;
+        }
+
+        /** Return the chain of the entries with the given name, merging
+         *  the entries of the table with the types of the imported scopes.
+         */
+        private Entry find(Name name) {
+            ListBuffer<Entry> found = new ListBuffer<Entry>();
+            Entry own = super.lookup(name, noFilter);
+            for (List<StarImport> l = imports; l.nonEmpty(); l = l.tail) {
+                StarImport imp = l.head;
+                for (; own.scope != null && ((StarImportEntry)own).stamp > imp.stamp; own = own.shadowed)
+                    found.append(own);
+                // importAll used to enter the types of a scope in the
+                // reverse order of their entries
+                List<Entry> types = List.nil();
+                for (Entry e = imp.scope.lookup(name); e.scope == imp.scope; e = e.next()) {
+                    if (e.sym.kind == Kinds.TYP)
+                        types = types.prepend(new ImportEntry(e.sym, null, null, imp.scope, imp.scope));
+                }
+                found.appendList(types);
+            }
+            for (; own.scope != null; own = own.shadowed)
+                found.append(own);
+            if (found.isEmpty())
+                return sentinel;
+            // link copies of the entries, so that the table is not changed
+            Entry result = sentinel;
+            for (List<Entry> l = found.toList().reverse(); l.nonEmpty(); l = l.tail) {
+                Entry e = l.head;
+                result = new ImportEntry(e.sym, result, null, e.scope, e.getOrigin());
+            }
+            return result;
+        }
+
+        @Override
+        public Iterable<Symbol> getElements(final Filter<Symbol> sf) {
+            ListBuffer<Symbol> syms = new ListBuffer<Symbol>();
+            Entry own = elems;
+            for (List<StarImport> l = imports; l.nonEmpty(); l = l.tail) {
+                StarImport imp = l.head;
+                for (; own != null && ((StarImportEntry)own).stamp > imp.stamp; own = own.sibling) {
+                    if (sf.accepts(own.sym))
+                        syms.append(own.sym);
+                }
+                List<Symbol> types = List.nil();
+                for (Entry e = imp.scope.elems; e != null; e = e.sibling) {
+                    if (e.sym.kind == Kinds.TYP && sf.accepts(e.sym))
+                        types = types.prepend(e.sym);
+                }
+                syms.appendList(types);
+            }
+            for (; own != null; own = own.sibling) {
+                if (sf.accepts(own.sym))
+                    syms.append(own.sym);
+            }
+            return syms.toList();
+        }
+
+        /** Never called: the compiler only removes symbols from the member
+         *  scopes of classes and packages.  The imported types are not in
+         *  the table of this scope, so they could not be removed from it.
+         */
+        @Override
+        public void remove(Symbol sym) {
+            throw new AssertionError(sym);
+        }
+
         public void symbolRemoved(Symbol sym, Scope s) {
-            remove(sym);
+            cache.remove(sym.name);
+        }
+        public void symbolAdded(Symbol sym, Scope s) {
+            cache.remove(sym.name);
         }
-        public void symbolAdded(Symbol sym, Scope s) { }
     }
 
     /** An empty scope, into which you can't place anything.  Used for
@@ -649,6 +802,7 @@ public class Scope {
                 public Iterator<Symbol> iterator() {
                     return new CompoundScopeIterator(subScopes) {
                         Iterator<Symbol> nextIterator(Scope s) {
+                            completeMembers(s, null);
                             return s.getElements(sf).iterator();
                         }
                     };
@@ -662,6 +816,7 @@ public class Scope {
                 public Iterator<Symbol> iterator() {
                     return new CompoundScopeIterator(subScopes) {
                         Iterator<Symbol> nextIterator(Scope s) {
+                            completeMembers(s, name);
                             return s.getElementsByName(name, sf).iterator();
                         }
                     };
@@ -669,6 +824,21 @@ public class Scope {
             };
         }
 
+        /** The members scopes of classes are added as they are, even if
+         *  some of their members are still to be read from the class file
+         *  (see ClassSymbol.memberCompleter); read those of the given name,
+         *  or all of them if name is null, before looking into s.
+         */
+        private static void completeMembers(Scope s, Name name) {
+            if (s.owner instanceof Symbol.ClassSymbol
+                    && ((Symbol.ClassSymbol) s.owner).memberCompleter != null) {
+                if (name == null)
+                    s.owner.members();
+                else
+                    s.owner.members(name);
+            }
+        }
+
         abstract class CompoundScopeIterator implements Iterator<Symbol> {
 
             private Iterator<Symbol> currentIterator;
@@ -105,7 +105,7 @@ public abstract class Symbol implements Element {
 
     /** The completer of this symbol.
      */
-    public Completer completer;
+    public volatile Completer completer;
 
     /** A cache for the type erasure of this symbol.
      */
@@ -257,6 +257,14 @@ public abstract class Symbol implements Element {
         return null;
     }
 
+    /** The members of this class or package, of which at least those with
+     *  the given name have been read; used by lookups of a single name.
+     *  See ClassSymbol.memberCompleter.
+     */
+    public Scope members(Name name) {
+        return members();
+    }
+
     /** A class is an inner class if it it has an enclosing instance class.
      */
     public boolean isInner() {
@@ -339,7 +347,7 @@ public abstract class Symbol implements Element {
         if (kind == MTH && (flags() & STATIC) == 0) return false;
         while (true) {
             if (owner == clazz) return false;
-            Scope.Entry e = clazz.members().lookup(name);
+            Scope.Entry e = clazz.members(name).lookup(name);
             while (e.scope != null) {
                 if (e.sym == this) return false;
                 if (e.sym.kind == kind &&
@@ -414,6 +422,11 @@ public abstract class Symbol implements Element {
     /** Complete the elaboration of this symbol's definition.
      */
     public void complete() throws CompletionFailure {
+        CompletionLock lock = CompletionLock.current();
+        if (lock != null) {
+            completeLocked(lock);
+            return;
+        }
         if (completer != null) {
             Completer c = completer;
             completer = null;
@@ -421,6 +434,26 @@ public abstract class Symbol implements Element {
         }
     }
 
+    private void completeLocked(CompletionLock lock) throws CompletionFailure {
+        // completer is reset only once lock.completing has been raised, so
+        // if completer is null while some completion is in progress, wait
+        // for it to finish
+        if (completer == null && lock.completing == 0)
+            return;
+        synchronized (lock) {
+            Completer c = completer;
+            if (c != null) {
+                lock.completing++;
+                completer = null;
+                try {
+                    c.complete(this);
+                } finally {
+                    lock.completing--;
+                }
+            }
+        }
+    }
+
     /** True if the symbol represents an entity that exists.
      */
     public boolean exists() {
@@ -484,6 +517,7 @@ public abstract class Symbol implements Element {
         public Name getQualifiedName() { return other.getQualifiedName(); }
         public Name flatName() { return other.flatName(); }
         public Scope members() { return other.members(); }
+        public Scope members(Name name) { return other.members(name); }
         public boolean isInner() { return other.isInner(); }
         public boolean hasOuterInstance() { return other.hasOuterInstance(); }
         public ClassSymbol enclClass() { return other.enclClass(); }
@@ -653,17 +687,17 @@ public abstract class Symbol implements Element {
         }
 
         public Scope members() {
-            if (completer != null) complete();
+            complete();
             return members_field;
         }
 
         public long flags() {
-            if (completer != null) complete();
+            complete();
             return flags_field;
         }
 
         public List<Attribute.Compound> getAnnotationMirrors() {
-            if (completer != null) complete();
+            complete();
             if (package_info != null && package_info.completer != null) {
                 package_info.complete();
                 if (attributes_field.isEmpty())
@@ -729,6 +763,13 @@ public abstract class Symbol implements Element {
          */
         public Pool pool;
 
+        /** if not null, the fields and methods of the class that are still
+         *  to be read from its class file: those of a name are read when
+         *  the name is looked up with members(Name), all of them when the
+         *  whole scope is asked for with members().
+         */
+        public volatile MemberCompleter memberCompleter;
+
         public ClassSymbol(long flags, Name name, Type type, Symbol owner) {
             super(flags, name, type, owner);
             this.members_field = null;
@@ -755,17 +796,49 @@ public abstract class Symbol implements Element {
         }
 
         public long flags() {
-            if (completer != null) complete();
+            complete();
             return flags_field;
         }
 
         public Scope members() {
-            if (completer != null) complete();
+            complete();
+            completeMembers(null);
+            return members_field;
+        }
+
+        public Scope members(Name name) {
+            complete();
+            completeMembers(name);
             return members_field;
         }
 
+        private void completeMembers(Name name) {
+            CompletionLock lock = CompletionLock.current();
+            if (lock == null) {
+                if (memberCompleter != null)
+                    memberCompleter.complete(this, name);
+                return;
+            }
+            // as in Symbol.completeLocked, wait for a completion in progress
+            if (memberCompleter == null && lock.completing == 0)
+                return;
+            // read them all at once, so that the scope does not change
+            // any more while other threads look into it
+            synchronized (lock) {
+                MemberCompleter mc = memberCompleter;
+                if (mc != null) {
+                    lock.completing++;
+                    try {
+                        mc.complete(this, null);
+                    } finally {
+                        lock.completing--;
+                    }
+                }
+            }
+        }
+
         public List<Attribute.Compound> getAnnotationMirrors() {
-            if (completer != null) complete();
+            complete();
             return Assert.checkNonNull(attributes_field);
         }
 
@@ -1089,7 +1162,7 @@ public abstract class Symbol implements Element {
 
         public Symbol implementedIn(TypeSymbol c, Types types) {
             Symbol impl = null;
-            for (Scope.Entry e = c.members().lookup(name);
+            for (Scope.Entry e = c.members(name).lookup(name);
                  impl == null && e.scope != null;
                  e = e.next()) {
                 if (this.overrides(e.sym, (TypeSymbol)owner, types, true) &&
@@ -1133,7 +1206,7 @@ public abstract class Symbol implements Element {
          */
         public MethodSymbol binaryImplementation(ClassSymbol origin, Types types) {
             for (TypeSymbol c = origin; c != null; c = types.supertype(c.type).tsym) {
-                for (Scope.Entry e = c.members().lookup(name);
+                for (Scope.Entry e = c.members(name).lookup(name);
                      e.scope != null;
                      e = e.next()) {
                     if (e.sym.kind == MTH &&
@@ -1354,6 +1427,16 @@ public abstract class Symbol implements Element {
         void complete(Symbol sym) throws CompletionFailure;
     }
 
+    /** Completer of the members of a class that are read on demand.
+     */
+    public static interface MemberCompleter {
+        /** Enter the members of class c with the given name into its
+         *  members scope, or all of the remaining ones if name is null;
+         *  the latter resets c.memberCompleter.
+         */
+        void complete(ClassSymbol c, Name name) throws CompletionFailure;
+    }
+
     public static class CompletionFailure extends RuntimeException {
         private static final long serialVersionUID = 0;
         public Symbol sym;
@@ -62,6 +62,13 @@ public class Symtab {
         return instance;
     }
 
+    /** Register a symbol table carried over from an earlier compilation,
+     *  see com.sun.tools.javac.jvm.PlatformClassCache.
+     */
+    public static void preRegister(Context context, Symtab syms) {
+        context.put(symtabKey, syms);
+    }
+
     /** Builtin types.
      */
     public final Type byteType = new Type(TypeTags.BYTE, null);
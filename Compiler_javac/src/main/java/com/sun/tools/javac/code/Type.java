@@ -721,7 +721,7 @@ public class Type implements PrimitiveType {
         }
 
         public void complete() {
-            if (tsym.completer != null) tsym.complete();
+            tsym.complete();
         }
 
         public TypeKind getKind() {
@@ -102,6 +102,39 @@ public class Types {
         chk = Check.instance(context);
         capturedName = names.fromString("<captured wildcard>");
         messages = JavacMessages.instance(context);
+        completionLock = CompletionLock.instance(context);
+        forked = false;
+    }
+
+    /** True if this is a copy made by fork. */
+    private final boolean forked;
+
+    /** The lock the class reader is called with by the copies. */
+    private final CompletionLock completionLock;
+
+    protected Types(Types other) {
+        syms = other.syms;
+        names = other.names;
+        allowBoxing = other.allowBoxing;
+        allowCovariantReturns = other.allowCovariantReturns;
+        allowObjectToPrimitiveCast = other.allowObjectToPrimitiveCast;
+        reader = other.reader;
+        chk = other.chk;
+        capturedName = other.capturedName;
+        messages = other.messages;
+        completionLock = other.completionLock;
+        forked = true;
+    }
+
+    /**
+     * Return a copy of this object with its own caches and visitors, to be
+     * used by one other thread while this object, or other copies, are used
+     * by other threads.  The symbols and types themselves are shared, so
+     * symbols are completed while holding the CompletionLock, and so is
+     * the class reader when used by the copy; see CompletionLock.enter.
+     */
+    public Types fork() {
+        return new Types(this);
     }
     // </editor-fold>
 
@@ -316,6 +349,108 @@ public class Types {
     }
     // </editor-fold>
 
+    // <editor-fold defaultstate="collapsed" desc="Result caches">
+    /**
+     * A bounded cache of the results of an operation on a pair of
+     * objects, compared by identity.  Each pair has a single slot, chosen
+     * by their identity hash codes, which another pair may take over.
+     * asSuper和isSubtype的结果缓存：大小固定，不需要清理，冲突时直接覆盖。
+     */
+    static class PairCache {
+        private static final int SIZE = 1 << 12;
+
+        private final Object[] keys1 = new Object[SIZE];
+        private final Object[] keys2 = new Object[SIZE];
+        private final Object[] values = new Object[SIZE];
+
+        /** The number of lookups, and of lookups that found a result. */
+        int lookups, hits;
+
+        int index(Object k1, Object k2) {
+            int h = System.identityHashCode(k1) * 31 + System.identityHashCode(k2);
+            return (h ^ (h >>> 15)) & (SIZE - 1);
+        }
+
+        /** The result cached for (k1, k2) in slot i, or null. */
+        Object get(int i, Object k1, Object k2) {
+            lookups++;
+            if (keys1[i] == k1 && keys2[i] == k2) {
+                hits++;
+                return values[i];
+            }
+            return null;
+        }
+
+        void put(int i, Object k1, Object k2, Object value) {
+            keys1[i] = k1;
+            keys2[i] = k2;
+            values[i] = value;
+        }
+
+        @Override
+        public String toString() {
+            return hits + "/" + lookups + " hits"
+                + (lookups == 0 ? "" : " (" + (hits * 100L / lookups) + "%)");
+        }
+    }
+
+    /* The caches belong to the context, so each round of annotation
+     * processing, which has a new context, starts with empty caches;
+     * forks have caches of their own.
+     */
+
+    /** The cached results of asSuper(Type, Symbol), with NO_TYPE for null. */
+    private final PairCache asSuperResults = new PairCache();
+
+    /** The cached results of isSubtype after capture conversion. */
+    private final PairCache isSubtypeResults = new PairCache();
+
+    private static final Object NO_TYPE = new Object();
+
+    /**
+     * Can the result of asSuper or isSubtype for t be cached?  True for
+     * primitive types, and for class and array types built from classes
+     * whose supertypes can no longer change: classes that have been
+     * completed and, if they come from source, attributed.  Type variables
+     * (including captured ones), inference variables and erroneous types
+     * are never cached.
+     */
+    private boolean isStable(Type t) {
+        switch (t.tag) {
+        case BYTE: case CHAR: case SHORT: case INT: case LONG:
+        case FLOAT: case DOUBLE: case BOOLEAN:
+            return true;
+        case ARRAY:
+            return isStable(((ArrayType)t).elemtype);
+        case CLASS:
+            if (t.isCompound())
+                return false;
+            Symbol c = t.tsym;
+            if ((c.flags_field & UNATTRIBUTED) != 0 || c.completer != null)
+                return false;
+            for (List<Type> l = t.getTypeArguments(); l.nonEmpty(); l = l.tail) {
+                if (!isStable(l.head))
+                    return false;
+            }
+            Type outer = t.getEnclosingType();
+            return outer.tag != CLASS || isStable(outer);
+        case WILDCARD:
+            Type bound = ((WildcardType)t).type;
+            return bound == null || isStable(bound);
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * The hit rates of the caches, printed at the end of the compilation
+     * with -XDcacheStats.
+     */
+    public String cacheStatistics() {
+        return "asSuper: " + asSuperResults + ", isSubtype: " + isSubtypeResults;
+    }
+    // </editor-fold>
+
     // <editor-fold defaultstate="collapsed" desc="isSubtype">
     /**
      * Is t an unchecked subtype of s?
@@ -374,6 +509,9 @@ public class Types {
     final public boolean isSubtypeNoCapture(Type t, Type s) {
         return isSubtype(t, s, false);
     }
+    /** The pairs whose type arguments are being compared by isSubtype. */
+    private Set<TypePair> containsTypeRecursiveCache = new HashSet<TypePair>();
+
     public boolean isSubtype(Type t, Type s, boolean capture) {
         if (t == s)
             return true;
@@ -393,7 +531,18 @@ public class Types {
         if (s != lower)
             return isSubtype(capture ? capture(t) : t, lower, false);
 
-        return isSubtype.visit(capture ? capture(t) : t, s);
+        if (capture)
+            t = capture(t);
+        if (!containsTypeRecursiveCache.isEmpty() || !isStable(t) || !isStable(s))
+            return isSubtype.visit(t, s);
+        int i = isSubtypeResults.index(t, s);
+        Object result = isSubtypeResults.get(i, t, s);
+        if (result == null) {
+            Boolean b = isSubtype.visit(t, s);
+            isSubtypeResults.put(i, t, s, b);
+            return b;
+        }
+        return result == Boolean.TRUE;
     }
     // where
         private TypeRelation isSubtype = new TypeRelation()
@@ -421,16 +570,14 @@ public class Types {
                 }
             }
 
-            private Set<TypePair> cache = new HashSet<TypePair>();
-
             private boolean containsTypeRecursive(Type t, Type s) {
                 TypePair pair = new TypePair(t, s);
-                if (cache.add(pair)) {
+                if (containsTypeRecursiveCache.add(pair)) {
                     try {
                         return containsType(t.getTypeArguments(),
                                             s.getTypeArguments());
                     } finally {
-                        cache.remove(pair);
+                        containsTypeRecursiveCache.remove(pair);
                     }
                 } else {
                     return containsType(t.getTypeArguments(),
@@ -1396,7 +1543,16 @@ public class Types {
      * @param sym a symbol
      */
     public Type asSuper(Type t, Symbol sym) {
-        return asSuper.visit(t, sym);
+        if (t.tag != CLASS || t.tsym == sym || !isStable(t))
+            return asSuper.visit(t, sym);
+        int i = asSuperResults.index(t, sym);
+        Object result = asSuperResults.get(i, t, sym);
+        if (result == null) {
+            Type st = asSuper.visit(t, sym);
+            asSuperResults.put(i, t, sym, st == null ? NO_TYPE : st);
+            return st;
+        }
+        return result == NO_TYPE ? null : (Type)result;
     }
     // where
         private SimpleVisitor<Type,Symbol> asSuper = new SimpleVisitor<Type,Symbol>() {
@@ -2079,7 +2235,7 @@ public class Types {
                 while (t.tag == TYPEVAR)
                     t = t.getUpperBound();
                 TypeSymbol c = t.tsym;
-                for (Scope.Entry e = c.members().lookup(ms.name, implFilter);
+                for (Scope.Entry e = c.members(ms.name).lookup(ms.name, implFilter);
                      e.scope != null;
                      e = e.next(implFilter)) {
                     if (e.sym != null &&
@@ -2136,7 +2292,10 @@ public class Types {
                     }
                 }
                 membersClosure.addSubScope(visit(supertype(t), skipInterface));
-                membersClosure.addSubScope(csym.members());
+                // not members(), which would read all members of a class
+                // whose members are read lazily; see CompoundScope
+                csym.complete();
+                membersClosure.addSubScope(csym.members_field);
                 e = new Entry(skipInterface, membersClosure);
                 _map.put(csym, e);
             }
@@ -3132,7 +3291,15 @@ public class Types {
      * Return the class that boxes the given primitive.
      */
     public ClassSymbol boxedClass(Type t) {
-        return reader.enterClass(syms.boxedName[t.tag]);
+        return enterClass(syms.boxedName[t.tag]);
+    }
+
+    private ClassSymbol enterClass(Name name) {
+        if (!forked)
+            return reader.enterClass(name);
+        synchronized (completionLock) {
+            return reader.enterClass(name);
+        }
     }
 
     /**
@@ -3152,7 +3319,7 @@ public class Types {
             for (int i=0; i<syms.boxedName.length; i++) {
                 Name box = syms.boxedName[i];
                 if (box != null &&
-                    asSuper(t, reader.enterClass(box)) != null)
+                    asSuper(t, enterClass(box)) != null)
                     return syms.typeOfTag[i];
             }
         }
@@ -1056,7 +1056,7 @@ public class Attr extends JCTree.Visitor {
         }
         JCIdent ident = (JCIdent)tree;
         Name name = ident.name;
-        for (Scope.Entry e = enumType.tsym.members().lookup(name);
+        for (Scope.Entry e = enumType.tsym.members(name).lookup(name);
              e.scope != null; e = e.next()) {
             if (e.sym.kind == VAR) {
                 Symbol s = ident.sym = e.sym;
@@ -253,6 +253,13 @@ public class Check {
      *  @param ex         The failure to report.
      */
     public Type completionError(DiagnosticPosition pos, CompletionFailure ex) {
+        return completionError(log, pos, ex);
+    }
+
+    /** Report a failure to complete a class to the given log, for
+     *  instance the log of a worker thread.
+     */
+    public Type completionError(Log log, DiagnosticPosition pos, CompletionFailure ex) {
         log.error(pos, "cant.access", ex.sym, ex.getDetailValue());
         if (ex instanceof ClassReader.BadClassFile
                 && !suppressAbortOnBadClassFile) throw new Abort();
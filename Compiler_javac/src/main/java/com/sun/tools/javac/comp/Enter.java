@@ -415,7 +415,7 @@ public class Enter extends JCTree.Visitor {
         c.completer = memberEnter;
         c.flags_field = chk.checkFlags(tree.pos(), tree.mods.flags, c, tree);
         c.sourcefile = env.toplevel.sourcefile;
-        c.members_field = new Scope(c);
+        c.members_field = new Scope(c, tree.defs.length());
 
         ClassType ct = (ClassType)c.type;
         if (owner.kind != PCK && (c.flags_field & STATIC) == 0) {
@@ -518,7 +518,7 @@ public class Enter extends JCTree.Visitor {
                 // if there remain any unimported toplevels (these must have
                 // no classes at all), process their import statements as well.
                 for (JCCompilationUnit tree : trees) {
-                    if (tree.starImportScope.elems == null) {
+                    if (!tree.starImportScope.isFilled()) {
                         JavaFileObject prev = log.useSource(tree.sourcefile);
                         Env<AttrContext> topEnv = topLevelEnv(tree);
                         memberEnter.memberEnter(tree, topEnv);
@@ -194,6 +194,12 @@ public class Flow extends TreeScanner {
     private final boolean allowImprovedRethrowAnalysis;
     private final boolean allowImprovedCatchAnalysis;
 
+    /** The lock the shared components are called with by the forks. */
+    private final CompletionLock completionLock;
+
+    /** True if this is a copy made by fork. */
+    private final boolean forked;
+
     public static Flow instance(Context context) {
         Flow instance = context.get(flowKey);
         if (instance == null)
@@ -210,11 +216,41 @@ public class Flow extends TreeScanner {
         chk = Check.instance(context);
         lint = Lint.instance(context);
         rs = Resolve.instance(context);
+        completionLock = CompletionLock.instance(context);
+        forked = false;
         Source source = Source.instance(context);
         allowImprovedRethrowAnalysis = source.allowImprovedRethrowAnalysis();
         allowImprovedCatchAnalysis = source.allowImprovedCatchAnalysis();
     }
 
+    /** Create a flow analyzer sharing the components of another one, but
+     *  with its own state, lint and log.
+     */
+    protected Flow(Flow other, Log log) {
+        names = other.names;
+        this.log = log;
+        syms = other.syms;
+        types = other.types;
+        chk = other.chk;
+        lint = other.lint.fork();
+        rs = other.rs;
+        completionLock = other.completionLock;
+        forked = true;
+        allowImprovedRethrowAnalysis = other.allowImprovedRethrowAnalysis;
+        allowImprovedCatchAnalysis = other.allowImprovedCatchAnalysis;
+    }
+
+    /**
+     * Return a flow analyzer that reports to the given log, and that can
+     * analyze classes on another thread while this one, or other forks,
+     * analyze other classes; see JavaCompiler.CompilePolicy.PARALLEL.
+     * The forks only call the shared Check, Types and Resolve while
+     * holding the CompletionLock.
+     */
+    public Flow fork(Log log) {
+        return new Flow(this, log);
+    }
+
     /** A flag that indicates whether the last statement could
      *  complete normally.
      */
@@ -340,10 +376,10 @@ public class Flow extends TreeScanner {
      *  is caught.
      */
     void markThrown(JCTree tree, Type exc) {
-        if (!chk.isUnchecked(tree.pos(), exc)) {
-            if (!chk.isHandled(exc, caught))
+        if (!isUnchecked(tree.pos(), exc)) {
+            if (!isHandled(exc, caught))
                 pendingExits.append(new PendingExit(tree, exc));
-                thrown = chk.incl(exc, thrown);
+                thrown = incl(exc, thrown);
         }
     }
 
@@ -510,6 +546,120 @@ public class Flow extends TreeScanner {
         uninits = uninitsWhenFalse.andSet(uninitsWhenTrue);
     }
 
+/* ************************************************************************
+ * Access to Check and Types, which are shared with the other forks
+ *************************************************************************/
+
+    boolean isUnchecked(DiagnosticPosition pos, Type exc) {
+        if (!forked)
+            return chk.isUnchecked(pos, exc);
+        synchronized (completionLock) {
+            return chk.isUnchecked(pos, exc);
+        }
+    }
+
+    boolean isHandled(Type exc, List<Type> handled) {
+        if (!forked)
+            return chk.isHandled(exc, handled);
+        synchronized (completionLock) {
+            return chk.isHandled(exc, handled);
+        }
+    }
+
+    boolean subset(Type t, List<Type> ts) {
+        if (!forked)
+            return chk.subset(t, ts);
+        synchronized (completionLock) {
+            return chk.subset(t, ts);
+        }
+    }
+
+    boolean intersects(Type t, List<Type> ts) {
+        if (!forked)
+            return chk.intersects(t, ts);
+        synchronized (completionLock) {
+            return chk.intersects(t, ts);
+        }
+    }
+
+    List<Type> incl(Type t, List<Type> ts) {
+        if (!forked)
+            return chk.incl(t, ts);
+        synchronized (completionLock) {
+            return chk.incl(t, ts);
+        }
+    }
+
+    List<Type> union(List<Type> ts1, List<Type> ts2) {
+        if (!forked)
+            return chk.union(ts1, ts2);
+        synchronized (completionLock) {
+            return chk.union(ts1, ts2);
+        }
+    }
+
+    List<Type> diff(List<Type> ts1, List<Type> ts2) {
+        if (!forked)
+            return chk.diff(ts1, ts2);
+        synchronized (completionLock) {
+            return chk.diff(ts1, ts2);
+        }
+    }
+
+    List<Type> intersect(List<Type> ts1, List<Type> ts2) {
+        if (!forked)
+            return chk.intersect(ts1, ts2);
+        synchronized (completionLock) {
+            return chk.intersect(ts1, ts2);
+        }
+    }
+
+    Type createMethodTypeWithThrown(Type t, List<Type> newThrown) {
+        if (!forked)
+            return types.createMethodTypeWithThrown(t, newThrown);
+        synchronized (completionLock) {
+            return types.createMethodTypeWithThrown(t, newThrown);
+        }
+    }
+
+    /** The exceptions thrown by the close methods of a resource. */
+    List<Type> closeThrownTypes(JCTry tree, Type resourceType) {
+        if (!forked)
+            return closeThrownTypesLocked(tree, resourceType);
+        synchronized (completionLock) {
+            return closeThrownTypesLocked(tree, resourceType);
+        }
+    }
+
+    private List<Type> closeThrownTypesLocked(JCTry tree, Type resourceType) {
+        ListBuffer<Type> thrownTypes = new ListBuffer<Type>();
+        List<Type> closeableSupertypes = resourceType.isCompound() ?
+            types.interfaces(resourceType).prepend(types.supertype(resourceType)) :
+            List.of(resourceType);
+        for (Type sup : closeableSupertypes) {
+            if (types.asSuper(sup, syms.autoCloseableType.tsym) != null) {
+                Symbol closeMethod = rs.resolveQualifiedMethod(tree,
+                        attrEnv,
+                        sup,
+                        names.close,
+                        List.<Type>nil(),
+                        List.<Type>nil());
+                if (closeMethod.kind == MTH) {
+                    thrownTypes.appendList(((MethodSymbol)closeMethod).getThrownTypes());
+                }
+            }
+        }
+        return thrownTypes.toList();
+    }
+
+    boolean isSameType(Type t, Type s) {
+        if (!forked)
+            return types.isSameType(t, s);
+        synchronized (completionLock) {
+            return types.isSameType(t, s);
+        }
+    }
+
 /* ************************************************************************
  * Visitor methods for statements and definitions
  *************************************************************************/
@@ -646,7 +796,7 @@ public class Flow extends TreeScanner {
                             caught = mthrown;
                             firstConstructor = false;
                         } else {
-                            caught = chk.intersect(mthrown, caught);
+                            caught = intersect(mthrown, caught);
                         }
                     }
                 }
@@ -684,10 +834,10 @@ public class Flow extends TreeScanner {
                     if (TreeInfo.isInitialConstructor(l.head)) {
                         JCMethodDecl mdef = (JCMethodDecl)l.head;
                         mdef.thrown = make.Types(thrown);
-                        mdef.sym.type = types.createMethodTypeWithThrown(mdef.sym.type, thrown);
+                        mdef.sym.type = createMethodTypeWithThrown(mdef.sym.type, thrown);
                     }
                 }
-                thrownPrev = chk.union(thrown, thrownPrev);
+                thrownPrev = union(thrown, thrownPrev);
             }
 
             // process all the methods
@@ -738,7 +888,7 @@ public class Flow extends TreeScanner {
                 uninits.excl(def.sym.adr);
             }
             if (isInitialConstructor)
-                caught = chk.union(caught, mthrown);
+                caught = union(caught, mthrown);
             else if ((tree.sym.flags() & (BLOCK | STATIC)) != BLOCK)
                 caught = mthrown;
             // else we are in an instance initializer block;
@@ -816,7 +966,7 @@ public class Flow extends TreeScanner {
             scanCond(tree.cond);
             if (log.nerrors !=  prevErrors ||
                 loopPassTwo ||
-                uninitsEntry.dup().diffSet(uninitsWhenTrue).nextBit(firstadr)==-1)
+                uninitsEntry.diffNextBit(uninitsWhenTrue, firstadr)==-1)
                 break;
             inits = initsWhenTrue;
             uninits = uninitsEntry.andSet(uninitsWhenTrue);
@@ -850,7 +1000,7 @@ public class Flow extends TreeScanner {
             alive |= resolveContinues(tree);
             if (log.nerrors != prevErrors ||
                 loopPassTwo ||
-                uninitsEntry.dup().diffSet(uninits).nextBit(firstadr) == -1)
+                uninitsEntry.diffNextBit(uninits, firstadr) == -1)
                 break;
             uninits = uninitsEntry.andSet(uninits);
             loopPassTwo = true;
@@ -894,7 +1044,7 @@ public class Flow extends TreeScanner {
             scan(tree.step);
             if (log.nerrors != prevErrors ||
                 loopPassTwo ||
-                uninitsEntry.dup().diffSet(uninits).nextBit(firstadr) == -1)
+                uninitsEntry.diffNextBit(uninits, firstadr) == -1)
                 break;
             uninits = uninitsEntry.andSet(uninits);
             loopPassTwo = true;
@@ -928,7 +1078,7 @@ public class Flow extends TreeScanner {
             alive |= resolveContinues(tree);
             if (log.nerrors != prevErrors ||
                 loopPassTwo ||
-                uninitsEntry.dup().diffSet(uninits).nextBit(firstadr) == -1)
+                uninitsEntry.diffNextBit(uninits, firstadr) == -1)
                 break;
             uninits = uninitsEntry.andSet(uninits);
             loopPassTwo = true;
@@ -1007,7 +1157,7 @@ public class Flow extends TreeScanner {
                     ((JCTypeUnion)l.head.param.vartype).alternatives :
                     List.of(l.head.param.vartype);
             for (JCExpression ct : subClauses) {
-                caught = chk.incl(ct.type, caught);
+                caught = incl(ct.type, caught);
             }
         }
         ListBuffer<JCVariableDecl> resourceVarDecls = ListBuffer.lb();
@@ -1029,28 +1179,13 @@ public class Flow extends TreeScanner {
             }
         }
         for (JCTree resource : tree.resources) {
-            List<Type> closeableSupertypes = resource.type.isCompound() ?
-                types.interfaces(resource.type).prepend(types.supertype(resource.type)) :
-                List.of(resource.type);
-            for (Type sup : closeableSupertypes) {
-                if (types.asSuper(sup, syms.autoCloseableType.tsym) != null) {
-                    Symbol closeMethod = rs.resolveQualifiedMethod(tree,
-                            attrEnv,
-                            sup,
-                            names.close,
-                            List.<Type>nil(),
-                            List.<Type>nil());
-                    if (closeMethod.kind == MTH) {
-                        for (Type t : ((MethodSymbol)closeMethod).getThrownTypes()) {
-                            markThrown(resource, t);
-                        }
-                    }
-                }
+            for (Type t : closeThrownTypes(tree, resource.type)) {
+                markThrown(resource, t);
             }
         }
         scanStat(tree.body);
         List<Type> thrownInTry = allowImprovedCatchAnalysis ?
-            chk.union(thrown, List.of(syms.runtimeExceptionType, syms.errorType)) :
+            union(thrown, List.of(syms.runtimeExceptionType, syms.errorType)) :
             thrown;
         thrown = thrownPrev;
         caught = caughtPrev;
@@ -1079,15 +1214,15 @@ public class Flow extends TreeScanner {
                     ((JCTypeUnion)l.head.param.vartype).alternatives :
                     List.of(l.head.param.vartype);
             List<Type> ctypes = List.nil();
-            List<Type> rethrownTypes = chk.diff(thrownInTry, caughtInTry);
+            List<Type> rethrownTypes = diff(thrownInTry, caughtInTry);
             for (JCExpression ct : subClauses) {
                 Type exc = ct.type;
                 if (exc != syms.unknownType) {
                     ctypes = ctypes.append(exc);
-                    if (types.isSameType(exc, syms.objectType))
+                    if (isSameType(exc, syms.objectType))
                         continue;
                     checkCaughtType(l.head.pos(), exc, thrownInTry, caughtInTry);
-                    caughtInTry = chk.incl(exc, caughtInTry);
+                    caughtInTry = incl(exc, caughtInTry);
                 }
             }
             inits = initsTry.dup();
@@ -1095,7 +1230,7 @@ public class Flow extends TreeScanner {
             scan(param);
             inits.incl(param.sym.adr);
             uninits.excl(param.sym.adr);
-            preciseRethrowTypes.put(param.sym, chk.intersect(ctypes, rethrownTypes));
+            preciseRethrowTypes.put(param.sym, intersect(ctypes, rethrownTypes));
             scanStat(l.head.body);
             initsEnd.andSet(inits);
             uninitsEnd.andSet(uninits);
@@ -1114,7 +1249,7 @@ public class Flow extends TreeScanner {
             scanStat(tree.finalizer);
             if (!alive) {
                 // discard exits and exceptions from try and finally
-                thrown = chk.union(thrown, thrownPrev);
+                thrown = union(thrown, thrownPrev);
                 if (!loopPassTwo &&
                     lint.isEnabled(Lint.LintCategory.FINALLY)) {
                     log.warning(Lint.LintCategory.FINALLY,
@@ -1122,8 +1257,8 @@ public class Flow extends TreeScanner {
                             "finally.cannot.complete");
                 }
             } else {
-                thrown = chk.union(thrown, chk.diff(thrownInTry, caughtInTry));
-                thrown = chk.union(thrown, savedThrown);
+                thrown = union(thrown, diff(thrownInTry, caughtInTry));
+                thrown = union(thrown, savedThrown);
                 uninits.andSet(uninitsEnd);
                 // FIX: this doesn't preserve source order of exits in catch
                 // versus finally!
@@ -1139,7 +1274,7 @@ public class Flow extends TreeScanner {
                 alive = aliveEnd;
             }
         } else {
-            thrown = chk.union(thrown, chk.diff(thrownInTry, caughtInTry));
+            thrown = union(thrown, diff(thrownInTry, caughtInTry));
             inits = initsEnd;
             uninits = uninitsEnd;
             alive = aliveEnd;
@@ -1151,19 +1286,19 @@ public class Flow extends TreeScanner {
     }
 
     void checkCaughtType(DiagnosticPosition pos, Type exc, List<Type> thrownInTry, List<Type> caughtInTry) {
-        if (chk.subset(exc, caughtInTry)) {
+        if (subset(exc, caughtInTry)) {
             log.error(pos, "except.already.caught", exc);
-        } else if (!chk.isUnchecked(pos, exc) &&
+        } else if (!isUnchecked(pos, exc) &&
                 !isExceptionOrThrowable(exc) &&
-                !chk.intersects(exc, thrownInTry)) {
+                !intersects(exc, thrownInTry)) {
             log.error(pos, "except.never.thrown.in.try", exc);
         } else if (allowImprovedCatchAnalysis) {
-            List<Type> catchableThrownTypes = chk.intersect(List.of(exc), thrownInTry);
+            List<Type> catchableThrownTypes = intersect(List.of(exc), thrownInTry);
             // 'catchableThrownTypes' cannnot possibly be empty - if 'exc' was an
             // unchecked exception, the result list would not be empty, as the augmented
             // thrown set includes { RuntimeException, Error }; if 'exc' was a checked
             // exception, that would have been covered in the branch above
-            if (chk.diff(catchableThrownTypes, caughtInTry).isEmpty() &&
+            if (diff(catchableThrownTypes, caughtInTry).isEmpty() &&
                     !isExceptionOrThrowable(exc)) {
                 String key = catchableThrownTypes.length() == 1 ?
                         "unreachable.catch" :
@@ -1304,7 +1439,7 @@ public class Flow extends TreeScanner {
                 for (List<Type> l = tree.constructor.type.getThrownTypes();
                      l.nonEmpty();
                      l = l.tail) {
-                    caught = chk.incl(l.head, caught);
+                    caught = incl(l.head, caught);
                 }
             scan(tree.def);
         }
@@ -1409,7 +1544,7 @@ public class Flow extends TreeScanner {
         super.visitTypeCast(tree);
         if (!tree.type.isErroneous()
             && lint.isEnabled(Lint.LintCategory.CAST)
-            && types.isSameType(tree.expr.type, tree.clazz.type)
+            && isSameType(tree.expr.type, tree.clazz.type)
             && !is292targetTypeCast(tree)) {
             log.warning(Lint.LintCategory.CAST,
                     tree.pos(), "redundant.cast", tree.expr.type);
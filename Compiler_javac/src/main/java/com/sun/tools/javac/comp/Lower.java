@@ -83,6 +83,7 @@ public class Lower extends TreeTranslator {
     private final Name classDollar;
     private Types types;
     private boolean debugLower;
+    private boolean widenPrivateAccess;
     private PkgInfo pkginfoOpt;
 
     protected Lower(Context context) {
@@ -108,6 +109,7 @@ public class Lower extends TreeTranslator {
         types = Types.instance(context);
         Options options = Options.instance(context);
         debugLower = options.isSet("debuglower");
+        widenPrivateAccess = options.isSet("widenPrivateAccess");
         pkginfoOpt = PkgInfo.get(options);
     }
 
@@ -989,11 +991,72 @@ public class Lower extends TreeTranslator {
             // private constructor in local class: relax protection
             sym.flags_field &= ~PRIVATE;
             return false;
+        } else if (widenPrivateAccess && canWiden(sym)) {
+            // accessed directly; the class file has it package private
+            sym.flags_field |= WIDENED;
+            return false;
         } else {
             return true;
         }
     }
 
+    /** Can a private member, accessed from another class of the same top
+     *  level class, be written package private so that it needs no access
+     *  methods (-XDwidenPrivateAccess)?  The symbol stays private for the
+     *  rest of the compilation, and the member is marked synthetic, so
+     *  that no other class can be compiled against it.  Being no longer
+     *  private in the class file, it is part of the API digest of
+     *  -XDincremental (see IncrementalBuild.apiDigest), and a change to it
+     *  recompiles the classes that depend on its class.
+     *  Fields, constructors and static methods can.  An instance method
+     *  only can in a final class: otherwise a method of a subclass in the
+     *  same package would override it.  Members that serialization only
+     *  finds when they are private, or inherits when they are not, cannot.
+     *  Nor can the members of a serializable class that declares no
+     *  serialVersionUID, since its default one is computed from the
+     *  modifiers of its members.
+     *  私有成员在源代码中仍然是私有的，只在类文件中放宽。
+     */
+    boolean canWiden(Symbol sym) {
+        if (hasDefaultSerialVersionUID((ClassSymbol)sym.owner))
+            return false;
+        if (sym.kind == VAR)
+            return sym.name != names.serialPersistentFields;
+        if (sym.name == names.writeObject ||
+            sym.name == names.readObject ||
+            sym.name == names.readObjectNoData ||
+            sym.name == names.writeReplace ||
+            sym.name == names.readResolve)
+            return false;
+        return sym.name == names.init ||
+            (sym.flags() & STATIC) != 0 ||
+            (sym.owner.flags() & FINAL) != 0;
+    }
+
+    /** Is c a serializable class whose serialVersionUID serialization
+     *  computes, because it declares no static final long one?  Enums
+     *  always have 0.
+     */
+    boolean hasDefaultSerialVersionUID(ClassSymbol c) {
+        if ((c.flags() & ENUM) != 0)
+            return false;
+        try {
+            syms.serializableType.complete();
+        } catch (CompletionFailure e) {
+            return false;
+        }
+        if (!types.isSubtype(c.type, syms.serializableType))
+            return false;
+        for (Scope.Entry e = c.members().lookup(names.serialVersionUID);
+             e.scope != null; e = e.next()) {
+            if (e.sym.kind == VAR &&
+                (e.sym.flags() & (STATIC | FINAL)) == (STATIC | FINAL) &&
+                e.sym.type.tag == LONG)
+                return false;
+        }
+        return true;
+    }
+
     /** Do we need an access method to reference symbol in other package?
      */
     boolean needsProtectedAccess(Symbol sym, JCTree tree) {
@@ -265,7 +265,7 @@ public class MemberEnter extends JCTree.Visitor implements Completer {
                 for (Type t : types.interfaces(tsym.type))
                     importFrom(t.tsym);
 
-                for (Scope.Entry e = tsym.members().lookup(name);
+                for (Scope.Entry e = tsym.members(name).lookup(name);
                      e.scope != null;
                      e = e.next()) {
                     Symbol sym = e.sym;
@@ -296,7 +296,7 @@ public class MemberEnter extends JCTree.Visitor implements Completer {
                 for (Type t : types.interfaces(tsym.type))
                     importFrom(t.tsym);
 
-                for (Scope.Entry e = tsym.members().lookup(name);
+                for (Scope.Entry e = tsym.members(name).lookup(name);
                      e.scope != null;
                      e = e.next()) {
                     Symbol sym = e.sym;
@@ -494,7 +494,7 @@ public class MemberEnter extends JCTree.Visitor implements Completer {
     }
 
     public void visitTopLevel(JCCompilationUnit tree) {
-        if (tree.starImportScope.elems != null) {
+        if (tree.starImportScope.isFilled()) {
             // we must have already processed this toplevel
             return;
         }
@@ -44,6 +44,7 @@ import com.sun.tools.javac.util.JCDiagnostic.DiagnosticFlag;
 import com.sun.tools.javac.util.JCDiagnostic.DiagnosticType;
 import javax.lang.model.element.ElementVisitor;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 import java.util.HashMap;
@@ -111,6 +112,7 @@ public class Resolve {
         varargsEnabled = source.allowVarargs();
         Options options = Options.instance(context);
         debugResolve = options.isSet("debugresolve");
+        inferenceAttempts = options.isSet("cacheStats") ? new HashMap<JCTree, Integer>() : null;
         Target target = Target.instance(context);
         allowMethodHandles = target.hasMethodHandles();
         polymorphicSignatureScope = new Scope(syms.noSymbol);
@@ -383,20 +385,159 @@ public class Resolve {
         if (instNeeded)
             return polymorphicSignature ?
                 infer.instantiatePolymorphicSignatureInstance(env, site, m.name, (MethodSymbol)m, argtypes) :
-                infer.instantiateMethod(env,
-                                    tvars,
-                                    (MethodType)mt,
-                                    m,
-                                    argtypes,
-                                    allowBoxing,
-                                    useVarargs,
-                                    warn);
+                inferMethod(env,
+                            site,
+                            m,
+                            tvars,
+                            (MethodType)mt,
+                            argtypes,
+                            typeargtypes,
+                            allowBoxing,
+                            useVarargs,
+                            warn);
 
         checkRawArgumentsAcceptable(env, argtypes, mt.getParameterTypes(),
                                 allowBoxing, useVarargs, warn);
         return mt;
     }
 
+    /** Infer the type arguments of a generic method, as part of rawInstantiate.
+     *  Attr.checkMethod instantiates the selected method once more, with the
+     *  same arguments, to collect the unchecked warnings; when it has been
+     *  resolved in the boxing or varargs phase, that is the very same
+     *  inference, so the results of the current resolution are kept in
+     *  inferenceResults together with the warnings they caused.  That is only
+     *  done when no argument is itself an uninferred generic method call,
+     *  since inferring those updates their types, and when the result is
+     *  fully inferred.
+     */
+    private Type inferMethod(Env<AttrContext> env,
+                             Type site,
+                             Symbol m,
+                             List<Type> tvars,
+                             MethodType mt,
+                             List<Type> argtypes,
+                             List<Type> typeargtypes,
+                             boolean allowBoxing,
+                             boolean useVarargs,
+                             Warner warn) throws Infer.InferenceException {
+        InferenceKey key = null;
+        if (warn.getClass() == Warner.class && !containsForAll(argtypes)) {
+            key = new InferenceKey(env, site, m, argtypes, typeargtypes, allowBoxing, useVarargs);
+            Inference prev = inferenceResults.get(key);
+            if (prev != null) {
+                inferenceReused++;
+                prev.replayWarnings(warn);
+                return prev.mtype;
+            }
+        }
+        if (inferenceAttempts != null)
+            countInference(env);
+        Warner warn1 = (key == null) ? warn : new Warner(warn.pos());
+        Type mtype = infer.instantiateMethod(env, tvars, mt, m, argtypes,
+                                             allowBoxing, useVarargs, warn1);
+        if (key != null) {
+            Inference inference = new Inference(mtype, warn1);
+            inference.replayWarnings(warn);
+            if (mtype instanceof MethodType)
+                inferenceResults.put(key, inference);
+        }
+        return mtype;
+    }
+    //where
+        private boolean containsForAll(List<Type> ts) {
+            for (Type t : ts) {
+                if (t.tag == FORALL)
+                    return true;
+            }
+            return false;
+        }
+
+        /** The inferences of the current resolution, see inferMethod. */
+        private final Map<InferenceKey, Inference> inferenceResults = new HashMap<InferenceKey, Inference>();
+
+        /** The number of inferences reused from inferenceResults. */
+        private int inferenceReused;
+
+        /** The number of inferences done for each call, with -XDcacheStats only. */
+        private final Map<JCTree, Integer> inferenceAttempts;
+
+        /** The most inferences done for one call, and where. */
+        private int maxInferenceAttempts;
+        private String maxInferenceSite;
+
+        private void countInference(Env<AttrContext> env) {
+            Integer n = inferenceAttempts.get(env.tree);
+            n = (n == null) ? 1 : n + 1;
+            inferenceAttempts.put(env.tree, n);
+            if (n > maxInferenceAttempts) {
+                maxInferenceAttempts = n;
+                maxInferenceSite = env.toplevel.sourcefile.getName() + ":" +
+                    log.currentSource().getLineNumber(env.tree.pos);
+            }
+        }
+
+        /** The inputs of an inference, compared by identity. */
+        private static class InferenceKey {
+            final Env<AttrContext> env;
+            final Type site;
+            final Symbol m;
+            final List<Type> argtypes;
+            final List<Type> typeargtypes;
+            final boolean allowBoxing;
+            final boolean useVarargs;
+
+            InferenceKey(Env<AttrContext> env, Type site, Symbol m,
+                         List<Type> argtypes, List<Type> typeargtypes,
+                         boolean allowBoxing, boolean useVarargs) {
+                this.env = env;
+                this.site = site;
+                this.m = m;
+                this.argtypes = argtypes;
+                this.typeargtypes = typeargtypes;
+                this.allowBoxing = allowBoxing;
+                this.useVarargs = useVarargs;
+            }
+
+            @Override
+            public int hashCode() {
+                return (System.identityHashCode(env) * 31 + System.identityHashCode(m)) * 31 +
+                    System.identityHashCode(argtypes);
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                if (!(obj instanceof InferenceKey))
+                    return false;
+                InferenceKey k = (InferenceKey)obj;
+                return env == k.env && site == k.site && m == k.m &&
+                    argtypes == k.argtypes && typeargtypes == k.typeargtypes &&
+                    allowBoxing == k.allowBoxing && useVarargs == k.useVarargs;
+            }
+        }
+
+        /** The result of an inference and the warnings it caused. */
+        private static class Inference {
+            final Type mtype;
+            final Warner warnings;
+
+            Inference(Type mtype, Warner warnings) {
+                this.mtype = mtype;
+                this.warnings = warnings;
+            }
+
+            void replayWarnings(Warner warn) {
+                if (warn == warnings)
+                    return;
+                for (Lint.LintCategory lc : Lint.LintCategory.values()) {
+                    if (warnings.hasNonSilentLint(lc))
+                        warn.warn(lc);
+                    if (warnings.hasSilentLint(lc))
+                        warn.silentWarn(lc);
+                }
+            }
+        }
+
     /** Same but returns null instead throwing a NoInstanceException
      */
     Type instantiate(Env<AttrContext> env,
@@ -539,7 +680,7 @@ public class Resolve {
             c = c.type.getUpperBound().tsym;
         Symbol bestSoFar = varNotFound;
         Symbol sym;
-        Scope.Entry e = c.members().lookup(name);
+        Scope.Entry e = c.members(name).lookup(name);
         while (e.scope != null) {
             if (e.sym.kind == VAR && (e.sym.flags_field & SYNTHETIC) == 0) {
                 return isAccessible(env, site, e.sym)
@@ -886,21 +1027,147 @@ public class Resolve {
                       boolean allowBoxing,
                       boolean useVarargs,
                       boolean operator) {
+        FindMethodKey key = findMethodKey(env, site, name, argtypes, typeargtypes,
+                                          allowBoxing, useVarargs, operator);
+        if (key != null) {
+            findMethodLookups++;
+            Symbol sym = findMethodCache.get(key);
+            if (sym != null) {
+                findMethodHits++;
+                return sym;
+            }
+        }
         Symbol bestSoFar = methodNotFound;
-        return findMethod(env,
-                          site,
-                          name,
-                          argtypes,
-                          typeargtypes,
-                          site.tsym.type,
-                          true,
-                          bestSoFar,
-                          allowBoxing,
-                          useVarargs,
-                          operator,
-                          new HashSet<TypeSymbol>());
+        Symbol sym = findMethod(env,
+                                site,
+                                name,
+                                argtypes,
+                                typeargtypes,
+                                site.tsym.type,
+                                true,
+                                bestSoFar,
+                                allowBoxing,
+                                useVarargs,
+                                operator,
+                                new HashSet<TypeSymbol>());
+        if (key != null && sym.kind == MTH)
+            findMethodCache.put(key, sym);
+        return sym;
     }
     // where
+    /** The methods found by findMethod for the calls that findMethodKey
+     *  accepts.  Only successful resolutions are kept, so that errors are
+     *  always reported with all the candidates.
+     */
+    private final Map<FindMethodKey, Symbol> findMethodCache = new HashMap<FindMethodKey, Symbol>();
+
+    /** The number of lookups in findMethodCache, and of those that found a method. */
+    private int findMethodLookups, findMethodHits;
+
+    /** The key of a call in findMethodCache, or null if the result of
+     *  findMethod may depend on more than the key.  That is the case for
+     *  generic sites or argument types, because their type arguments take
+     *  part in applicability, for explicit type arguments, for varargs
+     *  calls, for arguments whose type is still to be inferred, and for
+     *  environments with extra accessibility rules or type variables of
+     *  their own (diamond, see Attr.visitNewClass).
+     */
+    private FindMethodKey findMethodKey(Env<AttrContext> env,
+                                        Type site,
+                                        Name name,
+                                        List<Type> argtypes,
+                                        List<Type> typeargtypes,
+                                        boolean allowBoxing,
+                                        boolean useVarargs,
+                                        boolean operator) {
+        if (useVarargs ||
+            (typeargtypes != null && typeargtypes.nonEmpty()) ||
+            env.info.selectSuper ||
+            env.info.tvars.nonEmpty() ||
+            env.enclClass.sym == null ||
+            env.toplevel.packge != env.enclClass.sym.packge() ||
+            (env.enclMethod != null && (env.enclMethod.mods.flags & ANONCONSTR) != 0) ||
+            !isPlainType(site))
+            return null;
+        Object[] args = new Object[argtypes.length()];
+        int i = 0;
+        for (Type t : argtypes) {
+            if (t.tag == CLASS) {
+                if (!isPlainType(t))
+                    return null;
+                args[i++] = t.tsym;
+            } else if (t.tag < VOID || t.tag == BOT) {
+                args[i++] = t.tag;
+            } else {
+                return null;
+            }
+        }
+        int phase = (allowBoxing ? 1 : 0) | (operator ? 2 : 0);
+        return new FindMethodKey(env.enclClass.sym, site.tsym, name, args, phase);
+    }
+
+    /** Is t a class type without type parameters, neither its own nor
+     *  those of an enclosing class?
+     */
+    private boolean isPlainType(Type t) {
+        return t.tag == CLASS &&
+            !t.isCompound() &&
+            t.tsym.type.allparams().isEmpty();
+    }
+
+    private static class FindMethodKey {
+        /** The class in which the call occurs. */
+        final Symbol location;
+        final Symbol site;
+        final Name name;
+        /** The classes or type tags of the arguments. */
+        final Object[] args;
+        final int phase;
+        final int hash;
+
+        FindMethodKey(Symbol location, Symbol site, Name name, Object[] args, int phase) {
+            this.location = location;
+            this.site = site;
+            this.name = name;
+            this.args = args;
+            this.phase = phase;
+            this.hash = ((location.hashCode() * 31 + site.hashCode()) * 31 +
+                         name.hashCode()) * 31 + Arrays.hashCode(args) + phase;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FindMethodKey))
+                return false;
+            FindMethodKey k = (FindMethodKey)obj;
+            return hash == k.hash &&
+                location == k.location &&
+                site == k.site &&
+                name == k.name &&
+                phase == k.phase &&
+                Arrays.equals(args, k.args);
+        }
+    }
+
+    /** The hit rate of the findMethod cache and the number of inferences,
+     *  printed at the end of the compilation with -XDcacheStats.
+     */
+    public String cacheStatistics() {
+        int attempts = 0;
+        for (int n : inferenceAttempts.values())
+            attempts += n;
+        return "findMethod: " + findMethodHits + "/" + findMethodLookups + " hits"
+            + (findMethodLookups == 0 ? "" : " (" + (findMethodHits * 100L / findMethodLookups) + "%)")
+            + ", inference: " + attempts + " attempts at " + inferenceAttempts.size() + " calls"
+            + (maxInferenceSite == null ? "" : ", at most " + maxInferenceAttempts + " at " + maxInferenceSite)
+            + ", " + inferenceReused + " reused";
+    }
+
     private Symbol findMethod(Env<AttrContext> env,
                               Type site,
                               Name name,
@@ -920,7 +1187,7 @@ public class Resolve {
             if (!seen.add(c)) return bestSoFar;
             if ((c.flags() & (ABSTRACT | INTERFACE | ENUM)) == 0)
                 abstractok = false;
-            for (Scope.Entry e = c.members().lookup(name);
+            for (Scope.Entry e = c.members(name).lookup(name);
                  e.scope != null;
                  e = e.next()) {
                 //- System.out.println(" e " + e.sym);
@@ -1062,7 +1329,7 @@ public class Resolve {
                           TypeSymbol c) {
         Symbol bestSoFar = typeNotFound;
         Symbol sym;
-        Scope.Entry e = c.members().lookup(name);
+        Scope.Entry e = c.members(name).lookup(name);
         while (e.scope != null) {
             if (e.sym.kind == TYP) {
                 return isAccessible(env, site, e.sym)
@@ -1414,6 +1681,7 @@ public class Resolve {
     private Symbol startResolution() {
         wrongMethod.clear();
         wrongMethods.clear();
+        inferenceResults.clear();
         return methodNotFound;
     }
 
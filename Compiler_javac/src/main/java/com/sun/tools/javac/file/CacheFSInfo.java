@@ -25,17 +25,31 @@
 
 package com.sun.tools.javac.file;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Options;
+
+import static com.sun.tools.javac.main.OptionName.*;
 
 /**
  * Caching implementation of FSInfo.
  *
+ * Directory listings and jar class paths are also saved in an index file
+ * (see IndexFile) when the file manager is flushed, and reused by later
+ * compilations with the same class path as long as the directory or jar
+ * file has not been modified since.
+ *
  * <p><b>This is NOT part of any supported API.
  * If you write code that depends on this, you do so at your own risk.
  * This code and its internal interfaces are subject to change or
@@ -49,7 +63,10 @@ public class CacheFSInfo extends FSInfo {
     public static void preRegister(Context context) {
         context.put(FSInfo.class, new Context.Factory<FSInfo>() {
             public FSInfo make(Context c) {
-                FSInfo instance = new CacheFSInfo();
+                CacheFSInfo instance = new CacheFSInfo();
+                Options options = Options.instance(c);
+                instance.indexFile = getIndexFile(options);
+                instance.writeIndex = IndexFile.isEnabled(options, "writezipindexfiles");
                 c.put(FSInfo.class, instance);
                 return instance;
             }
@@ -90,11 +107,93 @@ public class CacheFSInfo extends FSInfo {
         // because the worst that can happen would be to create two identical
         // jar class paths together and have one overwrite the other.
         Entry e = getEntry(file);
-        if (e.jarClassPath == null)
-            e.jarClassPath = super.getJarClassPath(file);
+        if (e.jarClassPath == null) {
+            String key = file.getAbsolutePath();
+            long lastModified = file.lastModified();
+            long length = file.length();
+            Saved saved = getSaved(key);
+            if (saved != null && saved.names != null
+                    && saved.lastModified == lastModified && saved.length == length) {
+                List<File> list = new ArrayList<File>(saved.names.length);
+                for (String name : saved.names)
+                    list.add(new File(name));
+                e.jarClassPath = list;
+                used.put(key, saved);
+            } else {
+                e.jarClassPath = super.getJarClassPath(file);
+                if (isStable(lastModified)) {
+                    String[] names = new String[e.jarClassPath.size()];
+                    for (int i = 0; i < names.length; i++)
+                        names[i] = e.jarClassPath.get(i).getPath();
+                    save(key, new Saved(lastModified, length, names));
+                }
+            }
+        }
         return e.jarClassPath;
     }
 
+    /**
+     * The listing of a directory is kept as long as the directory keeps its
+     * timestamp, which is checked on every call: files may be added while
+     * the file manager is in use, for instance class files generated by
+     * annotation processors into a directory on the class path, which are
+     * looked for in the next round.  A directory modified too recently for
+     * its timestamp to show further changes is listed again every time.
+     */
+    @Override
+    public String[] listDirectory(File dir) {
+        Entry e = getEntry(dir);
+        // read the timestamp first, so that a change made while the
+        // directory is being listed invalidates the listing
+        long lastModified = dir.lastModified();
+        Saved listing = e.listing;
+        if (listing != null && listing.lastModified == lastModified)
+            return listing.names;
+        String key = dir.getAbsolutePath();
+        Saved saved = getSaved(key);
+        if (saved != null && saved.lastModified == lastModified && saved.length == -1) {
+            listing = saved;
+            used.put(key, saved);
+        } else {
+            String[] names = super.listDirectory(dir);
+            if (names == null || !isStable(lastModified))
+                return names;
+            listing = new Saved(lastModified, -1, names);
+            save(key, listing);
+        }
+        e.listing = listing;
+        return listing.names;
+    }
+
+    /**
+     * Write the index file, if anything in it needs to change. Only the
+     * entries used by this compilation are kept.
+     */
+    @Override
+    public synchronized void flush() {
+        if (indexFile == null || !writeIndex || !dirty)
+            return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(used.size());
+            for (Map.Entry<String, Saved> e : used.entrySet()) {
+                Saved saved = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(saved.lastModified);
+                out.writeLong(saved.length);
+                out.writeInt(saved.names.length);
+                for (String name : saved.names)
+                    out.writeUTF(name);
+            }
+            out.flush();
+            if (IndexFile.write(indexFile, INDEX_MAGIC, bytes.toByteArray()))
+                dirty = false;
+        } catch (IOException e) {
+            // the index is only an optimization
+        }
+    }
+
     private Entry getEntry(File file) {
         // don't bother to lock the cache, because it is thread-safe, and
         // because the worst that can happen would be to create two identical
@@ -120,5 +219,100 @@ public class CacheFSInfo extends FSInfo {
         boolean isFile;
         boolean isDirectory;
         List<File> jarClassPath;
+        volatile Saved listing;
+    }
+
+    /** Magic number of file system index files. */
+    private static final int INDEX_MAGIC = 0x4A465349; // "JFSI"
+
+    /**
+     * Changes made within this many milliseconds of being observed may not
+     * be reflected in the file timestamp, so such results are not saved.
+     */
+    private static final long TIMESTAMP_GRANULARITY = 2000;
+
+    /** The index file, or null if results are not being saved. */
+    private File indexFile;
+    private boolean writeIndex;
+
+    /** Results read from the index file; null until first needed. */
+    private Map<String,Saved> saved;
+
+    /** Results to be written to the index file. */
+    private Map<String,Saved> used = new ConcurrentHashMap<String,Saved>();
+
+    private volatile boolean dirty;
+
+    /**
+     * A saved directory listing (length == -1) or jar class path.
+     */
+    private static class Saved {
+        final long lastModified;
+        final long length;
+        final String[] names;
+        Saved(long lastModified, long length, String[] names) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.names = names;
+        }
+    }
+
+    private static boolean isStable(long lastModified) {
+        return lastModified != 0
+                && System.currentTimeMillis() - lastModified > TIMESTAMP_GRANULARITY;
+    }
+
+    private void save(String key, Saved s) {
+        if (indexFile != null) {
+            used.put(key, s);
+            dirty = true;
+        }
+    }
+
+    private synchronized Saved getSaved(String key) {
+        if (indexFile == null)
+            return null;
+        if (saved == null)
+            saved = readIndex(indexFile);
+        return saved.get(key);
+    }
+
+    private static Map<String,Saved> readIndex(File indexFile) {
+        byte[] data = IndexFile.read(indexFile, INDEX_MAGIC);
+        if (data == null)
+            return Collections.emptyMap();
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            Map<String,Saved> map = new ConcurrentHashMap<String,Saved>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long lastModified = in.readLong();
+                long length = in.readLong();
+                String[] names = new String[in.readInt()];
+                for (int j = 0; j < names.length; j++)
+                    names[j] = in.readUTF();
+                map.put(key, new Saved(lastModified, length, names));
+            }
+            return map;
+        } catch (IOException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Get the index file for this compilation. Listings depend on the
+     * class path, so compilations with different class paths use
+     * different index files rather than evicting each other's entries.
+     */
+    private static File getIndexFile(Options options) {
+        String location = IndexFile.getCacheLocation(options);
+        if (location == null)
+            return null;
+        String key = System.getProperty("user.dir")
+                + File.pathSeparator + options.get(CLASSPATH)
+                + File.pathSeparator + options.get(SOURCEPATH)
+                + File.pathSeparator + options.get(BOOTCLASSPATH);
+        return new File(location + "fsinfo-" + Integer.toHexString(key.hashCode()) + ".index");
     }
 }
@@ -62,6 +62,30 @@ public class FSInfo {
         return file.isFile();
     }
 
+    /**
+     * List the contents of a directory, in the order given by
+     * {@link File#listFiles}. The names of subdirectories have a
+     * trailing '/'. The result must not be modified by the caller.
+     * @return the names, or null if the directory cannot be read
+     */
+    public String[] listDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return null;
+        String[] names = new String[files.length];
+        for (int i = 0; i < files.length; i++) {
+            File f = files[i];
+            names[i] = f.isDirectory() ? f.getName() + "/" : f.getName();
+        }
+        return names;
+    }
+
+    /**
+     * Save any information that should outlive this compilation.
+     */
+    public void flush() {
+    }
+
     public List<File> getJarClassPath(File file) throws IOException {
         String parent = file.getParent();
         JarFile jarFile = new JarFile(file);
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import com.sun.tools.javac.util.Options;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.attribute.PosixFilePermission.*;
+
+/**
+ * Support for the index files persisted between compilations to avoid
+ * rescanning the class path. An index file is a fixed header (magic number,
+ * format version, body length and body checksum) followed by the body.
+ * Files are replaced by writing a temporary file and renaming it over the
+ * old one, and any file whose header or checksum does not match is ignored,
+ * so a damaged or partially written index only costs a full scan.
+ *
+ * By default index files are kept in a per-user directory below
+ * "java.io.tmpdir", which only its owner may access (see
+ * isPrivateDirectory); "-XDcachezipindexdir=<directory>" selects another
+ * location, and "-XDusezipindex=false" disables them.
+ *
+ * Every class path gives its own index files, so the directory is pruned:
+ * reading an index file renews its timestamp (at most once a day), and the
+ * first time a compilation writes an index file, it deletes the index
+ * files and leftover temporary files of the directory that have not been
+ * read or written for MAX_UNUSED_DAYS days.  Only files named as the
+ * compiler names them ("fsinfo-<hash>.index", "<jar>-<hash>.index") are
+ * deleted.
+ * 索引目录不会无限增长：超过MAX_UNUSED_DAYS天没有用过的索引文件在写入时删除。
+ *
+ * <p><b>This is NOT part of any supported API.
+ * If you write code that depends on this, you do so at your own risk.
+ * This code and its internal interfaces are subject to change or
+ * deletion without notice.</b>
+ */
+final class IndexFile {
+    static final int VERSION = 2;
+
+    /** Size of the header: magic, version, body length and checksum. */
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+
+    /** Index files not used for this many days are deleted. */
+    static final int MAX_UNUSED_DAYS = 30;
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    /** The names of index files, and of their temporary files. */
+    private static final Pattern INDEX_FILE_NAME =
+        Pattern.compile(".+-[0-9a-f]{1,8}\\.index([0-9]+\\.tmp)?");
+
+    /** Whether this compiler has pruned an index directory yet. */
+    private static volatile boolean pruned;
+
+    private IndexFile() { }
+
+    /**
+     * Read the body of an index file.
+     * @return the body, or null if the file is missing or invalid
+     */
+    static byte[] read(File file, int magic) {
+        if (file == null || !file.isFile())
+            return null;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != magic || in.readInt() != VERSION)
+                return null;
+            int length = in.readInt();
+            long checksum = in.readLong();
+            if (length < 0 || length != file.length() - HEADER_SIZE)
+                return null;
+            byte[] body = new byte[length];
+            in.readFully(body);
+            if (checksum(body, 0, length) != checksum)
+                return null;
+            // keep it from being pruned
+            long now = System.currentTimeMillis();
+            if (now - file.lastModified() > DAY)
+                file.setLastModified(now);
+            return body;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the contents of an index file.
+     * @return true if the new contents are in place
+     */
+    static boolean write(File file, int magic, byte[] body) {
+        if (file == null)
+            return false;
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(file.getName(), ".tmp",
+                                      file.getAbsoluteFile().getParentFile());
+            DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(magic);
+                out.writeInt(VERSION);
+                out.writeInt(body.length);
+                out.writeLong(checksum(body, 0, body.length));
+                out.write(body);
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                // some platforms will not rename over an existing file;
+                // readers validate what they find, so a brief gap is harmless
+                file.delete();
+                if (!tmp.renameTo(file))
+                    return false;
+            }
+            tmp = null;
+            if (!pruned) {
+                pruned = true;
+                prune(file.getAbsoluteFile().getParentFile());
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (tmp != null)
+                tmp.delete();
+        }
+    }
+
+    /**
+     * Delete the index files of a directory that have not been used for
+     * MAX_UNUSED_DAYS days.
+     */
+    static void prune(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        long limit = System.currentTimeMillis() - MAX_UNUSED_DAYS * DAY;
+        for (File f : files) {
+            if (INDEX_FILE_NAME.matcher(f.getName()).matches()
+                    && f.lastModified() < limit && f.isFile())
+                f.delete();
+        }
+    }
+
+    static long checksum(byte[] buf, int off, int len) {
+        CRC32 crc = new CRC32();
+        crc.update(buf, off, len);
+        return crc.getValue();
+    }
+
+    /**
+     * Check whether a default-on index option has been left enabled.
+     */
+    static boolean isEnabled(Options options, String name) {
+        return !"false".equals(options.get(name));
+    }
+
+    /**
+     * Get the directory in which index files are kept, as a path ending
+     * in a file separator, or null if index files should not be used.
+     */
+    static String getCacheLocation(Options options) {
+        if (!isEnabled(options, "usezipindex"))
+            return null;
+
+        File cacheDir = null;
+        String optCacheLoc = options.get("cachezipindexdir");
+        if (optCacheLoc != null && optCacheLoc.length() != 0) {
+            if (optCacheLoc.startsWith("\"")) {
+                if (optCacheLoc.endsWith("\"")) {
+                    optCacheLoc = optCacheLoc.substring(1, optCacheLoc.length() - 1);
+                }
+                else {
+                    optCacheLoc = optCacheLoc.substring(1);
+                }
+            }
+            cacheDir = new File(optCacheLoc);
+        }
+
+        if (cacheDir == null || !cacheDir.exists() || !cacheDir.canWrite()) {
+            String tmpDir = System.getProperty("java.io.tmpdir");
+            if (tmpDir == null)
+                return null;
+            cacheDir = new File(tmpDir, "javac-index-" + System.getProperty("user.name"));
+            if (!isPrivateDirectory(cacheDir) || !cacheDir.canWrite())
+                return null;
+        }
+
+        String location = cacheDir.getPath();
+        if (!location.endsWith("/") && !location.endsWith(File.separator))
+            location += File.separator;
+        return location;
+    }
+
+    /** The permissions that only the owner of a file may have. */
+    private static final Set<PosixFilePermission> OWNER_PERMISSIONS =
+        EnumSet.of(OWNER_READ, OWNER_WRITE, OWNER_EXECUTE);
+
+    /**
+     * Create the given directory, accessible to its owner only, or check
+     * that the one already there is a directory of the current user that
+     * no one else may access.  The directory is in a place where any user
+     * could create it first, and the index files in it are trusted: their
+     * jar Class-Path lists and directory listings change the class path.
+     * @return false if the directory must not be used
+     */
+    static boolean isPrivateDirectory(File dir) {
+        try {
+            Path path = dir.toPath();
+            boolean posix = path.getFileSystem()
+                .supportedFileAttributeViews().contains("posix");
+            if (!Files.exists(path, NOFOLLOW_LINKS)) {
+                // fails if another user has created it in the meantime
+                if (posix)
+                    Files.createDirectory(path,
+                        PosixFilePermissions.asFileAttribute(OWNER_PERMISSIONS));
+                else
+                    Files.createDirectory(path);
+            }
+            if (!Files.isDirectory(path, NOFOLLOW_LINKS))
+                return false;
+            UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+            if (!user.equals(Files.getOwner(path, NOFOLLOW_LINKS)))
+                return false;
+            if (posix) {
+                Set<PosixFilePermission> perms = Files.getPosixFilePermissions(path, NOFOLLOW_LINKS);
+                if (perms.contains(GROUP_WRITE) || perms.contains(OTHERS_WRITE))
+                    return false;
+                // made by an older compiler: no one else can have written
+                // to it, but the listings need not be readable by others
+                if (!OWNER_PERMISSIONS.containsAll(perms))
+                    Files.setPosixFilePermissions(path, OWNER_PERMISSIONS);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        } catch (SecurityException e) {
+            return false;
+        }
+    }
+}
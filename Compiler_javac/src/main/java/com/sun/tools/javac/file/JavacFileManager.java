@@ -78,6 +78,10 @@ import static com.sun.tools.javac.main.OptionName.*;
 public class JavacFileManager extends BaseFileManager implements StandardJavaFileManager {
 
     public static char[] toArray(CharBuffer buffer) {
+        // a buffer that starts its array, as decode() returns them, is
+        // used as it is: compact() would copy it onto itself
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0)
+            return buffer.array();
         if (buffer.hasArray())
             return ((CharBuffer)buffer.compact().flip()).array();
         else
@@ -114,18 +118,23 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
     protected boolean ignoreSymbolFile;
 
     // GoodCode 总之很有新意，我没这么写过代码，学习了
-    protected enum SortFiles implements Comparator<File> {
+    // 比较的是FSInfo.listDirectory返回的名字，子目录名以'/'结尾
+    protected enum SortFiles implements Comparator<String> {
         // FORWARD、REVERSE是俩匿名内部类
         FORWARD {
-            public int compare(File f1, File f2) {
-                return f1.getName().compareTo(f2.getName());
+            public int compare(String n1, String n2) {
+                return stripSlash(n1).compareTo(stripSlash(n2));
             }
         },
         REVERSE {
-            public int compare(File f1, File f2) {
-                return -f1.getName().compareTo(f2.getName());
+            public int compare(String n1, String n2) {
+                return -stripSlash(n1).compareTo(stripSlash(n2));
             }
         };
+
+        private static String stripSlash(String name) {
+            return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+        }
     };
     protected SortFiles sortFiles;
 
@@ -287,16 +296,20 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
         if (!caseMapCheck(d, subdirectory))
             return;
 
-        File[] files = d.listFiles();
-        if (files == null)
+        // subdirectory names have a trailing '/'
+        String[] names = fsInfo.listDirectory(d);
+        if (names == null)
             return;
 
-        if (sortFiles != null)
-            Arrays.sort(files, sortFiles);
+        if (sortFiles != null) {
+            names = names.clone();
+            Arrays.sort(names, sortFiles);
+        }
 
-        for (File f: files) {
-            String fname = f.getName();
-            if (f.isDirectory()) {
+        for (String name: names) {
+            boolean isDir = name.endsWith("/");
+            String fname = isDir ? name.substring(0, name.length() - 1) : name;
+            if (isDir) {
                 if (recurse && SourceVersion.isIdentifier(fname)) {
                     listDirectory(directory,
                                   new RelativeDirectory(subdirectory, fname),
@@ -520,29 +533,8 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
             if (!useOptimizedZip) {
                 zdir = new ZipFile(zipFileName);
             } else {
-                usePreindexedCache = options.isSet("usezipindex");
-                preindexCacheLocation = options.get("java.io.tmpdir");
-                String optCacheLoc = options.get("cachezipindexdir");
-
-                if (optCacheLoc != null && optCacheLoc.length() != 0) {
-                    if (optCacheLoc.startsWith("\"")) {
-                        if (optCacheLoc.endsWith("\"")) {
-                            optCacheLoc = optCacheLoc.substring(1, optCacheLoc.length() - 1);
-                        }
-                        else {
-                            optCacheLoc = optCacheLoc.substring(1);
-                        }
-                    }
-
-                    File cacheDir = new File(optCacheLoc);
-                    if (cacheDir.exists() && cacheDir.canWrite()) {
-                        preindexCacheLocation = optCacheLoc;
-                        if (!preindexCacheLocation.endsWith("/") &&
-                            !preindexCacheLocation.endsWith(File.separator)) {
-                            preindexCacheLocation += File.separator;
-                        }
-                    }
-                }
+                preindexCacheLocation = getIndexCacheLocation();
+                usePreindexedCache = (preindexCacheLocation != null);
             }
 
             if (origZipFileName == zipFileName) {
@@ -554,7 +546,8 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
                                     null,
                                     usePreindexedCache,
                                     preindexCacheLocation,
-                                    options.isSet("writezipindexfiles")));
+                                    IndexFile.isEnabled(options, "writezipindexfiles"),
+                                    mmappedIO));
                 }
             } else {
                 if (!useOptimizedZip) {
@@ -565,7 +558,8 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
                                     symbolFilePrefix,
                                     usePreindexedCache,
                                     preindexCacheLocation,
-                                    options.isSet("writezipindexfiles")));
+                                    IndexFile.isEnabled(options, "writezipindexfiles"),
+                                    mmappedIO));
                 }
             }
         } catch (FileNotFoundException ex) {
@@ -582,10 +576,28 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
         return archive;
     }
 
+    private String indexCacheLocation = null;
+    private boolean indexCacheLocationInited = false;
+
+    private String getIndexCacheLocation() {
+        if (!indexCacheLocationInited) {
+            indexCacheLocation = IndexFile.getCacheLocation(options);
+            indexCacheLocationInited = true;
+        }
+        return indexCacheLocation;
+    }
+
     /** Flush any output resources.
+     *  Index files for archives opened since they were last written
+     *  are saved, so that the next compilation can use them.
      */
     public void flush() {
         contentCache.clear();
+        for (Archive a : archives.values()) {
+            if (a instanceof ZipFileIndexArchive)
+                ((ZipFileIndexArchive) a).writeIndex();
+        }
+        fsInfo.flush();
     }
 
     /**
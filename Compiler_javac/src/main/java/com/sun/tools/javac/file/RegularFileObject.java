@@ -108,16 +108,17 @@ class RegularFileObject extends BaseFileObject {
         // 此外，除非 ignoreEncodingErrors 为 true，否则可能报告一个诊断。 
         CharBuffer cb = fileManager.getCachedContent(this);
         if (cb == null) {
-            InputStream in = new FileInputStream(file);
+            FileInputStream in = new FileInputStream(file);
             try {
-                ByteBuffer bb = fileManager.makeByteBuffer(in);
+                ByteBuffer bb = fileManager.mapByteBuffer(in);
                 JavaFileObject prev = fileManager.log.useSource(this);
                 try {
                     cb = fileManager.decode(bb, ignoreEncodingErrors);
                 } finally {
                     fileManager.log.useSource(prev);
+                    // unmaps a mapped buffer, also if decoding failed
+                    fileManager.recycleByteBuffer(bb);
                 }
-                fileManager.recycleByteBuffer(bb);
                 if (!ignoreEncodingErrors) {
                     fileManager.cache(this, cb);    // 缓存
                 }
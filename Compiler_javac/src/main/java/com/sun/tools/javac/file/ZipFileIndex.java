@@ -26,12 +26,20 @@
 package com.sun.tools.javac.file;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.lang.ref.Reference;
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -54,18 +62,24 @@ import com.sun.tools.javac.file.RelativePath.RelativeFile;
  * It supports invocations where it will serialize an optimized zip index file
  * to disk.
  *
- * In order to use a secondary index file, set "usezipindex" in the Options
- * object when JavacFileManager is invoked. (You can pass "-XDusezipindex" on
- * the command line.)
+ * Secondary index files are used unless "usezipindex" is set to false in
+ * the Options object when JavacFileManager is invoked. (You can pass
+ * "-XDusezipindex=false" on the command line.)
  *
  * Location where to look for/generate optimized zip index files can be
  * provided using "-XDcachezipindexdir=<directory>". If this flag is not
- * provided, the default location is the value of the "java.io.tmpdir" system
- * property.
+ * provided, the default location is a per-user directory below the value
+ * of the "java.io.tmpdir" system property.
  *
- * If "-XDwritezipindexfiles" is specified, there will be new optimized index
- * file created for each archive, used by the compiler for compilation, at the
- * location specified by the "cachezipindexdir" option.
+ * Unless "-XDwritezipindexfiles=false" is specified, a new optimized index
+ * file is written for each archive whose index was missing or out of date
+ * when the file manager is flushed. An index file records the archive's
+ * path, size, timestamp and a checksum of its central directory, and is
+ * only used if all of them still match; see IndexFile for the file format.
+ *
+ * If "-XDmmappedIO" is specified, the zip file is mapped into memory and
+ * both the central directory and the entry data are read from the mapping
+ * rather than through a RandomAccessFile.
  *
  * If system property nonBatchMode option is specified the compiler will use
  * timestamp checking to reindex the zip files if it is needed. In batch mode
@@ -95,11 +109,18 @@ public class ZipFileIndex {
     private Reference<File> absFileRef;
     long zipFileLastModified = NOT_MODIFIED;
     private RandomAccessFile zipRandomFile;
+    private MappedByteBuffer zipMap;
+    private boolean useMappedIO;
     private Entry[] entries;
 
     private boolean readFromIndex = false;
     private File zipIndexFile = null;
     private boolean triedToReadIndex = false;
+    private boolean indexWritten = false;
+    private byte[] indexData;
+    private int indexEntriesStart;
+    long zipFileLength;
+    private long cenChecksum;
     final RelativeDirectory symbolFilePrefix;
     private final int symbolFilePrefixLength;
     private boolean hasPopulatedData = false;
@@ -115,12 +136,18 @@ public class ZipFileIndex {
 
 
     public synchronized boolean isOpen() {
-        return (zipRandomFile != null);
+        return (zipRandomFile != null || zipMap != null);
     }
 
     ZipFileIndex(File zipFile, RelativeDirectory symbolFilePrefix, boolean writeIndex,
             boolean useCache, String cacheLocation) throws IOException {
+        this(zipFile, symbolFilePrefix, writeIndex, useCache, cacheLocation, false);
+    }
+
+    ZipFileIndex(File zipFile, RelativeDirectory symbolFilePrefix, boolean writeIndex,
+            boolean useCache, String cacheLocation, boolean useMappedIO) throws IOException {
         this.zipFile = zipFile;
+        this.useMappedIO = useMappedIO;
         this.symbolFilePrefix = symbolFilePrefix;
         this.symbolFilePrefixLength = (symbolFilePrefix == null ? 0 :
             symbolFilePrefix.getPath().getBytes("UTF-8").length);
@@ -130,6 +157,7 @@ public class ZipFileIndex {
 
         if (zipFile != null) {
             this.zipFileLastModified = zipFile.lastModified();
+            this.zipFileLength = zipFile.length();
         }
 
         // Validate integrity of the zip file
@@ -166,6 +194,7 @@ public class ZipFileIndex {
         boolean isUpToDate = true;
         if (!isUpToDate()) {
             closeFile();
+            zipMap = null;
             isUpToDate = false;
         }
 
@@ -176,19 +205,26 @@ public class ZipFileIndex {
 
         hasPopulatedData = true;
 
-        if (readIndex()) {
-            lastReferenceTimeStamp = System.currentTimeMillis();
-            return;
-        }
-
         directories = Collections.<RelativeDirectory, DirectoryEntry>emptyMap();
         allDirs = Collections.<RelativeDirectory>emptySet();
 
         try {
-            openFile();
-            long totalLength = zipRandomFile.length();
-            ZipDirectory directory = new ZipDirectory(zipRandomFile, 0L, totalLength, this);
-            directory.buildIndex();
+            ZipDirectory directory;
+            if (mapFile()) {
+                directory = new ZipDirectory(zipMap, this);
+            } else {
+                openFile();
+                long totalLength = zipRandomFile.length();
+                directory = new ZipDirectory(zipRandomFile, 0L, totalLength, this);
+            }
+            // the central directory has to be read anyway to validate a
+            // preindexed table, but parsing it is only needed on a miss
+            if (!readIndex(directory)) {
+                readFromIndex = false;
+                indexData = null;
+                indexWritten = false;
+                directory.buildIndex();
+            }
         } finally {
             if (zipRandomFile != null) {
                 closeFile();
@@ -204,6 +240,42 @@ public class ZipFileIndex {
         }
     }
 
+    /**
+     * Map the whole zip file into memory, if mapped I/O was requested.
+     * Archives too large to be addressed by a single buffer silently
+     * fall back to RandomAccessFile access.
+     * @return true if the mapped buffer is available
+     */
+    private boolean mapFile() throws IOException {
+        if (!useMappedIO || zipFile == null)
+            return false;
+        if (zipMap == null) {
+            RandomAccessFile raf = new RandomAccessFile(zipFile, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    useMappedIO = false;
+                    return false;
+                }
+                zipMap = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } finally {
+                // the mapping remains valid after the channel is closed
+                raf.close();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read through a memory mapping from now on, or through the
+     * RandomAccessFile; an index shared through ZipFileIndexCache follows
+     * the option of the compilation that last asked for it.
+     */
+    synchronized void setUseMappedIO(boolean useMappedIO) {
+        this.useMappedIO = useMappedIO;
+    }
+
     private void cleanupState() {
         // Make sure there is a valid but empty index if the file doesn't exist
         entries = Entry.EMPTY_ARRAY;
@@ -215,6 +287,8 @@ public class ZipFileIndex {
     public synchronized void close() {
         writeIndex();
         closeFile();
+        zipMap = null;
+        compressedBufRef = null;
     }
 
     private void closeFile() {
@@ -355,6 +429,8 @@ public class ZipFileIndex {
     }
 
     synchronized byte[] read(Entry entry) throws IOException {
+        if (mapFile())
+            return readMappedBytes(entry, new byte[entry.size]);
         openFile();
         byte[] result = readBytes(entry);
         closeFile();
@@ -370,8 +446,28 @@ public class ZipFileIndex {
 
     synchronized int read(Entry entry, byte[] buffer)
             throws IOException {
-        int result = readBytes(entry, buffer);
-        return  result;
+        if (mapFile()) {
+            readMappedBytes(entry, buffer);
+            return entry.size;
+        }
+        openFile();
+        try {
+            return readBytes(entry, buffer);
+        } finally {
+            closeFile();
+        }
+    }
+
+    /**
+     * Read the contents of an entry into the given buffer, or into a new
+     * array if the buffer is too small to hold the whole entry.
+     * @return the array holding the entry's data, starting at offset 0
+     */
+    synchronized byte[] readInto(Entry entry, byte[] buffer) throws IOException {
+        if (buffer == null || buffer.length < entry.size)
+            buffer = new byte[entry.size];
+        read(entry, buffer);
+        return buffer;
     }
 
     private byte[] readBytes(Entry entry) throws IOException {
@@ -387,7 +483,7 @@ public class ZipFileIndex {
 
         int size = entry.size;
         byte[] buf = new byte[size];
-        if (inflate(cbuf, buf) != size)
+        if (inflate(cbuf, csize, buf, size) != size)
             throw new ZipException("corrupted zip file");
 
         return buf;
@@ -403,7 +499,7 @@ public class ZipFileIndex {
         if (get2ByteLittleEndian(header, 8) == 0) {
             zipRandomFile.skipBytes(get2ByteLittleEndian(header, 26) + get2ByteLittleEndian(header, 28));
             int offset = 0;
-            int size = buffer.length;
+            int size = Math.min(buffer.length, entry.size);
             while (offset < size) {
                 int count = zipRandomFile.read(buffer, offset, size - offset);
                 if (count == -1)
@@ -418,13 +514,55 @@ public class ZipFileIndex {
         zipRandomFile.skipBytes(get2ByteLittleEndian(header, 26) + get2ByteLittleEndian(header, 28));
         zipRandomFile.readFully(cbuf, 0, csize);
 
-        int count = inflate(cbuf, buffer);
+        int count = inflate(cbuf, csize, buffer, Math.min(buffer.length, entry.size));
         if (count == -1)
             throw new ZipException("corrupted zip file");
 
         return entry.size;
     }
 
+    /**
+     * Read the contents of an entry from the mapped zip file. Stored
+     * entries are copied straight out of the mapping; deflated entries
+     * are inflated from a reusable buffer of compressed data.
+     */
+    private byte[] readMappedBytes(Entry entry, byte[] dest) throws IOException {
+        ByteBuffer map = zipMap.duplicate();
+        map.order(ByteOrder.LITTLE_ENDIAN);
+
+        int pos = entry.offset;
+        if (pos < 0 || pos > map.limit() - 30 || map.getInt(pos) != 0x04034b50)
+            throw new ZipException("corrupted zip file");
+        if ((map.getShort(pos + 6) & 1) != 0)
+            throw new ZipException("encrypted zip file"); // offset 6 in the header of the ZipFileEntry
+
+        int start = pos + 30 + (map.getShort(pos + 26) & 0xFFFF) + (map.getShort(pos + 28) & 0xFFFF);
+        int csize = entry.compressedSize;
+        if (csize < 0 || start > map.limit() - csize)
+            throw new ZipException("corrupted zip file");
+        map.position(start);
+
+        int size = Math.min(dest.length, entry.size);
+        // is this compressed - offset 8 in the ZipEntry header
+        if (map.getShort(pos + 8) == 0) {
+            map.get(dest, 0, Math.min(size, csize));
+        } else {
+            byte[] cbuf = getCompressedBuffer(csize);
+            map.get(cbuf, 0, csize);
+            if (inflate(cbuf, csize, dest, size) != size)
+                throw new ZipException("corrupted zip file");
+        }
+        return dest;
+    }
+
+    private SoftReference<byte[]> compressedBufRef;
+    private byte[] getCompressedBuffer(int size) {
+        byte[] cbuf = (compressedBufRef == null ? null : compressedBufRef.get());
+        if (cbuf == null || cbuf.length < size)
+            compressedBufRef = new SoftReference<byte[]>(cbuf = new byte[size]);
+        return cbuf;
+    }
+
     //----------------------------------------------------------------------------
     // Zip utilities
     //----------------------------------------------------------------------------
@@ -441,22 +579,42 @@ public class ZipFileIndex {
     }
 
   /*
-   * Inflate using the java.util.zip.Inflater class
+   * Inflate using the java.util.zip.Inflater class. Inflaters hold native
+   * memory, so a small pool of them is shared by all the indexes instead
+   * of keeping one per archive.
    */
-    private SoftReference<Inflater> inflaterRef;
-    private int inflate(byte[] src, byte[] dest) {
-        Inflater inflater = (inflaterRef == null ? null : inflaterRef.get());
-
-        // construct the inflater object or reuse an existing one
-        if (inflater == null)
-            inflaterRef = new SoftReference<Inflater>(inflater = new Inflater(true));
+    private static final int INFLATER_POOL_SIZE = 8;
+    private static final List<Inflater> inflaterPool = new ArrayList<Inflater>();
+
+    private static Inflater getInflater() {
+        synchronized (inflaterPool) {
+            int n = inflaterPool.size();
+            if (n > 0)
+                return inflaterPool.remove(n - 1);
+        }
+        return new Inflater(true);
+    }
 
+    private static void releaseInflater(Inflater inflater) {
         inflater.reset();
-        inflater.setInput(src);
+        synchronized (inflaterPool) {
+            if (inflaterPool.size() < INFLATER_POOL_SIZE) {
+                inflaterPool.add(inflater);
+                return;
+            }
+        }
+        inflater.end();
+    }
+
+    private int inflate(byte[] src, int srcLen, byte[] dest, int destLen) {
+        Inflater inflater = getInflater();
         try {
-            return inflater.inflate(dest);
+            inflater.setInput(src, 0, srcLen);
+            return inflater.inflate(dest, 0, destLen);
         } catch (DataFormatException ex) {
             return -1;
+        } finally {
+            releaseInflater(inflater);
         }
     }
 
@@ -487,6 +645,7 @@ public class ZipFileIndex {
 
         byte[] zipDir;
         RandomAccessFile zipRandomFile = null;
+        ByteBuffer zipMap = null;
         ZipFileIndex zipFileIndex = null;
 
         public ZipDirectory(RandomAccessFile zipRandomFile, long start, long end, ZipFileIndex index) throws IOException {
@@ -496,11 +655,26 @@ public class ZipFileIndex {
             findCENRecord(start, end);
         }
 
+        public ZipDirectory(ByteBuffer zipMap, ZipFileIndex index) throws IOException {
+            this.zipMap = zipMap.duplicate();
+            this.zipFileIndex = index;
+            hasValidHeader();
+            findCENRecord(0L, zipMap.limit());
+        }
+
         /*
          * the zip entry signature should be at offset 0, otherwise allow the
          * calling logic to take evasive action by throwing ZipFormatException.
          */
         private boolean hasValidHeader() throws IOException {
+            if (zipMap != null) {
+                if (zipMap.limit() >= 4
+                        && zipMap.get(0) == 'P' && zipMap.get(1) == 'K'
+                        && zipMap.get(2) == 0x03 && zipMap.get(3) == 0x04) {
+                    return true;
+                }
+                throw new ZipFormatException("invalid zip magic");
+            }
             final long pos = zipRandomFile.getFilePointer();
             try {
                 if (zipRandomFile.read() == 'P') {
@@ -518,6 +692,22 @@ public class ZipFileIndex {
             throw new ZipFormatException("invalid zip magic");
         }
 
+        /*
+         * Read len bytes at the given position, either from the mapped
+         * buffer or from the random access file.
+         */
+        private void readFully(long pos, byte[] dest, int off, int len) throws IOException {
+            if (zipMap != null) {
+                if (pos < 0 || pos > zipMap.limit() - len)
+                    throw new ZipException("cannot read zip file");
+                zipMap.position((int)pos);
+                zipMap.get(dest, off, len);
+            } else {
+                zipRandomFile.seek(pos);
+                zipRandomFile.readFully(dest, off, len);
+            }
+        }
+
         /*
          * Reads zip file central directory.
          * For more details see readCEN in zip_util.c from the JDK sources.
@@ -534,8 +724,7 @@ public class ZipFileIndex {
                 if (endbufend < endbuflen)
                     endbuflen = (int)endbufend;
                 long endbufpos = endbufend - endbuflen;
-                zipRandomFile.seek(start + endbufpos);
-                zipRandomFile.readFully(endbuf, 0, endbuflen);
+                readFully(start + endbufpos, endbuf, 0, endbuflen);
                 int i = endbuflen - 22;
                 while (i >= 0 &&
                         !(endbuf[i] == 0x50 &&
@@ -557,8 +746,7 @@ public class ZipFileIndex {
                     if (sz < 0 || get2ByteLittleEndian(zipDir, 0) == 0xffff) {
                         throw new ZipFormatException("detected a zip64 archive");
                     }
-                    zipRandomFile.seek(start + sz);
-                    zipRandomFile.readFully(zipDir, 2, zipDir.length - 2);
+                    readFully(start + sz, zipDir, 2, zipDir.length - 2);
                     return;
                 } else {
                     endbufend = endbufpos + 21;
@@ -567,6 +755,14 @@ public class ZipFileIndex {
             throw new ZipException("cannot read zip file");
         }
 
+        /*
+         * Checksum of the central directory, used to validate index files.
+         * Must be called before buildIndex(), which normalizes separators.
+         */
+        long getChecksum() {
+            return IndexFile.checksum(zipDir, 0, zipDir.length);
+        }
+
         private void buildIndex() throws IOException {
             int entryCount = get2ByteLittleEndian(zipDir, 0);
 
@@ -703,7 +899,7 @@ public class ZipFileIndex {
         private boolean zipFileEntriesInited;
         private boolean entriesInited;
 
-        private long writtenOffsetOffset = 0;
+        private int writtenOffsetOffset = 0;
 
         private RelativeDirectory dirName;
 
@@ -790,54 +986,41 @@ public class ZipFileIndex {
                     entries.add(zipFileIndex.entries[i]);
                 }
             } else {
-                File indexFile = zipFileIndex.getIndexFile();
-                if (indexFile != null) {
-                    RandomAccessFile raf = null;
-                    try {
-                        raf = new RandomAccessFile(indexFile, "r");
-                        raf.seek(writtenOffsetOffset);
-
-                        for (int nFiles = 0; nFiles < numEntries; nFiles++) {
-                            // Read the name bytes
-                            int zfieNameBytesLen = raf.readInt();
-                            byte [] zfieNameBytes = new byte[zfieNameBytesLen];
-                            raf.read(zfieNameBytes);
-                            String eName = new String(zfieNameBytes, "UTF-8");
-
-                            // Read isDir
-                            boolean eIsDir = raf.readByte() == (byte)0 ? false : true;
-
-                            // Read offset of bytes in the real Jar/Zip file
-                            int eOffset = raf.readInt();
-
-                            // Read size of the file in the real Jar/Zip file
-                            int eSize = raf.readInt();
-
-                            // Read compressed size of the file in the real Jar/Zip file
-                            int eCsize = raf.readInt();
-
-                            // Read java time stamp of the file in the real Jar/Zip file
-                            long eJavaTimestamp = raf.readLong();
-
-                            Entry rfie = new Entry(dirName, eName);
-                            rfie.isDir = eIsDir;
-                            rfie.offset = eOffset;
-                            rfie.size = eSize;
-                            rfie.compressedSize = eCsize;
-                            rfie.javatime = eJavaTimestamp;
-                            entries.add(rfie);
-                        }
-                    } catch (Throwable t) {
-                        // Do nothing
-                    } finally {
-                        try {
-                            if (raf != null) {
-                                raf.close();
-                            }
-                        } catch (Throwable t) {
-                            // Do nothing
-                        }
+                // the index body has already been validated by readIndex
+                byte[] data = zipFileIndex.indexData;
+                int start = zipFileIndex.indexEntriesStart + writtenOffsetOffset;
+                DataInputStream in = new DataInputStream(
+                        new ByteArrayInputStream(data, start, data.length - start));
+                try {
+                    for (int nFiles = 0; nFiles < numEntries; nFiles++) {
+                        // Read the name
+                        String eName = in.readUTF();
+
+                        // Read isDir
+                        boolean eIsDir = in.readBoolean();
+
+                        // Read offset of bytes in the real Jar/Zip file
+                        int eOffset = in.readInt();
+
+                        // Read size of the file in the real Jar/Zip file
+                        int eSize = in.readInt();
+
+                        // Read compressed size of the file in the real Jar/Zip file
+                        int eCsize = in.readInt();
+
+                        // Read java time stamp of the file in the real Jar/Zip file
+                        long eJavaTimestamp = in.readLong();
+
+                        Entry rfie = new Entry(dirName, eName);
+                        rfie.isDir = eIsDir;
+                        rfie.offset = eOffset;
+                        rfie.size = eSize;
+                        rfie.compressedSize = eCsize;
+                        rfie.javatime = eJavaTimestamp;
+                        entries.add(rfie);
                     }
+                } catch (IOException e) {
+                    // Cannot happen for a validated index
                 }
             }
 
@@ -851,65 +1034,73 @@ public class ZipFileIndex {
         }
     }
 
-    private boolean readIndex() {
+    /** Magic number of zip index files. */
+    private static final int INDEX_MAGIC = 0x4A5A4958; // "JZIX"
+
+    /**
+     * Try to populate the directory table from a preindexed cache file.
+     * The file is only used if it was written for this archive, with the
+     * same symbol file prefix, and the archive's size, timestamp and
+     * central directory checksum are all unchanged.
+     */
+    private boolean readIndex(ZipDirectory directory) {
         if (triedToReadIndex || !usePreindexedCache) {
             return false;
         }
 
-        boolean ret = false;
-        synchronized (this) {
-            triedToReadIndex = true;
-            RandomAccessFile raf = null;
-            try {
-                File indexFileName = getIndexFile();
-                raf = new RandomAccessFile(indexFileName, "r");
+        triedToReadIndex = true;
+        cenChecksum = directory.getChecksum();
 
-                long fileStamp = raf.readLong();
-                if (zipFile.lastModified() != fileStamp) {
-                    ret = false;
-                } else {
-                    directories = new HashMap<RelativeDirectory, DirectoryEntry>();
-                    int numDirs = raf.readInt();
-                    for (int nDirs = 0; nDirs < numDirs; nDirs++) {
-                        int dirNameBytesLen = raf.readInt();
-                        byte [] dirNameBytes = new byte[dirNameBytesLen];
-                        raf.read(dirNameBytes);
-
-                        RelativeDirectory dirNameStr = getRelativeDirectory(new String(dirNameBytes, "UTF-8"));
-                        DirectoryEntry de = new DirectoryEntry(dirNameStr, this);
-                        de.numEntries = raf.readInt();
-                        de.writtenOffsetOffset = raf.readLong();
-                        directories.put(dirNameStr, de);
-                    }
-                    ret = true;
-                    zipFileLastModified = fileStamp;
-                }
-            } catch (Throwable t) {
-                // Do nothing
-            } finally {
-                if (raf != null) {
-                    try {
-                        raf.close();
-                    } catch (Throwable tt) {
-                        // Do nothing
-                    }
-                }
+        byte[] data = IndexFile.read(getIndexFile(), INDEX_MAGIC);
+        if (data == null) {
+            return false;
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (!in.readUTF().equals(getAbsoluteFile().getPath())
+                    || !in.readUTF().equals(getSymbolFilePrefixPath())
+                    || in.readLong() != zipFileLength
+                    || in.readLong() != zipFileLastModified
+                    || in.readLong() != cenChecksum) {
+                return false;
             }
-            if (ret == true) {
-                readFromIndex = true;
+
+            Map<RelativeDirectory, DirectoryEntry> dirs =
+                    new HashMap<RelativeDirectory, DirectoryEntry>();
+            int numDirs = in.readInt();
+            for (int nDirs = 0; nDirs < numDirs; nDirs++) {
+                RelativeDirectory dirName = getRelativeDirectory(in.readUTF());
+                DirectoryEntry de = new DirectoryEntry(dirName, this);
+                de.numEntries = in.readInt();
+                de.writtenOffsetOffset = in.readInt();
+                dirs.put(dirName, de);
             }
-        }
 
-        return ret;
+            int entriesStart = data.length - in.available();
+            for (DirectoryEntry de : dirs.values()) {
+                if (de.numEntries < 0 || de.writtenOffsetOffset < 0
+                        || de.writtenOffsetOffset > data.length - entriesStart) {
+                    return false;
+                }
+            }
+
+            directories = dirs;
+            indexData = data;
+            indexEntriesStart = entriesStart;
+            readFromIndex = true;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
     }
 
     private boolean writeIndex() {
-        boolean ret = false;
-        if (readFromIndex || !usePreindexedCache) {
+        if (readFromIndex || !usePreindexedCache || indexWritten) {
             return true;
         }
 
-        if (!writeIndex) {
+        if (!writeIndex || !hasPopulatedData) {
             return true;
         }
 
@@ -918,101 +1109,49 @@ public class ZipFileIndex {
             return false;
         }
 
-        RandomAccessFile raf = null;
-        long writtenSoFar = 0;
         try {
-            raf = new RandomAccessFile(indexFile, "rw");
-
-            raf.writeLong(zipFileLastModified);
-            writtenSoFar += 8;
-
-            List<DirectoryEntry> directoriesToWrite = new ArrayList<DirectoryEntry>();
-            Map<RelativeDirectory, Long> offsets = new HashMap<RelativeDirectory, Long>();
-            raf.writeInt(directories.keySet().size());
-            writtenSoFar += 4;
-
-            for (RelativeDirectory dirName: directories.keySet()) {
-                DirectoryEntry dirEntry = directories.get(dirName);
-
-                directoriesToWrite.add(dirEntry);
-
-                // Write the dir name bytes
-                byte [] dirNameBytes = dirName.getPath().getBytes("UTF-8");
-                int dirNameBytesLen = dirNameBytes.length;
-                raf.writeInt(dirNameBytesLen);
-                writtenSoFar += 4;
-
-                raf.write(dirNameBytes);
-                writtenSoFar += dirNameBytesLen;
-
-                // Write the number of files in the dir
-                List<Entry> dirEntries = dirEntry.getEntriesAsCollection();
-                raf.writeInt(dirEntries.size());
-                writtenSoFar += 4;
-
-                offsets.put(dirName, new Long(writtenSoFar));
-
-                // Write the offset of the file's data in the dir
-                dirEntry.writtenOffsetOffset = 0L;
-                raf.writeLong(0L);
-                writtenSoFar += 8;
-            }
-
-            for (DirectoryEntry de : directoriesToWrite) {
-                // Fix up the offset in the directory table
-                long currFP = raf.getFilePointer();
-
-                long offsetOffset = offsets.get(de.dirName).longValue();
-                raf.seek(offsetOffset);
-                raf.writeLong(writtenSoFar);
-
-                raf.seek(currFP);
-
-                // Now write each of the files in the DirectoryEntry
-                List<Entry> list = de.getEntriesAsCollection();
-                for (Entry zfie : list) {
-                    // Write the name bytes
-                    byte [] zfieNameBytes = zfie.name.getBytes("UTF-8");
-                    int zfieNameBytesLen = zfieNameBytes.length;
-                    raf.writeInt(zfieNameBytesLen);
-                    writtenSoFar += 4;
-                    raf.write(zfieNameBytes);
-                    writtenSoFar += zfieNameBytesLen;
-
-                    // Write isDir
-                    raf.writeByte(zfie.isDir ? (byte)1 : (byte)0);
-                    writtenSoFar += 1;
-
-                    // Write offset of bytes in the real Jar/Zip file
-                    raf.writeInt(zfie.offset);
-                    writtenSoFar += 4;
-
-                    // Write size of the file in the real Jar/Zip file
-                    raf.writeInt(zfie.size);
-                    writtenSoFar += 4;
-
-                    // Write compressed size of the file in the real Jar/Zip file
-                    raf.writeInt(zfie.compressedSize);
-                    writtenSoFar += 4;
-
-                    // Write java time stamp of the file in the real Jar/Zip file
-                    raf.writeLong(zfie.getLastModified());
-                    writtenSoFar += 8;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+            DataOutputStream entryOut = new DataOutputStream(entryBytes);
+
+            out.writeUTF(getAbsoluteFile().getPath());
+            out.writeUTF(getSymbolFilePrefixPath());
+            out.writeLong(zipFileLength);
+            out.writeLong(zipFileLastModified);
+            out.writeLong(cenChecksum);
+
+            out.writeInt(directories.size());
+            for (Map.Entry<RelativeDirectory, DirectoryEntry> e : directories.entrySet()) {
+                List<Entry> dirEntries = e.getValue().getEntriesAsCollection();
+
+                // Write the dir name, the number of files in the dir and
+                // the offset of the files' data
+                out.writeUTF(e.getKey().getPath());
+                out.writeInt(dirEntries.size());
+                entryOut.flush();
+                out.writeInt(entryBytes.size());
+
+                for (Entry zfie : dirEntries) {
+                    entryOut.writeUTF(zfie.name);
+                    entryOut.writeBoolean(zfie.isDir);
+                    // offset, size and compressed size in the real Jar/Zip file
+                    entryOut.writeInt(zfie.offset);
+                    entryOut.writeInt(zfie.size);
+                    entryOut.writeInt(zfie.compressedSize);
+                    entryOut.writeLong(zfie.getLastModified());
                 }
             }
-        } catch (Throwable t) {
-            // Do nothing
-        } finally {
-            try {
-                if (raf != null) {
-                    raf.close();
-                }
-            } catch(IOException ioe) {
-                // Do nothing
-            }
-        }
 
-        return ret;
+            entryOut.flush();
+            entryBytes.writeTo(out);
+            out.flush();
+
+            indexWritten = IndexFile.write(indexFile, INDEX_MAGIC, bytes.toByteArray());
+            return indexWritten;
+        } catch (IOException e) {
+            return false;
+        }
     }
 
     public boolean writeZipIndex() {
@@ -1027,8 +1166,11 @@ public class ZipFileIndex {
                 return null;
             }
 
+            // different archives may share a name, and the symbol file is
+            // indexed differently depending on its prefix
+            String key = getAbsoluteFile().getPath() + "!" + getSymbolFilePrefixPath();
             zipIndexFile = new File((preindexedCacheLocation == null ? "" : preindexedCacheLocation) +
-                    zipFile.getName() + ".index");
+                    zipFile.getName() + "-" + Integer.toHexString(key.hashCode()) + ".index");
         }
 
         return zipIndexFile;
@@ -1038,6 +1180,10 @@ public class ZipFileIndex {
         return zipFile;
     }
 
+    private String getSymbolFilePrefixPath() {
+        return (symbolFilePrefix == null ? "" : symbolFilePrefix.getPath());
+    }
+
     File getAbsoluteFile() {
         File absFile = (absFileRef == null ? null : absFileRef.get());
         if (absFile == null) {
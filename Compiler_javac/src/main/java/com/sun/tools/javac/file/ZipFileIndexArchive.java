@@ -85,6 +85,11 @@ public class ZipFileIndexArchive implements Archive {
         zfIndex.close();
     }
 
+    /** Save the index of this archive, if it needs to be saved. */
+    public void writeIndex() {
+        zfIndex.writeZipIndex();
+    }
+
     @Override
     public String toString() {
         return "ZipFileIndexArchive[" + zfIndex + "]";
@@ -153,6 +158,17 @@ public class ZipFileIndexArchive implements Archive {
             return inputStream;
         }
 
+        /**
+         * Read the contents of this entry into the given buffer, which is
+         * replaced by a new array if it is too small to hold the whole entry.
+         * Unlike openInputStream(), no intermediate copy of the data is made.
+         * @return the array holding the entry's data, starting at offset 0
+         */
+        public byte[] readContent(byte[] buffer) throws IOException {
+            Assert.checkNonNull(entry); // see constructor
+            return zfIndex.readInto(entry, buffer);
+        }
+
         @Override
         public OutputStream openOutputStream() throws IOException {
             throw new UnsupportedOperationException();
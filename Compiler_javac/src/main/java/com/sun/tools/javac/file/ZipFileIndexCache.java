@@ -94,12 +94,22 @@ public class ZipFileIndexCache {
             RelativeDirectory symbolFilePrefix,
             boolean useCache, String cacheLocation,
             boolean writeIndex) throws IOException {
+        return getZipFileIndex(zipFile, symbolFilePrefix, useCache, cacheLocation,
+                writeIndex, false);
+    }
+
+    public synchronized ZipFileIndex getZipFileIndex(File zipFile,
+            RelativeDirectory symbolFilePrefix,
+            boolean useCache, String cacheLocation,
+            boolean writeIndex, boolean useMappedIO) throws IOException {
         ZipFileIndex zi = getExistingZipIndex(zipFile);
 
         if (zi == null || (zi != null && zipFile.lastModified() != zi.zipFileLastModified)) {
             zi = new ZipFileIndex(zipFile, symbolFilePrefix, writeIndex,
-                    useCache, cacheLocation);
+                    useCache, cacheLocation, useMappedIO);
             map.put(zipFile, zi);
+        } else {
+            zi.setUseMappedIO(useMappedIO);
         }
         return zi;
     }
@@ -33,6 +33,8 @@ import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import javax.lang.model.SourceVersion;
@@ -50,6 +52,7 @@ import com.sun.tools.javac.code.Type.*;
 import com.sun.tools.javac.code.Symbol.*;
 import com.sun.tools.javac.code.Symtab;
 import com.sun.tools.javac.file.BaseFileObject;
+import com.sun.tools.javac.file.ZipFileIndexArchive.ZipFileIndexFileObject;
 import com.sun.tools.javac.util.*;
 import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
 
@@ -120,6 +123,11 @@ public class ClassReader implements Completer {
      */
     public boolean saveParameterNames;
 
+    /** Switch: read the fields and methods of the classes found on the
+     *  class path only when they are looked up; see LazyMembers.
+     */
+    boolean lazyMembers;
+
     /**
      * Switch: cache completion failures unless -XDdev is used
      */
@@ -133,7 +141,7 @@ public class ClassReader implements Completer {
 
     /** The log to use for verbose output
      */
-    final Log log;
+    Log log;
 
     /** The symbol table. */
     Symtab syms;
@@ -145,11 +153,11 @@ public class ClassReader implements Completer {
 
     /** Force a completion failure on this name
      */
-    final Name completionFailureName;
+    Name completionFailureName;
 
     /** Access to files
      */
-    private final JavaFileManager fileManager;
+    private JavaFileManager fileManager;
 
     /** Factory for diagnostics
      */
@@ -170,6 +178,17 @@ public class ClassReader implements Completer {
      */
     private Map<Name, PackageSymbol> packages;
 
+    /** If not null, the classes found on the platform class path are
+     *  recorded here, so that they can be told apart from all others
+     *  when the symbol table is carried over; see retainPlatformClasses.
+     */
+    Set<ClassSymbol> platformClasses;
+
+    /** If lazyMembers is set, the classes found on the class path that
+     *  have not been read yet.
+     */
+    private Set<ClassSymbol> lazyClasses = new HashSet<ClassSymbol>();
+
     /** The current scope where type variables are entered.
      */
     protected Scope typevars;
@@ -199,6 +218,22 @@ public class ClassReader implements Completer {
      */
     int[] poolIdx;
 
+    /** The number of entries in the constant pool of the class file being
+     *  read.  poolIdx and poolObj are kept from one class file to the
+     *  next, and may be longer.
+     */
+    int poolSize;
+
+    /** The length of the class file last read by readClass.
+     */
+    int classFileLength;
+
+    /** If not null, the number of class files and bytes read from each
+     *  directory or archive of the class paths, by name, for -XDcacheStats.
+     *  类路径的每个目录或归档文件读取的类文件数和字节数。
+     */
+    private Map<String, long[]> readCounts;
+
     /** The major version number of the class file being read. */
     int majorVersion;
     /** The minor version number of the class file being read. */
@@ -261,13 +296,22 @@ public class ClassReader implements Completer {
 
         names = Names.instance(context);
         syms = Symtab.instance(context);
+        init(syms, definitive);
+        setContext(context);
+        initAttributeReaders();
+    }
+
+    /** Bind this class reader to a compilation context. This is done
+     *  once on construction, and again when a class reader and its
+     *  symbol table are carried over to a later compilation; see
+     *  PlatformClassCache.
+     */
+    void setContext(Context context) {
         types = Types.instance(context);
         fileManager = context.get(JavaFileManager.class);
         if (fileManager == null)
             throw new AssertionError("FileManager initialization error");
         diagFactory = JCDiagnostic.Factory.instance(context);
-
-        init(syms, definitive);
         log = Log.instance(context);
 
         Options options = Options.instance(context);
@@ -280,6 +324,9 @@ public class ClassReader implements Completer {
         allowAnnotations = source.allowAnnotations();
         allowSimplifiedVarargs = source.allowSimplifiedVarargs();
         saveParameterNames = options.isSet("save-parameter-names");
+        lazyMembers = options.isSet("lazyMembers");
+        lazyClasses.clear();
+        readCounts = options.isSet("cacheStats") ? new LinkedHashMap<String, long[]>() : null;
         cacheCompletionFailure = options.isUnset("dev");
         preferSource = "source".equals(options.get("-Xprefer"));
 
@@ -292,16 +339,22 @@ public class ClassReader implements Completer {
 
         lintClassfile = Lint.instance(context).isEnabled(LintCategory.CLASSFILE);
 
-        initAttributeReaders();
+        currentOwner = null;
+        currentClassFile = null;
+        verbosePath = true;
     }
 
     /** Add member to class unless it is synthetic.
      */
     private void enterMember(ClassSymbol c, Symbol sym) {
-        if ((sym.flags_field & (SYNTHETIC|BRIDGE)) != SYNTHETIC)
+        if (isMember(sym))
             c.members_field.enter(sym);
     }
 
+    private static boolean isMember(Symbol sym) {
+        return (sym.flags_field & (SYNTHETIC|BRIDGE)) != SYNTHETIC;
+    }
+
 /************************************************************************
  * Error Diagnoses
  ***********************************************************************/
@@ -375,37 +428,19 @@ public class ClassReader implements Completer {
     /** Extract a long integer at position bp from buf.
      */
     long getLong(int bp) {
-        DataInputStream bufin =
-            new DataInputStream(new ByteArrayInputStream(buf, bp, 8));
-        try {
-            return bufin.readLong();
-        } catch (IOException e) {
-            throw new AssertionError(e);
-        }
+        return ((long) getInt(bp) << 32) | (getInt(bp + 4) & 0xFFFFFFFFL);
     }
 
     /** Extract a float at position bp from buf.
      */
     float getFloat(int bp) {
-        DataInputStream bufin =
-            new DataInputStream(new ByteArrayInputStream(buf, bp, 4));
-        try {
-            return bufin.readFloat();
-        } catch (IOException e) {
-            throw new AssertionError(e);
-        }
+        return Float.intBitsToFloat(getInt(bp));
     }
 
     /** Extract a double at position bp from buf.
      */
     double getDouble(int bp) {
-        DataInputStream bufin =
-            new DataInputStream(new ByteArrayInputStream(buf, bp, 8));
-        try {
-            return bufin.readDouble();
-        } catch (IOException e) {
-            throw new AssertionError(e);
-        }
+        return Double.longBitsToDouble(getLong(bp));
     }
 
 /************************************************************************
@@ -413,13 +448,22 @@ public class ClassReader implements Completer {
  ***********************************************************************/
 
     /** Index all constant pool entries, writing their start addresses into
-     *  poolIdx.
+     *  poolIdx.  The arrays of the previous class file are reused if they
+     *  are long enough.
      */
     void indexPool() {
-        poolIdx = new int[nextChar()];
-        poolObj = new Object[poolIdx.length];
+        int n = nextChar();
+        if (poolIdx == null || poolIdx.length < n) {
+            poolIdx = new int[n];
+            poolObj = new Object[n];
+        } else {
+            int used = Math.max(n, poolSize);
+            Arrays.fill(poolIdx, 0, used, 0);
+            Arrays.fill(poolObj, 0, used, null);
+        }
+        poolSize = n;
         int i = 1;
-        while (i < poolIdx.length) {
+        while (i < n) {
             poolIdx[i++] = bp;
             byte tag = buf[bp++];
             switch (tag) {
@@ -503,13 +547,13 @@ public class ClassReader implements Completer {
             poolObj[i] = getInt(index + 1);
             break;
         case CONSTANT_Float:
-            poolObj[i] = new Float(getFloat(index + 1));
+            poolObj[i] = Float.valueOf(getFloat(index + 1));
             break;
         case CONSTANT_Long:
-            poolObj[i] = new Long(getLong(index + 1));
+            poolObj[i] = Long.valueOf(getLong(index + 1));
             break;
         case CONSTANT_Double:
-            poolObj[i] = new Double(getDouble(index + 1));
+            poolObj[i] = Double.valueOf(getDouble(index + 1));
             break;
         case CONSTANT_MethodHandle:
             skipBytes(4);
@@ -1166,7 +1210,9 @@ public class ClassReader implements Completer {
         if (c.members_field == null)
             throw badClassFile("bad.enclosing.class", self, c);
 
-        MethodSymbol m = findMethod(nt, c.members_field, self.flags());
+        MethodSymbol m = findMethod(nt,
+                                    nt == null ? c.members_field : c.members(nt.name),
+                                    self.flags());
         if (nt != null && m == null)
             throw badClassFile("bad.enclosing.method", self);
 
@@ -1529,7 +1575,7 @@ public class ClassReader implements Completer {
         MethodSymbol findAccessMethod(Type container, Name name) {
             CompletionFailure failure = null;
             try {
-                for (Scope.Entry e = container.tsym.members().lookup(name);
+                for (Scope.Entry e = container.tsym.members(name).lookup(name);
                      e.scope != null;
                      e = e.next()) {
                     Symbol sym = e.sym;
@@ -1612,7 +1658,7 @@ public class ClassReader implements Completer {
             VarSymbol enumerator = null;
             CompletionFailure failure = null;
             try {
-                for (Scope.Entry e = enumTypeSym.members().lookup(proxy.enumerator);
+                for (Scope.Entry e = enumTypeSym.members(proxy.enumerator).lookup(proxy.enumerator);
                      e.scope != null;
                      e = e.next()) {
                     if (e.sym.kind == VAR) {
@@ -1892,9 +1938,6 @@ public class ClassReader implements Completer {
     void readClass(ClassSymbol c) {
         ClassType ct = (ClassType)c.type;
 
-        // allocate scope for members
-        c.members_field = new Scope(c);
-
         // prepare type variable table
         typevars = typevars.dup(currentOwner);
         if (ct.getEnclosingType().tag == CLASS)
@@ -1920,11 +1963,15 @@ public class ClassReader implements Completer {
         for (int i = 0; i < fieldCount; i++) skipMember();
         char methodCount = nextChar();
         for (int i = 0; i < methodCount; i++) skipMember();
+
+        // allocate scope for members, large enough for the fields and methods
+        c.members_field = new Scope(c, fieldCount + methodCount);
         readClassAttrs(c);
+        classFileLength = bp;
 
         if (readAllOfClassFile) {
-            for (int i = 1; i < poolObj.length; i++) readPool(i);
-            c.pool = new Pool(poolObj.length, poolObj);
+            for (int i = 1; i < poolSize; i++) readPool(i);
+            c.pool = new Pool(poolSize, Arrays.copyOf(poolObj, poolSize));
         }
 
         // reset and read rest of classinfo
@@ -1943,14 +1990,183 @@ public class ClassReader implements Completer {
         if (ct.interfaces_field == null)
             ct.interfaces_field = is.reverse();
 
-        Assert.check(fieldCount == nextChar());
-        for (int i = 0; i < fieldCount; i++) enterMember(c, readField());
-        Assert.check(methodCount == nextChar());
-        for (int i = 0; i < methodCount; i++) enterMember(c, readMethod());
+        if (lazyClasses.remove(c) && !readAllOfClassFile
+                && fieldCount + methodCount > 0) {
+            LazyMembers members = new LazyMembers(fieldCount, methodCount, classFileLength);
+            Assert.check(fieldCount == nextChar());
+            for (int i = 0; i < fieldCount; i++) members.add(i);
+            Assert.check(methodCount == nextChar());
+            for (int i = fieldCount; i < members.names.length; i++) members.add(i);
+            members.index();
+            c.memberCompleter = members;
+        } else {
+            Assert.check(fieldCount == nextChar());
+            for (int i = 0; i < fieldCount; i++) enterMember(c, readField());
+            Assert.check(methodCount == nextChar());
+            for (int i = 0; i < methodCount; i++) enterMember(c, readMethod());
+        }
 
         typevars = typevars.leave();
     }
 
+    /** The fields and methods of a class from the class path that are
+     *  read only when they are needed (-XDlazyMembers).  readClass records
+     *  the name of each member and where it starts in the class file, and
+     *  keeps a copy of the class file and its constant pool; the members
+     *  of a name are read and entered when the name is looked up by
+     *  Resolve, through ClassSymbol.members(Name), and the remaining ones
+     *  all at once when the whole scope is asked for.  In the end the
+     *  members scope holds the same symbols in the same order as if the
+     *  class had been read at once.
+     *  成员的类型、签名和注解都在读取成员时才解析；类文件的错误也要到那时才报告。
+     */
+    private class LazyMembers implements MemberCompleter {
+        final JavaFileObject classfile;
+        final byte[] bytes;
+        final int[] poolIndex;
+        final Object[] poolObjects;
+        final int major;
+        final int minor;
+        final Set<Name> warned;
+        final int fieldCount;
+        /** The name and start of each field, then of each method. */
+        final Name[] names;
+        final int[] starts;
+        /** The members read so far, by position in the class file. */
+        final Symbol[] read;
+        /** Positions of the members by name, as chains through next;
+         *  both hold positions plus one, so that 0 ends a chain.
+         */
+        int[] heads;
+        int[] next;
+        /** Whether some member has been entered before those that
+         *  precede it in the class file.
+         */
+        boolean outOfOrder;
+
+        LazyMembers(int fieldCount, int methodCount, int length) {
+            classfile = currentClassFile;
+            bytes = Arrays.copyOf(buf, length);
+            // poolIdx and poolObj are reused for the next class file
+            poolIndex = Arrays.copyOf(poolIdx, poolSize);
+            poolObjects = Arrays.copyOf(poolObj, poolSize);
+            major = majorVersion;
+            minor = minorVersion;
+            warned = new HashSet<Name>(warnedAttrs);
+            this.fieldCount = fieldCount;
+            names = new Name[fieldCount + methodCount];
+            starts = new int[names.length];
+            read = new Symbol[names.length];
+        }
+
+        /** Record the member at bp and skip it. */
+        void add(int i) {
+            starts[i] = bp;
+            names[i] = readName(getChar(bp + 2));
+            skipMember();
+        }
+
+        void index() {
+            heads = new int[Integer.highestOneBit(names.length) << 1];
+            next = new int[names.length];
+            for (int i = names.length - 1; i >= 0; i--) {
+                int h = names[i].hashCode() & (heads.length - 1);
+                next[i] = heads[h];
+                heads[h] = i + 1;
+            }
+        }
+
+        public void complete(ClassSymbol c, Name name) {
+            if (name == null) {
+                completeAll(c);
+                return;
+            }
+            int h = name.hashCode() & (heads.length - 1);
+            for (int i = heads[h] - 1; i >= 0; i = next[i] - 1) {
+                if (names[i] == name && read[i] == null) {
+                    Symbol sym = readLazily(c, this, i);
+                    enterMember(c, sym);
+                    read[i] = sym;
+                    outOfOrder = true;
+                }
+            }
+        }
+
+        private void completeAll(ClassSymbol c) {
+            Symbol[] all = read.clone();
+            for (int i = 0; i < all.length; i++) {
+                if (all[i] == null)
+                    all[i] = readLazily(c, this, i);
+            }
+            if (outOfOrder) {
+                // The members of a name were all entered together, after
+                // the member classes, so each removal by name takes out
+                // one of them.
+                for (Symbol sym : read) {
+                    if (sym != null && isMember(sym))
+                        c.members_field.remove(sym);
+                }
+            }
+            for (Symbol sym : all)
+                enterMember(c, sym);
+            c.memberCompleter = null;
+        }
+    }
+
+    /** Read member i of a class whose members are read lazily, as
+     *  readClass would have read it.
+     */
+    private Symbol readLazily(ClassSymbol c, LazyMembers members, int i) {
+        byte[] prevBuf = buf;
+        int prevBp = bp;
+        int[] prevPoolIdx = poolIdx;
+        Object[] prevPoolObj = poolObj;
+        int prevMajor = majorVersion;
+        int prevMinor = minorVersion;
+        Set<Name> prevWarnedAttrs = warnedAttrs;
+        Symbol prevOwner = currentOwner;
+        JavaFileObject prevClassFile = currentClassFile;
+        Scope prevTypevars = typevars;
+        boolean prevFilling = filling;
+        boolean prevReadingClassAttr = readingClassAttr;
+        Symbol sym;
+        try {
+            buf = members.bytes;
+            bp = members.starts[i];
+            poolIdx = members.poolIndex;
+            poolObj = members.poolObjects;
+            majorVersion = members.major;
+            minorVersion = members.minor;
+            warnedAttrs = members.warned;
+            currentOwner = c;
+            currentClassFile = members.classfile;
+            typevars = typevars.dup(c);
+            enterTypevars(c);
+            filling = true;
+            readingClassAttr = false;
+            sym = (i < members.fieldCount) ? readField() : readMethod();
+        } finally {
+            buf = prevBuf;
+            bp = prevBp;
+            poolIdx = prevPoolIdx;
+            poolObj = prevPoolObj;
+            majorVersion = prevMajor;
+            minorVersion = prevMinor;
+            warnedAttrs = prevWarnedAttrs;
+            currentOwner = prevOwner;
+            currentClassFile = prevClassFile;
+            // take the type variables out of the shared table again, as
+            // readClass does; unwind scopes a failed signature left open
+            while (typevars != prevTypevars)
+                typevars = typevars.leave();
+            filling = prevFilling;
+            readingClassAttr = prevReadingClassAttr;
+        }
+        if (!filling && !suppressFlush)
+            annotate.flush(); // finish attaching annotations, as complete does
+        return sym;
+    }
+
     /** Read inner class info. For each inner/outer pair allocate a
      *  member class.
      */
@@ -2205,8 +2421,15 @@ public class ClassReader implements Completer {
                     filling = true;
                     try {
                         bp = 0;
-                        buf = readInputStream(buf, classfile.openInputStream());
+                        if (classfile instanceof ZipFileIndexFileObject) {
+                            // read straight from the archive index into buf
+                            buf = ((ZipFileIndexFileObject) classfile).readContent(buf);
+                        } else {
+                            buf = readInputStream(buf, classfile.openInputStream());
+                        }
                         readClassFile(c);
+                        if (readCounts != null)
+                            countRead(classfile, c.flatname);
                         if (!missingTypeVariables.isEmpty() && !foundTypeVariables.isEmpty()) {
                             List<Type> missing = missingTypeVariables;
                             List<Type> found = foundTypeVariables;
@@ -2252,12 +2475,12 @@ public class ClassReader implements Completer {
     // where
         private static byte[] readInputStream(byte[] buf, InputStream s) throws IOException {
             try {
-                buf = ensureCapacity(buf, s.available());
+                buf = ensureCapacity(buf, s.available(), 0);
                 int r = s.read(buf);
                 int bp = 0;
                 while (r != -1) {
                     bp += r;
-                    buf = ensureCapacity(buf, bp);
+                    buf = ensureCapacity(buf, bp, bp);
                     r = s.read(buf, bp, buf.length - bp);
                 }
                 return buf;
@@ -2277,15 +2500,42 @@ public class ClassReader implements Completer {
          * the new buffer will always be greater than the needed and never
          * exactly equal to the needed size or bp. If equal then the read (above)
          * will infinitely loop as buf.length - bp == 0.
+         * Only the first used bytes, those read so far, are copied.
          */
-        private static byte[] ensureCapacity(byte[] buf, int needed) {
+        private static byte[] ensureCapacity(byte[] buf, int needed, int used) {
             if (buf.length <= needed) {
                 byte[] old = buf;
                 buf = new byte[Integer.highestOneBit(needed) << 1];
-                System.arraycopy(old, 0, buf, 0, old.length);
+                System.arraycopy(old, 0, buf, 0, used);
             }
             return buf;
         }
+
+        /** Count a class file read, for readStatistics.
+         */
+        private void countRead(JavaFileObject classfile, Name flatname) {
+            String entry = classPathEntry(classfile, flatname);
+            long[] counts = readCounts.get(entry);
+            if (counts == null)
+                readCounts.put(entry, counts = new long[2]);
+            counts[0]++;
+            counts[1] += classFileLength;
+        }
+
+        /** The directory or archive a class file was found in: the part
+         *  of its name before the entry of an archive, "archive(entry)",
+         *  or before the path of the class in a directory.
+         */
+        private static String classPathEntry(JavaFileObject classfile, Name flatname) {
+            String name = classfile.getName();
+            int paren = name.indexOf('(');
+            if (paren > 0 && name.endsWith(")"))
+                return name.substring(0, paren);
+            String path = flatname.toString().replace('.', File.separatorChar) + ".class";
+            if (name.endsWith(path) && name.length() > path.length())
+                return name.substring(0, name.length() - path.length() - 1);
+            return name;
+        }
         /** Static factory for CompletionFailure objects.
          *  In practice, only one can be used at a time, so we share one
          *  to reduce the expense of allocating new exception objects.
@@ -2310,6 +2560,23 @@ public class ClassReader implements Completer {
             cachedCompletionFailure.setStackTrace(new StackTraceElement[0]);
         }
 
+    /** The number of class files and bytes read in all, and from each
+     *  directory or archive of the class paths, with -XDcacheStats;
+     *  one line each.
+     */
+    public List<String> readStatistics() {
+        ListBuffer<String> lines = new ListBuffer<String>();
+        long classCount = 0;
+        long byteCount = 0;
+        for (Map.Entry<String, long[]> e : readCounts.entrySet()) {
+            long[] counts = e.getValue();
+            lines.append(e.getKey() + ": " + counts[0] + " classes, " + counts[1] + " bytes");
+            classCount += counts[0];
+            byteCount += counts[1];
+        }
+        return lines.toList().prepend(classCount + " classes, " + byteCount + " bytes");
+    }
+
     /** Load a toplevel class with given fully qualified name
      *  The class is entered into `classes' only if load was successful.
      */
@@ -2327,6 +2594,76 @@ public class ClassReader implements Completer {
         return c;
     }
 
+    /** Prepare the symbol table to be carried over to another compilation
+     *  by dropping all classes that did not come from the platform class
+     *  path, together with the packages that no longer hold any class.
+     *  The platform classes are assumed not to refer to any other class.
+     *
+     *  Platform classes that have been completed are kept as they are.
+     *  The others lose their class file, which would belong to the old
+     *  file manager, and are found again when their package is listed:
+     *  every package that has been listed is listed again on first use,
+     *  which also picks up the user classes of the next compilation.
+     *
+     *  @return false if a platform class has been redefined, for instance
+     *          by compiling a source file for it, in which case the symbol
+     *          table cannot be reused
+     */
+    boolean retainPlatformClasses() {
+        Set<Symbol> keptPackages = new HashSet<Symbol>();
+        keptPackages.add(syms.rootPackage);
+        keptPackages.add(syms.unnamedPackage);
+        for (ClassSymbol c : platformClasses) {
+            if (c.sourcefile != null && !(c.sourcefile instanceof SourceFileObject))
+                return false;
+            if (c.classfile != null && c.classfile.getKind() != JavaFileObject.Kind.CLASS)
+                return false;
+            for (Symbol p = c.packge(); p != null && keptPackages.add(p); p = p.owner)
+                ;
+        }
+
+        for (Iterator<ClassSymbol> i = classes.values().iterator(); i.hasNext(); ) {
+            ClassSymbol c = i.next();
+            Symbol top = c;
+            while (top.owner.kind != PCK)
+                top = top.owner;
+            PackageSymbol p = (PackageSymbol)top.owner;
+            boolean kept = platformClasses.contains(top) ||
+                // predefined classes which are missing from the platform
+                (((ClassSymbol)top).classfile == null &&
+                 ((ClassSymbol)top).sourcefile == null &&
+                 keptPackages.contains(p));
+            if (!kept) {
+                i.remove();
+                if (c.owner == p && keptPackages.contains(p)) {
+                    if (p.package_info == c)
+                        p.package_info = null;
+                    else if (p.members_field != null)
+                        p.members_field.remove(c);
+                }
+            } else if (c.completer != null && c.classfile != null) {
+                c.classfile = null;
+                c.flags_field &= ~(CLASS_SEEN | SOURCE_SEEN);
+                if (c.owner == p && p.members_field != null)
+                    p.members_field.remove(c);
+            }
+        }
+
+        for (Iterator<PackageSymbol> i = packages.values().iterator(); i.hasNext(); ) {
+            PackageSymbol p = i.next();
+            if (!keptPackages.contains(p))
+                i.remove();
+            else if (p.completer == null)
+                p.completer = this;
+        }
+        if (syms.unnamedPackage.completer == null)
+            syms.unnamedPackage.completer = this;
+        syms.unnamedPackage.flags_field &= ~EXISTS;
+
+        sourceCompleter = null;
+        return true;
+    }
+
 /************************************************************************
  * Loading Packages
  ***********************************************************************/
@@ -2399,6 +2736,11 @@ public class ClassReader implements Completer {
                 c.classfile = preferredFileObject(file, c.classfile);
         }
         c.flags_field |= seen;
+        if (platformClasses != null && currentLoc == PLATFORM_CLASS_PATH)
+            platformClasses.add(c);
+        if (lazyMembers && currentLoc == CLASS_PATH
+                && kind == JavaFileObject.Kind.CLASS && c.classfile == file)
+            lazyClasses.add(c);
     }
 
     /** Implement policy to choose to derive information from a source
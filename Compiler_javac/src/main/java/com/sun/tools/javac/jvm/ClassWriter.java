@@ -26,6 +26,11 @@
 package com.sun.tools.javac.jvm;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Set;
 import java.util.HashSet;
 
@@ -94,6 +99,10 @@ public class ClassWriter extends ClassFile {
      */
     boolean debugstackmap;
 
+    /** Switch: generate ABIFingerprint attribute.
+     */
+    private boolean abiFingerprint;
+
     /**
      * Target class version.
      */
@@ -183,6 +192,7 @@ public class ClassWriter extends ClassFile {
         retrofit       = options.isSet("-retrofit");
         genCrt         = options.isSet(XJCOV);
         debugstackmap  = options.isSet("debugstackmap");
+        abiFingerprint = options.isSet("abiFingerprint");
 
         emitSourceFile = options.isUnset(G_CUSTOM) ||
                             options.isSet(G_CUSTOM, "source");
@@ -198,6 +208,45 @@ public class ClassWriter extends ClassFile {
             (dumpModFlags != null && dumpModFlags.indexOf('m') != -1);
     }
 
+    /** Create a class writer sharing the settings of another one, but with
+     *  its own buffers, log and types.
+     */
+    private ClassWriter(ClassWriter other, Log log, Types types) {
+        this.log = log;
+        names = other.names;
+        syms = other.syms;
+        options = other.options;
+        target = other.target;
+        source = other.source;
+        this.types = types;
+        fileManager = other.fileManager;
+        verbose = other.verbose;
+        scramble = other.scramble;
+        scrambleAll = other.scrambleAll;
+        retrofit = other.retrofit;
+        genCrt = other.genCrt;
+        debugstackmap = other.debugstackmap;
+        abiFingerprint = other.abiFingerprint;
+        emitSourceFile = other.emitSourceFile;
+        dumpClassModifiers = other.dumpClassModifiers;
+        dumpFieldModifiers = other.dumpFieldModifiers;
+        dumpInnerClassModifiers = other.dumpInnerClassModifiers;
+        dumpMethodModifiers = other.dumpMethodModifiers;
+    }
+
+    /**
+     * Return a class writer that reports to the given log and uses the
+     * given copy of Types (see Types.fork), and that can write classes on
+     * another thread while this one, or other forks, write other classes.
+     * The file manager is not thread-safe, so a fork should only be used
+     * to write classes to a buffer with writeClassFile; the class files are
+     * then written on the thread of this class writer with
+     * writeClass(ClassSymbol, byte[]).
+     */
+    public ClassWriter fork(Log log, Types types) {
+        return new ClassWriter(this, log, types);
+    }
+
 /******************************************************************
  * Diagnostics: dump generated class names and modifiers
  ******************************************************************/
@@ -489,11 +538,11 @@ public class ClassWriter extends ClassFile {
                 poolbuf.appendChar(pool.put(v.owner));
                 poolbuf.appendChar(pool.put(nameType(v)));
             } else if (value instanceof Name) {
+                Name name = (Name)value;
                 poolbuf.appendByte(CONSTANT_Utf8);
-                byte[] bs = ((Name)value).toUtf();
-                poolbuf.appendChar(bs.length);
-                poolbuf.appendBytes(bs, 0, bs.length);
-                if (bs.length > Pool.MAX_STRING_LENGTH)
+                poolbuf.appendChar(name.getByteLength());
+                poolbuf.appendName(name);
+                if (name.getByteLength() > Pool.MAX_STRING_LENGTH)
                     throw new StringOverflow(value.toString());
             } else if (value instanceof ClassSymbol) {
                 ClassSymbol c = (ClassSymbol)value;
@@ -543,6 +592,8 @@ public class ClassWriter extends ClassFile {
     }
 
     /** Given a field, return its name.
+     *  The scrambled names depend on the name indices, which are not
+     *  reproducible with a ConcurrentNameTable filled by several threads.
      */
     Name fieldName(Symbol sym) {
         if (scramble && (sym.flags() & PRIVATE) != 0 ||
@@ -661,7 +712,7 @@ public class ClassWriter extends ClassFile {
      *  return number of attributes written.
      */
     int writeMemberAttrs(Symbol sym) {
-        int acount = writeFlagAttrs(sym.flags());
+        int acount = writeFlagAttrs(memberFlags(sym));
         long flags = sym.flags();
         if (source.allowGenerics() &&
             (flags & (SYNTHETIC|BRIDGE)) != SYNTHETIC &&
@@ -846,6 +897,122 @@ public class ClassWriter extends ClassFile {
             p.snd.accept(awriter);
         }
     }
+/**********************************************************************
+ * Computing the ABI fingerprint
+ **********************************************************************/
+
+    /** Return the ABIFingerprint of a class: a SHA-1 digest over what
+     *  other classes can depend on, namely the flags, supertypes and
+     *  signature of the class, its non-private member classes, and the
+     *  name, flags, descriptor, signature, thrown types, constant value,
+     *  annotations and default value of its non-private, non-synthetic
+     *  fields and methods.  The digest does not depend on the order of
+     *  the members, nor on the code of the methods.
+     */
+    byte[] abiFingerprint(ClassSymbol c) {
+        ArrayList<String> items = new ArrayList<String>();
+        StringBuilder sb = new StringBuilder("class ");
+        sb.append(c.flatname).append(' ').append(abiFlags(c.flags()));
+        List<Type> typarams = c.type.getTypeArguments();
+        if (typarams.nonEmpty()) assembleParamsSig(typarams);
+        Type supertype = types.supertype(c.type);
+        if (supertype.tag == CLASS) assembleSig(supertype);
+        for (List<Type> l = types.interfaces(c.type); l.nonEmpty(); l = l.tail)
+            assembleSig(l.head);
+        sb.append(' ').append(sigString());
+        appendAnnotations(sb, c.getAnnotationMirrors());
+        items.add(sb.toString());
+
+        for (Scope.Entry e = c.members().elems; e != null; e = e.sibling) {
+            Symbol sym = e.sym;
+            if ((sym.flags() & (PRIVATE | SYNTHETIC | HYPOTHETICAL)) != 0)
+                continue;
+            sb.setLength(0);
+            switch (sym.kind) {
+            case TYP:
+                sb.append("class ").append(((ClassSymbol)sym).flatname);
+                sb.append(' ').append(abiFlags(sym.flags()));
+                break;
+            case VAR: {
+                VarSymbol v = (VarSymbol)sym;
+                sb.append("field ").append(fieldName(v));
+                sb.append(' ').append(abiFlags(v.flags()));
+                assembleSig(v.erasure(types));
+                sb.append(' ').append(sigString());
+                assembleSig(v.type);
+                sb.append(' ').append(sigString());
+                if (v.getConstValue() != null)
+                    sb.append(" = ").append(v.getConstValue());
+                appendAnnotations(sb, v.getAnnotationMirrors());
+                break;
+            }
+            case MTH: {
+                MethodSymbol m = (MethodSymbol)sym;
+                sb.append("method ").append(fieldName(m));
+                sb.append(' ').append(abiFlags(m.flags()));
+                assembleSig(m.externalType(types));
+                sb.append(' ').append(sigString());
+                assembleSig(m.type);
+                sb.append(' ').append(sigString());
+                for (List<Type> l = m.erasure(types).getThrownTypes(); l.nonEmpty(); l = l.tail)
+                    sb.append(" throws ").append(l.head.tsym.flatName());
+                if (m.defaultValue != null)
+                    sb.append(" default ").append(m.defaultValue);
+                appendAnnotations(sb, m.getAnnotationMirrors());
+                if (m.params != null) {
+                    for (VarSymbol p : m.params) {
+                        sb.append(" (");
+                        appendAnnotations(sb, p.getAnnotationMirrors());
+                        sb.append(')');
+                    }
+                }
+                break;
+            }
+            default:
+                Assert.error();
+            }
+            items.add(sb.toString());
+        }
+
+        Collections.sort(items);
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            for (String item : items) {
+                md.update(item.getBytes("UTF-8"));
+                md.update((byte)'\n');
+            }
+            return md.digest();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new AssertionError(ex);
+        } catch (UnsupportedEncodingException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+    //where
+        /** The flags that matter to other classes, as written to the
+         *  class file, with the access flags of member classes.
+         */
+        private int abiFlags(long flags) {
+            return adjustFlags(flags) & (0xFFFF | DEPRECATED);
+        }
+
+        /** Return the signature assembled in sigbuf, and reset sigbuf.
+         */
+        private String sigString() {
+            String s = Convert.utf2string(sigbuf.elems, 0, sigbuf.length);
+            sigbuf.reset();
+            return s;
+        }
+
+        /** Append the annotations that are written to the class file.
+         */
+        private void appendAnnotations(StringBuilder sb, List<Attribute.Compound> attrs) {
+            for (Attribute.Compound a : attrs) {
+                if (types.getRetention(a) != RetentionPolicy.SOURCE)
+                    sb.append(' ').append(a);
+            }
+        }
+
 /**********************************************************************
  * Writing Objects
  **********************************************************************/
@@ -909,7 +1076,7 @@ public class ClassWriter extends ClassFile {
     /** Write field symbol, entering all references into constant pool.
      */
     void writeField(VarSymbol v) {
-        int flags = adjustFlags(v.flags());
+        int flags = adjustFlags(memberFlags(v));
         databuf.appendChar(flags);
         if (dumpFieldModifiers) {
             log.errWriter.println("FIELD  " + fieldName(v));
@@ -932,7 +1099,7 @@ public class ClassWriter extends ClassFile {
     /** Write method symbol, entering all references into constant pool.
      */
     void writeMethod(MethodSymbol m) {
-        int flags = adjustFlags(m.flags());
+        int flags = adjustFlags(memberFlags(m));
         databuf.appendChar(flags);
         if (dumpMethodModifiers) {
             log.errWriter.println("METHOD  " + fieldName(m));
@@ -1462,6 +1629,35 @@ public class ClassWriter extends ClassFile {
         return outFile; // may be null if write failed
     }
 
+    /** Emit a class file whose contents have already been produced by
+     *  writeClassFile, for instance by a fork on another thread.
+     *  @param c      The class the class file is for.
+     *  @param bytes  The contents of the class file.
+     */
+    public JavaFileObject writeClass(ClassSymbol c, byte[] bytes) throws IOException {
+        JavaFileObject outFile
+            = fileManager.getJavaFileForOutput(CLASS_OUTPUT,
+                                               c.flatname.toString(),
+                                               JavaFileObject.Kind.CLASS,
+                                               c.sourcefile);
+        OutputStream out = outFile.openOutputStream();
+        try {
+            out.write(bytes);
+            if (verbose)
+                log.printVerbose("wrote.file", outFile);
+            out.close();
+            out = null;
+        } finally {
+            if (out != null) {
+                // if we are propogating an exception, delete the file
+                out.close();
+                outFile.delete();
+                outFile = null;
+            }
+        }
+        return outFile; // may be null if write failed
+    }
+
     /** Write class `c' to outstream `out'.
      */
     public void writeClassFile(OutputStream out, ClassSymbol c)
@@ -1560,6 +1756,14 @@ public class ClassWriter extends ClassFile {
         acount += writeJavaAnnotations(c.getAnnotationMirrors());
         acount += writeEnclosingMethodAttribute(c);
 
+        if (abiFingerprint) {
+            byte[] fingerprint = abiFingerprint(c);
+            int alenIdx = writeAttr(names.ABIFingerprint);
+            databuf.appendBytes(fingerprint, 0, fingerprint.length);
+            endAttr(alenIdx);
+            acount++;
+        }
+
         poolbuf.appendInt(JAVA_MAGIC);
         poolbuf.appendChar(target.minorVersion);
         poolbuf.appendChar(target.majorVersion);
@@ -1572,12 +1776,42 @@ public class ClassWriter extends ClassFile {
         }
         endAttrs(acountIdx, acount);
 
-        poolbuf.appendBytes(databuf.elems, 0, databuf.length);
-        out.write(poolbuf.elems, 0, poolbuf.length);
+        writeBuffers(out);
 
         pool = c.pool = null; // to conserve space
      }
 
+    /** Write the class file assembled in poolbuf (the header and the
+     *  constant pool) and databuf (the rest) to `out', without copying
+     *  databuf to the end of poolbuf.  Class files are written with a
+     *  single gathering write.  The buffers are kept for the next class.
+     */
+    void writeBuffers(OutputStream out) throws IOException {
+        if (out instanceof FileOutputStream) {
+            FileChannel channel = ((FileOutputStream)out).getChannel();
+            java.nio.ByteBuffer[] bufs = {
+                java.nio.ByteBuffer.wrap(poolbuf.elems, 0, poolbuf.length),
+                java.nio.ByteBuffer.wrap(databuf.elems, 0, databuf.length)
+            };
+            long remaining = poolbuf.length + databuf.length;
+            while (remaining > 0)
+                remaining -= channel.write(bufs);
+        } else {
+            out.write(poolbuf.elems, 0, poolbuf.length);
+            out.write(databuf.elems, 0, databuf.length);
+        }
+    }
+
+    /** The flags of a field or method, as written: a private member
+     *  that Lower has widened is package private and synthetic.
+     */
+    long memberFlags(Symbol sym) {
+        long flags = sym.flags();
+        if ((flags & WIDENED) != 0)
+            flags = (flags & ~PRIVATE) | SYNTHETIC;
+        return flags;
+    }
+
     int adjustFlags(final long flags) {
         int result = (int)flags;
         if ((flags & SYNTHETIC) != 0  && !target.useSyntheticFlag())
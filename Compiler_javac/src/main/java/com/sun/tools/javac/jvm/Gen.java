@@ -70,6 +70,7 @@ public class Gen extends JCTree.Visitor {
     private final Type stringBufferType;
     private final Map<Type,Symbol> stringBufferAppend;
     private Name accessDollar;
+    private final Name concat;
     private final Types types;
 
     /** Switch: GJ mode?
@@ -104,6 +105,8 @@ public class Gen extends JCTree.Visitor {
         make = TreeMaker.instance(context);
         target = Target.instance(context);
         types = Types.instance(context);
+        completionLock = CompletionLock.instance(context);
+        forked = false;
         methodType = new MethodType(null, null, null, syms.methodClass);
         allowGenerics = Source.instance(context).allowGenerics();
         stringBufferType = target.useStringBuilder()
@@ -112,6 +115,7 @@ public class Gen extends JCTree.Visitor {
         stringBufferAppend = new HashMap<Type,Symbol>();
         accessDollar = names.
             fromString("access" + target.syntheticNameChar());
+        concat = names.fromString("concat");
 
         Options options = Options.instance(context);
         lineDebugInfo =
@@ -123,6 +127,8 @@ public class Gen extends JCTree.Visitor {
             : options.isSet(G_CUSTOM, "vars");
         genCrt = options.isSet(XJCOV);
         debugCode = options.isSet("debugcode");
+        optimizeConcat = options.isSet("optimizeConcat");
+        clusterSwitches = options.isSet("clusterSwitches");
         allowInvokedynamic = target.hasInvokedynamic() || options.isSet("invokedynamic");
 
         generateIproxies =
@@ -154,6 +160,51 @@ public class Gen extends JCTree.Visitor {
         this.useJsrLocally = false; // reset in visitTry
     }
 
+    /** Create a code generator sharing the settings of another one, but
+     *  with its own state, constant pool, log and types.
+     */
+    protected Gen(Gen other, Log log, Types types) {
+        names = other.names;
+        this.log = log;
+        syms = other.syms;
+        chk = other.chk;
+        rs = other.rs;
+        make = other.make.forToplevel(null);
+        target = other.target;
+        this.types = types;
+        completionLock = other.completionLock;
+        forked = true;
+        methodType = new MethodType(null, null, null, syms.methodClass);
+        allowGenerics = other.allowGenerics;
+        stringBufferType = other.stringBufferType;
+        stringBufferAppend = new HashMap<Type,Symbol>();
+        accessDollar = other.accessDollar;
+        concat = other.concat;
+        lineDebugInfo = other.lineDebugInfo;
+        varDebugInfo = other.varDebugInfo;
+        genCrt = other.genCrt;
+        debugCode = other.debugCode;
+        optimizeConcat = other.optimizeConcat;
+        clusterSwitches = other.clusterSwitches;
+        allowInvokedynamic = other.allowInvokedynamic;
+        generateIproxies = other.generateIproxies;
+        stackMap = other.stackMap;
+        jsrlimit = other.jsrlimit;
+        useJsrLocally = false;
+    }
+
+    /**
+     * Return a code generator that reports to the given log and uses the
+     * given copy of Types (see Types.fork), and that can generate classes
+     * on another thread while this one, or other forks, generate other
+     * classes; see JavaCompiler.CompilePolicy.PARALLEL.
+     * The forks only call the shared Check and Resolve while holding
+     * the CompletionLock.
+     */
+    public Gen fork(Log log, Types types) {
+        return new Gen(this, log, types);
+    }
+
     /** Switches
      */
     private final boolean lineDebugInfo;
@@ -162,6 +213,24 @@ public class Gen extends JCTree.Visitor {
     private final boolean debugCode;
     private final boolean allowInvokedynamic;
 
+    /** Switch: generate string concatenations with a presized buffer,
+     *  merged constant operands and, where it is safe, String.concat
+     *  (-XDoptimizeConcat)?  See genConcat.
+     */
+    private final boolean optimizeConcat;
+
+    /** The lock the shared components are called with by the forks. */
+    private final CompletionLock completionLock;
+
+    /** True if this is a copy made by fork. */
+    private final boolean forked;
+
+    /** Switch: split the labels of a switch that would need a lookupswitch
+     *  into clusters, each with its own tableswitch or lookupswitch
+     *  (-XDclusterSwitches)?  See genClusteredSwitch.
+     */
+    private final boolean clusterSwitches;
+
     /** Default limit of (approximate) size of finalizer to inline.
      *  Zero means always use jsr.  100 or greater means never use
      *  jsr.
@@ -274,7 +343,7 @@ public class Gen extends JCTree.Visitor {
             return sym;
         }
         if (!target.obeyBinaryCompatibility())
-            return rs.isAccessible(attrEnv, (TypeSymbol)sym.owner)
+            return isAccessible((TypeSymbol)sym.owner)
                 ? sym
                 : sym.clone(site.tsym);
 
@@ -350,12 +419,44 @@ public class Gen extends JCTree.Visitor {
     void callMethod(DiagnosticPosition pos,
                     Type site, Name name, List<Type> argtypes,
                     boolean isStatic) {
-        Symbol msym = rs.
-            resolveInternalMethod(pos, attrEnv, site, name, argtypes, null);
+        Symbol msym = resolveInternalMethod(pos, site, name, argtypes);
         if (isStatic) items.makeStaticItem(msym).invoke();
         else items.makeMemberItem(msym, name == names.init).invoke();
     }
 
+    /* Resolve and Check are shared with the forks of this generator, see
+     * fork; the forks only call them while holding the CompletionLock.
+     */
+
+    private Symbol resolveInternalMethod(DiagnosticPosition pos,
+                                         Type site, Name name, List<Type> argtypes) {
+        if (!forked)
+            return rs.resolveInternalMethod(pos, attrEnv, site, name, argtypes, null);
+        synchronized (completionLock) {
+            return rs.resolveInternalMethod(pos, attrEnv, site, name, argtypes, null);
+        }
+    }
+
+    private boolean isAccessible(TypeSymbol c) {
+        if (!forked)
+            return rs.isAccessible(attrEnv, c);
+        synchronized (completionLock) {
+            return rs.isAccessible(attrEnv, c);
+        }
+    }
+
+    private void completionError(DiagnosticPosition pos, CompletionFailure ex) {
+        chk.completionError(log, pos, ex);
+    }
+
+    private List<Type> intersect(List<Type> ts1, List<Type> ts2) {
+        if (!forked)
+            return chk.intersect(ts1, ts2);
+        synchronized (completionLock) {
+            return chk.intersect(ts1, ts2);
+        }
+    }
+
     /** Is the given method definition an access method
      *  resulting from a qualified super? This is signified by an odd
      *  access code.
@@ -654,7 +755,7 @@ public class Gen extends JCTree.Visitor {
                                       MethodSymbol im) {
         MethodType pmt = (MethodType)pm.type;
         Type imt = types.memberType(c.type, im);
-        pmt.thrown = chk.intersect(pmt.getThrownTypes(), imt.getThrownTypes());
+        pmt.thrown = intersect(pmt.getThrownTypes(), imt.getThrownTypes());
     }
 
 /* ************************************************************************
@@ -684,7 +785,7 @@ public class Gen extends JCTree.Visitor {
             this.env = env;
             tree.accept(this);
         } catch (CompletionFailure ex) {
-            chk.completionError(tree.pos(), ex);
+            completionError(tree.pos(), ex);
         } finally {
             this.env = prevEnv;
         }
@@ -839,7 +940,7 @@ public class Gen extends JCTree.Visitor {
             }
             return result.coerce(pt);
         } catch (CompletionFailure ex) {
-            chk.completionError(tree.pos(), ex);
+            completionError(tree.pos(), ex);
             code.state.stacksize = 1;
             return items.makeStackItem(pt);
         } finally {
@@ -1168,6 +1269,12 @@ public class Gen extends JCTree.Visitor {
                 ?
                 tableswitch : lookupswitch;
 
+            if (opcode == lookupswitch && clusterSwitches &&
+                genClusteredSwitch(cases, switchEnv, labels, nlabels, defaultIndex)) {
+                code.endScopes(limit);
+                return;
+            }
+
             int startpc = code.curPc();    // the position of the selector operation
             code.emitop0(opcode);
             code.align(4);
@@ -1274,6 +1381,165 @@ public class Gen extends JCTree.Visitor {
             if (i < hi) qsort2(keys, values, i, hi);
         }
 
+        /** Generate a switch whose labels fall into more than one cluster
+         *  (see clusterLabels): the selector, on tos, is compared with the
+         *  smallest label of the middle cluster, and so on, down to a
+         *  tableswitch or lookupswitch for one cluster, whose default is
+         *  that of the switch.  The cases follow, as for one instruction.
+         *  Return false, without generating anything, if there is only one
+         *  cluster.
+         *  @param cases         The cases of the switch.
+         *  @param switchEnv     The environment of the switch.
+         *  @param labels        The label of each case.
+         *  @param nlabels       The number of labels.
+         *  @param defaultIndex  The index of the default case, or -1.
+         */
+        boolean genClusteredSwitch(List<JCCase> cases, Env<GenContext> switchEnv,
+                                   int[] labels, int nlabels, int defaultIndex) {
+            // The labels in ascending order, with the indices of their cases.
+            int[] keys = new int[nlabels];
+            int[] caseIndex = new int[nlabels];
+            for (int i = 0, k = 0; i < labels.length; i++) {
+                if (i != defaultIndex) {
+                    keys[k] = labels[i];
+                    caseIndex[k] = i;
+                    k++;
+                }
+            }
+            qsort2(keys, caseIndex, 0, nlabels - 1);
+            List<SwitchCluster> clusters = clusterLabels(keys);
+            if (clusters.tail.isEmpty())
+                return false;
+            SwitchCluster[] cs = clusters.toArray(new SwitchCluster[clusters.length()]);
+            Code.State stateSwitch = genSwitchDispatch(keys, cs, 0, cs.length - 1);
+            code.markDead();
+
+            // Generate code for the statements of each case.
+            int[] casePc = new int[labels.length];
+            List<JCCase> l = cases;
+            for (int i = 0; i < labels.length; i++) {
+                casePc[i] = code.entryPoint(stateSwitch);
+                genStats(l.head.stats, switchEnv, CRT_FLOW_TARGET);
+                l = l.tail;
+            }
+
+            // Resolve all breaks.
+            code.resolve(switchEnv.info.exit);
+
+            int defaultPc = (defaultIndex >= 0)
+                ? casePc[defaultIndex]
+                : code.entryPoint(stateSwitch);
+            for (SwitchCluster c : cs) {
+                int defaultOffset = defaultPc - c.startpc;
+                code.put4(c.tableBase, defaultOffset);
+                if (c.opcode == tableswitch) {
+                    int lo = keys[c.from];
+                    for (long k = lo; k <= keys[c.to - 1]; k++)
+                        code.put4((int)(c.tableBase + 4 * (k - lo + 3)), defaultOffset);
+                    for (int k = c.from; k < c.to; k++)
+                        code.put4(c.tableBase + 4 * (keys[k] - lo + 3),
+                                  casePc[caseIndex[k]] - c.startpc);
+                } else {
+                    for (int k = c.from; k < c.to; k++) {
+                        int caseidx = c.tableBase + 8 * (k - c.from + 1);
+                        code.put4(caseidx, keys[k]);
+                        code.put4(caseidx + 4, casePc[caseIndex[k]] - c.startpc);
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Generate the dispatch of the selector value on tos to the
+         *  clusters cs[lo..hi], leaving their jump tables to be filled in.
+         *  Return the state after the first switch instruction.
+         */
+        Code.State genSwitchDispatch(int[] keys, SwitchCluster[] cs, int lo, int hi) {
+            if (lo == hi) {
+                SwitchCluster c = cs[lo];
+                c.startpc = code.curPc();
+                code.emitop0(c.opcode);
+                code.align(4);
+                c.tableBase = code.curPc();
+                code.emit4(-1);                // leave space for default offset
+                if (c.opcode == tableswitch) {
+                    code.emit4(keys[c.from]);
+                    code.emit4(keys[c.to - 1]);
+                    for (long k = keys[c.from]; k <= keys[c.to - 1]; k++)
+                        code.emit4(-1);
+                } else {
+                    code.emit4(c.to - c.from);
+                    for (int k = c.from; k < c.to; k++) {
+                        code.emit4(-1); code.emit4(-1);
+                    }
+                }
+                Code.State state = code.state.dup();
+                code.markDead();
+                return state;
+            }
+            int mid = (lo + hi + 1) / 2;
+            code.emitop0(dup);
+            items.makeImmediateItem(syms.intType, keys[cs[mid].from]).load();
+            Chain upper = code.branch(if_icmpge);
+            Code.State state = genSwitchDispatch(keys, cs, lo, mid - 1);
+            code.resolve(upper);
+            genSwitchDispatch(keys, cs, mid, hi);
+            return state;
+        }
+
+        /** Split the labels of a switch, in ascending order, into clusters.
+         *  Starting from the smallest label not yet in a cluster, the labels
+         *  are taken as long as they cover at least half of their range; if
+         *  there are MIN_TABLE_LABELS of them or more, they are a cluster
+         *  for a tableswitch.  The labels left between such clusters make
+         *  clusters for a lookupswitch.
+         */
+        List<SwitchCluster> clusterLabels(int[] keys) {
+            ListBuffer<SwitchCluster> clusters = new ListBuffer<SwitchCluster>();
+            int sparse = -1;    // the first label of a lookupswitch cluster, or -1
+            int i = 0;
+            while (i < keys.length) {
+                int j = i + 1;
+                while (j < keys.length &&
+                       2L * (j - i + 1) >= (long) keys[j] - keys[i] + 1)
+                    j++;
+                if (j - i >= MIN_TABLE_LABELS) {
+                    if (sparse >= 0)
+                        clusters.append(new SwitchCluster(sparse, i, lookupswitch));
+                    clusters.append(new SwitchCluster(i, j, tableswitch));
+                    sparse = -1;
+                } else if (sparse < 0) {
+                    sparse = i;
+                }
+                i = j;
+            }
+            if (sparse >= 0)
+                clusters.append(new SwitchCluster(sparse, keys.length, lookupswitch));
+            return clusters.toList();
+        }
+
+        /** The least number of labels of a cluster for a tableswitch. */
+        static final int MIN_TABLE_LABELS = 4;
+
+        /** The labels keys[from..to-1] of a switch, in ascending order, and
+         *  the tableswitch or lookupswitch instruction that dispatches them.
+         */
+        static class SwitchCluster {
+            final int from;
+            final int to;
+            final int opcode;
+            /** The position of the instruction. */
+            int startpc;
+            /** The position of its default offset. */
+            int tableBase;
+
+            SwitchCluster(int from, int to, int opcode) {
+                this.from = from;
+                this.to = to;
+                this.opcode = opcode;
+            }
+        }
+
     public void visitSynchronized(JCSynchronized tree) {
         int limit = code.nextreg;
         // Generate code to evaluate lock and save in temporary variable.
@@ -1791,7 +2057,9 @@ public class Gen extends JCTree.Visitor {
     public void visitAssignop(JCAssignOp tree) {
         OperatorSymbol operator = (OperatorSymbol) tree.operator;
         Item l;
-        if (operator.opcode == string_add) {
+        if (operator.opcode == string_add && optimizeConcat) {
+            l = genConcatAssign(tree);
+        } else if (operator.opcode == string_add) {
             // Generate code to make a string buffer
             makeStringBuffer(tree.pos());
 
@@ -1918,12 +2186,16 @@ public class Gen extends JCTree.Visitor {
     public void visitBinary(JCBinary tree) {
         OperatorSymbol operator = (OperatorSymbol)tree.operator;
         if (operator.opcode == string_add) {
-            // Create a string buffer.
-            makeStringBuffer(tree.pos());
-            // Append all strings to buffer.
-            appendStrings(tree);
-            // Convert buffer to string.
-            bufferToString(tree.pos());
+            if (optimizeConcat) {
+                genConcat(tree);
+            } else {
+                // Create a string buffer.
+                makeStringBuffer(tree.pos());
+                // Append all strings to buffer.
+                appendStrings(tree);
+                // Convert buffer to string.
+                bufferToString(tree.pos());
+            }
             result = items.makeStackItem(syms.stringType);
         } else if (tree.getTag() == JCTree.AND) {
             CondItem lcond = genCond(tree.lhs, CRT_FLOW_CONTROLLER);
@@ -1968,6 +2240,24 @@ public class Gen extends JCTree.Visitor {
                 pos, stringBufferType, names.init, List.<Type>nil(), false);
         }
 
+        /** Make a new string buffer with the given capacity, or with the
+         *  default one if that is not less.
+         */
+        void makeStringBuffer(DiagnosticPosition pos, int capacity) {
+            if (capacity <= DEFAULT_BUFFER_CAPACITY) {
+                makeStringBuffer(pos);
+                return;
+            }
+            code.emitop2(new_, makeRef(pos, stringBufferType));
+            code.emitop0(dup);
+            items.makeImmediateItem(syms.intType, capacity).load();
+            callMethod(
+                pos, stringBufferType, names.init, List.of(syms.intType), false);
+        }
+
+        /** The capacity of a string buffer created without one. */
+        static final int DEFAULT_BUFFER_CAPACITY = 16;
+
         /** Append value (on tos) to string buffer (on tos - 1).
          */
         void appendString(JCTree tree) {
@@ -1981,12 +2271,10 @@ public class Gen extends JCTree.Visitor {
             Assert.checkNull(t.constValue());
             Symbol method = stringBufferAppend.get(t);
             if (method == null) {
-                method = rs.resolveInternalMethod(tree.pos(),
-                                                  attrEnv,
-                                                  stringBufferType,
-                                                  names.append,
-                                                  List.of(t),
-                                                  null);
+                method = resolveInternalMethod(tree.pos(),
+                                               stringBufferType,
+                                               names.append,
+                                               List.of(t));
                 stringBufferAppend.put(t, method);
             }
             return method;
@@ -2020,6 +2308,181 @@ public class Gen extends JCTree.Visitor {
                 false);
         }
 
+        /** Generate code for a string concatenation with -XDoptimizeConcat:
+         *  the operands are those of appendStrings, but adjacent constants
+         *  are merged into one string constant, and the buffer is created
+         *  with a capacity for all of them (see concatCapacity).  A String
+         *  followed by a constant is concatenated by String.concat, without
+         *  a buffer.
+         *  常量操作数在编译时合并；运行时的结果与不带选项时相同。
+         */
+        void genConcat(JCBinary tree) {
+            ListBuffer<JCTree> operands = new ListBuffer<JCTree>();
+            concatOperands(tree, operands);
+            List<JCTree> ops = mergeConstants(operands.toList());
+            if (useStringConcat(ops)) {
+                genExpr(ops.head, ops.head.type).load();
+                stringConcat(tree.pos(), ops.tail.head);
+            } else {
+                makeStringBuffer(tree.pos(), concatCapacity(ops));
+                for (JCTree op : ops) {
+                    genExpr(op, op.type).load();
+                    appendString(op);
+                }
+                bufferToString(tree.pos());
+            }
+        }
+
+        /** Generate code for a string assignment operator with
+         *  -XDoptimizeConcat, as genConcat does for a concatenation of the
+         *  left hand side and the operands of the right hand side.
+         *  Return the item of the left hand side, which is evaluated only
+         *  once.
+         */
+        Item genConcatAssign(JCAssignOp tree) {
+            ListBuffer<JCTree> operands = new ListBuffer<JCTree>();
+            concatOperands(tree.rhs, operands);
+            List<JCTree> ops = mergeConstants(operands.toList());
+            boolean useConcat = useStringConcat(ops.prepend(tree.lhs));
+            if (!useConcat)
+                makeStringBuffer(tree.pos(), concatCapacity(ops.prepend(tree.lhs)));
+            // Generate code for the left hand side; one copy of what it
+            // needs on the stack stays under the buffer, if there is one.
+            Item l = genExpr(tree.lhs, tree.lhs.type);
+            if (useConcat) {
+                l.duplicate();
+                l.load();
+                stringConcat(tree.pos(), ops.head);
+            } else {
+                if (l.width() > 0) {
+                    code.emitop0(dup_x1 + 3 * (l.width() - 1));
+                }
+                l.load();
+                appendString(tree.lhs);
+                for (JCTree op : ops) {
+                    genExpr(op, op.type).load();
+                    appendString(op);
+                }
+                bufferToString(tree.pos());
+            }
+            return l;
+        }
+
+        /** Add the operands of the string concatenation tree to the given
+         *  buffer, in the order in which appendStrings would append them.
+         */
+        void concatOperands(JCTree tree, ListBuffer<JCTree> operands) {
+            tree = TreeInfo.skipParens(tree);
+            if (tree.getTag() == JCTree.PLUS && tree.type.constValue() == null) {
+                JCBinary op = (JCBinary) tree;
+                if (op.operator.kind == MTH &&
+                    ((OperatorSymbol) op.operator).opcode == string_add) {
+                    concatOperands(op.lhs, operands);
+                    concatOperands(op.rhs, operands);
+                    return;
+                }
+            }
+            operands.append(tree);
+        }
+
+        /** Replace each run of adjacent constant operands by a string
+         *  literal of their concatenation, as long as it fits in the
+         *  constant pool: its Utf8 encoding, not its length in chars, is
+         *  limited to Pool.MAX_STRING_LENGTH bytes.
+         */
+        List<JCTree> mergeConstants(List<JCTree> operands) {
+            ListBuffer<JCTree> merged = new ListBuffer<JCTree>();
+            while (operands.nonEmpty()) {
+                JCTree op = operands.head;
+                operands = operands.tail;
+                if (op.type.constValue() != null &&
+                    operands.nonEmpty() && operands.head.type.constValue() != null) {
+                    StringBuilder sb = new StringBuilder(op.type.stringValue());
+                    int utfLength = Convert.utfLength(op.type.stringValue());
+                    while (operands.nonEmpty() &&
+                           operands.head.type.constValue() != null) {
+                        String s = operands.head.type.stringValue();
+                        int n = Convert.utfLength(s);
+                        if (utfLength + n > Pool.MAX_STRING_LENGTH)
+                            break;
+                        sb.append(s);
+                        utfLength += n;
+                        operands = operands.tail;
+                    }
+                    op = make.at(op.pos).Literal(sb.toString());
+                }
+                merged.append(op);
+            }
+            return merged.toList();
+        }
+
+        /** The capacity for the buffer of a concatenation of the given
+         *  operands: the length of the constants, and an estimate for each
+         *  of the other operands; see estimatedLength.  The capacity is
+         *  counted in chars, but bounded as the constants are: a buffer of
+         *  more than Pool.MAX_STRING_LENGTH chars is left to grow.
+         */
+        int concatCapacity(List<JCTree> operands) {
+            int capacity = 0;
+            for (JCTree op : operands) {
+                capacity += (op.type.constValue() != null)
+                    ? op.type.stringValue().length()
+                    : estimatedLength(op.type);
+                if (capacity > Pool.MAX_STRING_LENGTH)
+                    return Pool.MAX_STRING_LENGTH;
+            }
+            return capacity;
+        }
+
+        /** The length estimated for the string of a value of the given
+         *  type: the longest string of a byte, short, char, int or
+         *  boolean; typical ones for long, float and double; and the
+         *  default capacity of a string buffer for objects.
+         */
+        int estimatedLength(Type t) {
+            switch (t.tag) {
+            case BYTE:    return 4;
+            case SHORT:   return 6;
+            case CHAR:    return 1;
+            case INT:     return 11;
+            case LONG:    return 20;
+            case FLOAT:   return 16;
+            case DOUBLE:  return 24;
+            case BOOLEAN: return 5;
+            default:      return DEFAULT_BUFFER_CAPACITY;
+            }
+        }
+
+        /** Can a concatenation of the given operands be generated as
+         *  String.valueOf(lhs).concat(rhs)?  Only when there are two of them,
+         *  the first a String and the second a non-empty constant:
+         *  String.valueOf gives "null" for a null String, as the buffer
+         *  would, and concat returns a new string only when its argument
+         *  is not empty, as JLS 15.18.1 requires.
+         */
+        boolean useStringConcat(List<JCTree> operands) {
+            if (operands.length() != 2)
+                return false;
+            Type lhs = operands.head.type;
+            Type rhs = operands.tail.head.type;
+            return lhs.constValue() == null &&
+                lhs.tsym == syms.stringType.tsym &&
+                rhs.constValue() != null &&
+                rhs.stringValue().length() > 0;
+        }
+
+        /** Concatenate the String (on tos), or "null" if it is null,
+         *  with the given constant.
+         */
+        void stringConcat(DiagnosticPosition pos, JCTree constant) {
+            callMethod(pos, syms.stringType, names.valueOf,
+                       List.of(syms.objectType), true);
+            genExpr(make.at(constant.pos).Literal(constant.type.stringValue()),
+                    syms.stringType).load();
+            callMethod(pos, syms.stringType, concat,
+                       List.of(syms.stringType), false);
+        }
+
         /** Complete generating code for operation, with left operand
          *  already on stack.
          *  @param lhs       The tree representing the left operand.
@@ -2170,7 +2633,9 @@ public class Gen extends JCTree.Visitor {
                 } else {
                     result = items.
                         makeMemberItem(sym,
-                                       (sym.flags() & PRIVATE) != 0 ||
+                                       (sym.flags() & PRIVATE) != 0 &&
+                                       ((sym.flags() & WIDENED) == 0 ||
+                                        sym.owner == env.enclClass.sym) ||
                                        selectSuper || accessSuper);
                 }
             }
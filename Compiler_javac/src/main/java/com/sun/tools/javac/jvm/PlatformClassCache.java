@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.jvm;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+import com.sun.tools.javac.code.Source;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Names;
+import com.sun.tools.javac.util.Options;
+
+import static javax.tools.StandardLocation.PLATFORM_CLASS_PATH;
+
+/**
+ * Keeps the name table, the symbol table and the class reader of one
+ * compilation alive for the next one, so that a long-lived compiler
+ * (see com.sun.tools.javac.Server) does not have to read the platform
+ * classes again for every request.
+ *
+ * After each compilation everything but the platform classes is dropped
+ * from the symbol table (see ClassReader.retainPlatformClasses).  The
+ * symbol table is only reused by a compilation with the same platform
+ * class path, source and target, and only while none of the platform
+ * class path entries, nor any class file read from a platform directory,
+ * has changed; since the platform classes refer to each other, a change
+ * discards all of them and the next compilation starts afresh.
+ *
+ * Annotation processing rounds after the first get a new symbol table as
+ * usual.
+ *
+ * <p><b>This is NOT part of any supported API.
+ * If you write code that depends on this, you do so at your own risk.
+ * This code and its internal interfaces are subject to change or
+ * deletion without notice.</b>
+ */
+public class PlatformClassCache {
+    /** The class reader, and with it the symbol table, to be reused. */
+    private ClassReader reader;
+
+    /** The name table of reader. */
+    private CachedNames names;
+
+    /** The platform settings that reader was created for. */
+    private String key;
+
+    /** Last modification time and length of each platform class path entry. */
+    private Map<File, long[]> pathStamps = new HashMap<File, long[]>();
+
+    /** Last modification time of the class files read from platform directories. */
+    private Map<JavaFileObject, Long> classStamps = new HashMap<JavaFileObject, Long>();
+
+    /** The class reader of the current compilation, and its settings. */
+    private ClassReader current;
+    private CachedNames currentNames;
+    private String currentKey;
+    private List<File> currentPath;
+
+    /**
+     * A name table that outlives the compilation it was created for.
+     * The compiler's own dispose() is ignored; the cache disposes of the
+     * table once, when it stops reusing it.
+     */
+    private static class CachedNames extends Names {
+        CachedNames(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void dispose() {
+        }
+
+        void release() {
+            super.dispose();
+        }
+    }
+
+    /**
+     * Prepare a new context for a compilation: register the name table of
+     * the previous compilation, and arrange for its class reader and
+     * symbol table to be reused if they suit this compilation.
+     * Must be called before the context is used.
+     */
+    public void preRegister(final Context context) {
+        current = null;
+        currentNames = names;
+        if (names != null) {
+            context.put(Names.namesKey, names);
+        } else {
+            context.put(Names.namesKey, new Context.Factory<Names>() {
+                public Names make(Context c) {
+                    Names n;
+                    if (c != context) // a later round of annotation processing
+                        n = new Names(c);
+                    else
+                        n = currentNames = new CachedNames(c);
+                    c.put(Names.namesKey, n);
+                    return n;
+                }
+            });
+        }
+        context.put(ClassReader.classReaderKey, new Context.Factory<ClassReader>() {
+            public ClassReader make(Context c) {
+                if (c != context) // a later round of annotation processing
+                    return new ClassReader(c, true);
+                return current = open(c);
+            }
+        });
+    }
+
+    private ClassReader open(Context c) {
+        currentPath = platformPath(c);
+        currentKey = platformKey(c, currentPath);
+        if (reader != null && currentKey != null && currentKey.equals(key) && isUpToDate()) {
+            Symtab.preRegister(c, reader.syms);
+            c.put(ClassReader.classReaderKey, reader);
+            reader.setContext(c);
+            return reader;
+        }
+        reader = null;
+        ClassReader r = new ClassReader(c, true);
+        if (currentKey != null)
+            r.platformClasses = new HashSet<ClassSymbol>();
+        return r;
+    }
+
+    /**
+     * Called when a compilation started with preRegister has finished.
+     * @param ok false if the compilation was abandoned in an unknown
+     *           state, in which case its symbol table is not reused
+     */
+    public void compilationFinished(boolean ok) {
+        ClassReader r = current;
+        CachedNames n = currentNames;
+        current = null;
+        currentNames = null;
+        if (r == null || !ok || currentKey == null || !r.retainPlatformClasses()) {
+            reader = null;
+            names = null;
+            if (n != null)
+                n.release();
+            pathStamps.clear();
+            classStamps.clear();
+            return;
+        }
+        if (r != reader) {
+            pathStamps.clear();
+            classStamps.clear();
+            for (File f : currentPath)
+                pathStamps.put(f, new long[] { f.lastModified(), f.length() });
+        }
+        if (!pathStamps.isEmpty() && hasDirectory(pathStamps.keySet())) {
+            for (ClassSymbol c : r.platformClasses) {
+                JavaFileObject fo = c.classfile;
+                if (fo != null && !classStamps.containsKey(fo)
+                        && "file".equals(fo.toUri().getScheme()))
+                    classStamps.put(fo, fo.getLastModified());
+            }
+        }
+        reader = r;
+        names = n;
+        key = currentKey;
+    }
+
+    private boolean isUpToDate() {
+        for (Map.Entry<File, long[]> e : pathStamps.entrySet()) {
+            File f = e.getKey();
+            long[] stamp = e.getValue();
+            if (f.lastModified() != stamp[0] || f.length() != stamp[1])
+                return false;
+        }
+        for (Map.Entry<JavaFileObject, Long> e : classStamps.entrySet()) {
+            if (e.getKey().getLastModified() != e.getValue())
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean hasDirectory(Iterable<File> files) {
+        for (File f : files) {
+            if (f.isDirectory())
+                return true;
+        }
+        return false;
+    }
+
+    private static List<File> platformPath(Context c) {
+        JavaFileManager fm = c.get(JavaFileManager.class);
+        if (!(fm instanceof StandardJavaFileManager))
+            return null;
+        Iterable<? extends File> path =
+            ((StandardJavaFileManager) fm).getLocation(PLATFORM_CLASS_PATH);
+        if (path == null)
+            return null;
+        List<File> files = new ArrayList<File>();
+        for (File f : path)
+            files.add(f.getAbsoluteFile());
+        return files;
+    }
+
+    /**
+     * The settings that determine the contents of the platform classes,
+     * or null if the symbol table should not be reused.
+     */
+    private static String platformKey(Context c, List<File> path) {
+        Options options = Options.instance(c);
+        // the unshared name table is disposed of after each compilation
+        if (path == null || options.isSet("useUnsharedTable"))
+            return null;
+        StringBuilder sb = new StringBuilder();
+        for (File f : path)
+            sb.append(f.getPath()).append(File.pathSeparatorChar);
+        sb.append('\n').append(Source.instance(c).name);
+        sb.append('\n').append(Target.instance(c).name);
+        for (String name : new String[] { "ignore.symbol.file", "save-parameter-names", "failcomplete" })
+            sb.append('\n').append(options.get(name));
+        return sb.toString();
+    }
+}
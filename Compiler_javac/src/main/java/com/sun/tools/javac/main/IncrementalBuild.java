@@ -0,0 +1,755 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package com.sun.tools.javac.main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.JavaFileObject;
+
+import com.sun.tools.classfile.ABIFingerprint_attribute;
+import com.sun.tools.classfile.AccessFlags;
+import com.sun.tools.classfile.Annotation;
+import com.sun.tools.classfile.AnnotationDefault_attribute;
+import com.sun.tools.classfile.Attribute;
+import com.sun.tools.classfile.Attributes;
+import com.sun.tools.classfile.ClassFile;
+import com.sun.tools.classfile.ConstantPool;
+import com.sun.tools.classfile.ConstantPool.CONSTANT_Class_info;
+import com.sun.tools.classfile.ConstantPool.CPInfo;
+import com.sun.tools.classfile.ConstantPool.CONSTANT_String_info;
+import com.sun.tools.classfile.ConstantPoolException;
+import com.sun.tools.classfile.ConstantValue_attribute;
+import com.sun.tools.classfile.Dependencies;
+import com.sun.tools.classfile.Dependency;
+import com.sun.tools.classfile.Exceptions_attribute;
+import com.sun.tools.classfile.Field;
+import com.sun.tools.classfile.InnerClasses_attribute;
+import com.sun.tools.classfile.Method;
+import com.sun.tools.classfile.RuntimeAnnotations_attribute;
+import com.sun.tools.classfile.RuntimeParameterAnnotations_attribute;
+import com.sun.tools.classfile.Signature_attribute;
+import com.sun.tools.javac.util.ListBuffer;
+import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Pair;
+
+/**
+ * An incremental build (-XDincremental[=state file]): only the source files
+ * that changed since the last build are compiled, followed by the source
+ * files that depend on classes whose API changed, and so on.
+ * 增量编译：状态文件(默认为类文件目录下的javac.deps)记录上一次编译的每个源文件、
+ * 它生成的类，以及每个类的API摘要和它在常量池中引用的类
+ * (Dependencies.findAllDependencies)。再次编译时先编译修改过的源文件，
+ * 然后编译依赖于API有变化的类的源文件，直到没有类的API再变化为止。
+ * 一个类的API变化时，它的所有子类(直接或间接的)也被看作API有变化，
+ * 因为它们继承的成员变了。
+ * 未重新编译的类从类文件目录中读取，所以这个目录被加到类路径的最前面。
+ *
+ * The compilations are done one after the other, each by a new Main with
+ * the same options, so that the classes compiled before are read from the
+ * class output directory.  Since constants are inlined, and so do not show
+ * up in the constant pool, a change of the value of a constant causes all
+ * the remaining source files to be compiled.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+class IncrementalBuild {
+    private static final String STATE_HEADER = "javac incremental state 2";
+    private static final String DEFAULT_STATE_FILE = "javac.deps";
+
+    private final Main main;
+    private final String[] optionArgs;
+    private final File classDir;
+    private final File stateFile;
+
+    /** The source files of this build, by path. */
+    private final Map<String, File> sources = new LinkedHashMap<String, File>();
+
+    /**
+     * @param main       the compiler, with the options of this build
+     * @param optionArgs the command line arguments without the source files
+     *                   and without -XDincremental
+     * @param files      the source files
+     * @param classDir   the class output directory
+     * @param stateFile  the name of the state file, or null for the default
+     */
+    IncrementalBuild(Main main, String[] optionArgs, Iterable<File> files,
+            File classDir, String stateFile) {
+        this.main = main;
+        this.optionArgs = optionArgs;
+        this.classDir = classDir;
+        this.stateFile = (stateFile == null)
+            ? new File(classDir, DEFAULT_STATE_FILE)
+            : new File(stateFile);
+        for (File f : files)
+            sources.put(path(f), f);
+    }
+
+    /** What is known about a source file after it has been compiled. */
+    static class SourceState {
+        final long lastModified;
+        final long length;
+        final Map<String, ClassState> classes = new LinkedHashMap<String, ClassState>();
+
+        SourceState(long lastModified, long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        boolean isUpToDate(File f) {
+            return f.lastModified() == lastModified && f.length() == length;
+        }
+    }
+
+    /** What is known about a class, by its internal name. */
+    static class ClassState {
+        final String api;
+        final String constants;
+        final Set<String> dependencies = new HashSet<String>();
+        /** The superclass and the direct superinterfaces. */
+        final Set<String> supertypes = new HashSet<String>();
+
+        ClassState(String api, String constants) {
+            this.api = api;
+            this.constants = constants;
+        }
+    }
+
+    /**
+     * Bring the class files up to date.
+     * @return the result of the compilation, see Main.compile
+     */
+    int run() throws IOException {
+        String options = join(optionArgs);
+        Map<String, SourceState> state = readState(options);
+        Set<String> toCompile = new LinkedHashSet<String>();
+        Set<String> changedClasses = new HashSet<String>();
+
+        if (state == null) {
+            state = new HashMap<String, SourceState>();
+            toCompile.addAll(sources.keySet());
+        } else {
+            for (Map.Entry<String, File> e : sources.entrySet()) {
+                SourceState s = state.get(e.getKey());
+                if (s == null || !s.isUpToDate(e.getValue()) || !classFilesExist(s))
+                    toCompile.add(e.getKey());
+            }
+            // the classes of deleted source files are gone
+            for (String path : new ArrayList<String>(state.keySet())) {
+                if (!sources.containsKey(path)) {
+                    SourceState s = state.remove(path);
+                    for (String c : s.classes.keySet())
+                        deleteClassFile(c);
+                    changedClasses.addAll(s.classes.keySet());
+                }
+            }
+        }
+
+        Set<String> compiled = new HashSet<String>();
+        boolean constantsChanged = false;
+        while (true) {
+            if (constantsChanged)
+                toCompile.addAll(sources.keySet());
+            else
+                toCompile.addAll(dependents(state, withSubclasses(state, changedClasses)));
+            toCompile.removeAll(compiled);
+            if (toCompile.isEmpty())
+                break;
+
+            ListBuffer<Pair<JavaFileObject, JavaFileObject>> generated =
+                new ListBuffer<Pair<JavaFileObject, JavaFileObject>>();
+            int result = compile(toCompile, generated);
+            compiled.addAll(toCompile);
+            if (result != Main.EXIT_OK) {
+                // compile these files again next time
+                for (String path : toCompile)
+                    state.remove(path);
+                writeState(options, state);
+                return result;
+            }
+
+            changedClasses = new HashSet<String>();
+            for (Map.Entry<String, SourceState> e : readClasses(generated, toCompile).entrySet()) {
+                SourceState s = e.getValue();
+                SourceState prev = state.put(e.getKey(), s);
+                Map<String, ClassState> prevClasses = (prev == null)
+                    ? Collections.<String, ClassState>emptyMap()
+                    : prev.classes;
+                for (Map.Entry<String, ClassState> ce : s.classes.entrySet()) {
+                    ClassState p = prevClasses.get(ce.getKey());
+                    if (p == null || !p.api.equals(ce.getValue().api))
+                        changedClasses.add(ce.getKey());
+                    if (p != null && !p.constants.equals(ce.getValue().constants))
+                        constantsChanged = true;
+                }
+                for (String c : prevClasses.keySet()) {
+                    if (!s.classes.containsKey(c)) {
+                        deleteClassFile(c);
+                        changedClasses.add(c);
+                    }
+                }
+            }
+            toCompile = new LinkedHashSet<String>();
+        }
+        writeState(options, state);
+        return Main.EXIT_OK;
+    }
+
+    /** Compile the given source files with a new Main. */
+    private int compile(Set<String> paths, ListBuffer<Pair<JavaFileObject, JavaFileObject>> generated) {
+        String[] args = new String[optionArgs.length + paths.size()];
+        System.arraycopy(optionArgs, 0, args, 0, optionArgs.length);
+        int i = optionArgs.length;
+        for (String path : paths)
+            args[i++] = sources.get(path).getPath();
+        Main m = new Main(main.ownName, main.out);
+        m.incrementalRound = true;
+        m.generatedFiles = generated;
+        return m.compile(args);
+    }
+
+    /**
+     * The given classes and all the classes of the build that extend or
+     * implement them, directly or indirectly: the members those classes
+     * inherit change with the API of the given classes.
+     */
+    private Set<String> withSubclasses(Map<String, SourceState> state, Set<String> classes) {
+        Set<String> result = new HashSet<String>(classes);
+        boolean added = !classes.isEmpty();
+        while (added) {
+            added = false;
+            for (SourceState s : state.values()) {
+                for (Map.Entry<String, ClassState> e : s.classes.entrySet()) {
+                    if (!result.contains(e.getKey())
+                            && !Collections.disjoint(e.getValue().supertypes, result)) {
+                        result.add(e.getKey());
+                        added = true;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** The source files, not yet compiled, with classes that use the given classes. */
+    private Set<String> dependents(Map<String, SourceState> state, Set<String> classes) {
+        Set<String> result = new LinkedHashSet<String>();
+        if (classes.isEmpty())
+            return result;
+        for (Map.Entry<String, SourceState> e : state.entrySet()) {
+            for (ClassState c : e.getValue().classes.values()) {
+                if (!Collections.disjoint(c.dependencies, classes)) {
+                    result.add(e.getKey());
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read the class files written by a compilation, and return the new
+     * state of each of the source files that were compiled.
+     */
+    private Map<String, SourceState> readClasses(Iterable<Pair<JavaFileObject, JavaFileObject>> generated,
+            Set<String> compiled) throws IOException {
+        Map<String, SourceState> result = new LinkedHashMap<String, SourceState>();
+        // a source file may have no classes at all
+        for (String path : compiled) {
+            File f = sources.get(path);
+            result.put(path, new SourceState(f.lastModified(), f.length()));
+        }
+        final Map<String, ClassFile> classFiles = new HashMap<String, ClassFile>();
+        Map<String, String> sourceOf = new LinkedHashMap<String, String>();
+        for (Pair<JavaFileObject, JavaFileObject> p : generated) {
+            String path = path(new File(p.fst.toUri()));
+            if (!sources.containsKey(path))
+                continue;
+            if (!result.containsKey(path)) {
+                // compiled implicitly, from the source path
+                File f = sources.get(path);
+                result.put(path, new SourceState(f.lastModified(), f.length()));
+            }
+            ClassFile cf = readClassFile(p.snd);
+            try {
+                classFiles.put(cf.getName(), cf);
+                sourceOf.put(cf.getName(), path);
+            } catch (ConstantPoolException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+
+        Dependencies deps = new Dependencies();
+        deps.setFinder(Dependencies.getClassDependencyFinder());
+        Dependencies.ClassFileReader reader = new Dependencies.ClassFileReader() {
+            public ClassFile getClassFile(String className)
+                    throws Dependencies.ClassFileNotFoundException {
+                ClassFile cf = classFiles.get(className);
+                if (cf == null)
+                    throw new Dependencies.ClassFileNotFoundException(className);
+                return cf;
+            }
+        };
+        try {
+            for (Map.Entry<String, String> e : sourceOf.entrySet()) {
+                String name = e.getKey();
+                ClassFile cf = classFiles.get(name);
+                ClassState c = new ClassState(apiDigest(cf, false), apiDigest(cf, true));
+                if (cf.super_class != 0)
+                    c.supertypes.add(cf.getSuperclassName());
+                for (int i = 0; i < cf.interfaces.length; i++)
+                    c.supertypes.add(cf.getInterfaceName(i));
+                for (Dependency d : deps.findAllDependencies(reader, Collections.singleton(name), false)) {
+                    String target = d.getTarget().getClassName();
+                    if (!target.equals(name))
+                        c.dependencies.add(target);
+                }
+                // annotation types are named by descriptors, which the
+                // class dependency finder does not follow
+                annotationTypes(cf, c.dependencies);
+                c.dependencies.remove(name);
+                result.get(e.getValue()).classes.put(name, c);
+            }
+        } catch (Dependencies.ClassFileNotFoundException e) {
+            throw new IOException(e.getMessage());
+        } catch (Dependencies.ClassFileError e) {
+            throw new IOException(e.getCause());
+        } catch (ConstantPoolException e) {
+            throw new IOException(e.getMessage());
+        }
+        return result;
+    }
+
+    private ClassFile readClassFile(JavaFileObject fo) throws IOException {
+        InputStream in = fo.openInputStream();
+        try {
+            return ClassFile.read(in);
+        } catch (ConstantPoolException e) {
+            throw new IOException(e.getMessage());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Return a digest of the non-private API of a class, as seen by the
+     * classes that use it, or of the values of its constant fields.
+     * The API includes the access flags of a nested class and of its
+     * non-private member classes, which are only written in InnerClasses,
+     * the annotations of the class and its members, and the default
+     * values of annotation type elements.
+     * Private members that -XDwidenPrivateAccess writes package private
+     * (see Lower.canWiden) are included, as any synthetic member is.
+     * The ABIFingerprint written with -XDabiFingerprint is used as the
+     * digest of the API if the class has one.
+     */
+    static String apiDigest(ClassFile cf, boolean constants) throws ConstantPoolException {
+        if (!constants) {
+            ABIFingerprint_attribute fingerprint = ABIFingerprint_attribute.get(cf);
+            if (fingerprint != null)
+                return fingerprint.getValue();
+        }
+        ConstantPool cp = cf.constant_pool;
+        java.util.List<String> items = new ArrayList<String>();
+        if (!constants) {
+            StringBuilder sb = new StringBuilder("class ");
+            sb.append(cf.access_flags.flags & ~AccessFlags.ACC_SUPER);
+            sb.append(' ').append(cf.super_class == 0 ? "" : cf.getSuperclassName());
+            for (int i = 0; i < cf.interfaces.length; i++)
+                sb.append(' ').append(cf.getInterfaceName(i));
+            sb.append(' ').append(signature(cf.attributes, cp));
+            sb.append(annotations(cf.attributes, cp));
+            items.add(sb.toString());
+            InnerClasses_attribute ic = (InnerClasses_attribute) cf.attributes.get(Attribute.InnerClasses);
+            if (ic != null) {
+                String name = cf.getName();
+                for (InnerClasses_attribute.Info info : ic.classes) {
+                    CONSTANT_Class_info inner = info.getInnerClassInfo(cp);
+                    CONSTANT_Class_info outer = info.getOuterClassInfo(cp);
+                    if (inner != null && inner.getName().equals(name)) {
+                        // the flags of the class itself as a member, private included
+                        items.add("inner " + info.inner_class_access_flags.flags);
+                    } else if (outer != null && outer.getName().equals(name)
+                            && !info.inner_class_access_flags.is(AccessFlags.ACC_PRIVATE)) {
+                        items.add("member " + inner.getName()
+                                + " " + info.inner_class_access_flags.flags);
+                    }
+                }
+            }
+        }
+        for (Field f : cf.fields) {
+            if (f.access_flags.is(AccessFlags.ACC_PRIVATE))
+                continue;
+            String name = f.getName(cp);
+            if (constants) {
+                ConstantValue_attribute cv =
+                    (ConstantValue_attribute) f.attributes.get(Attribute.ConstantValue);
+                if (cv != null) {
+                    CPInfo info = cp.get(cv.constantvalue_index);
+                    items.add(name + " " + (info instanceof CONSTANT_String_info
+                            ? ((CONSTANT_String_info) info).getString()
+                            : info.toString()));
+                }
+            } else {
+                items.add("field " + name + " " + f.descriptor.getValue(cp)
+                        + " " + f.access_flags.flags
+                        + " " + signature(f.attributes, cp)
+                        + annotations(f.attributes, cp));
+            }
+        }
+        if (!constants) {
+            for (Method m : cf.methods) {
+                if (m.access_flags.is(AccessFlags.ACC_PRIVATE))
+                    continue;
+                StringBuilder sb = new StringBuilder("method ");
+                sb.append(m.getName(cp)).append(' ').append(m.descriptor.getValue(cp));
+                sb.append(' ').append(m.access_flags.flags);
+                sb.append(' ').append(signature(m.attributes, cp));
+                Exceptions_attribute e = (Exceptions_attribute) m.attributes.get(Attribute.Exceptions);
+                if (e != null) {
+                    for (int i = 0; i < e.number_of_exceptions; i++)
+                        sb.append(' ').append(e.getException(i, cp));
+                }
+                sb.append(annotations(m.attributes, cp));
+                items.add(sb.toString());
+            }
+        }
+        // the order of the members does not matter
+        Collections.sort(items);
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            for (String item : items) {
+                md.update(item.getBytes("UTF-8"));
+                md.update((byte) '\n');
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest())
+                sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new AssertionError(ex);
+        } catch (IOException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static String signature(com.sun.tools.classfile.Attributes attrs, ConstantPool cp)
+            throws ConstantPoolException {
+        Signature_attribute sa = (Signature_attribute) attrs.get(Attribute.Signature);
+        return (sa == null) ? "" : sa.getSignature(cp);
+    }
+
+    /**
+     * Return the annotations in the given attributes, those of the
+     * parameters of a method, and the default value of an annotation type
+     * element, each preceded by a space.
+     */
+    private static String annotations(Attributes attrs, ConstantPool cp)
+            throws ConstantPoolException {
+        StringBuilder sb = new StringBuilder();
+        appendAnnotations(sb, " @", attrs.get(Attribute.RuntimeVisibleAnnotations), cp);
+        appendAnnotations(sb, " @@", attrs.get(Attribute.RuntimeInvisibleAnnotations), cp);
+        appendParameterAnnotations(sb, " @", attrs.get(Attribute.RuntimeVisibleParameterAnnotations), cp);
+        appendParameterAnnotations(sb, " @@", attrs.get(Attribute.RuntimeInvisibleParameterAnnotations), cp);
+        AnnotationDefault_attribute d = (AnnotationDefault_attribute) attrs.get(Attribute.AnnotationDefault);
+        if (d != null) {
+            sb.append(" default ");
+            appendValue(sb, d.default_value, cp);
+        }
+        return sb.toString();
+    }
+
+    private static void appendAnnotations(StringBuilder sb, String prefix, Attribute attr,
+            ConstantPool cp) throws ConstantPoolException {
+        if (attr == null)
+            return;
+        for (Annotation a : ((RuntimeAnnotations_attribute) attr).annotations) {
+            sb.append(prefix);
+            appendAnnotation(sb, a, cp);
+        }
+    }
+
+    private static void appendParameterAnnotations(StringBuilder sb, String prefix, Attribute attr,
+            ConstantPool cp) throws ConstantPoolException {
+        if (attr == null)
+            return;
+        Annotation[][] params = ((RuntimeParameterAnnotations_attribute) attr).parameter_annotations;
+        for (int i = 0; i < params.length; i++) {
+            for (Annotation a : params[i]) {
+                sb.append(prefix).append(i).append(':');
+                appendAnnotation(sb, a, cp);
+            }
+        }
+    }
+
+    private static void appendAnnotation(StringBuilder sb, Annotation a, ConstantPool cp)
+            throws ConstantPoolException {
+        sb.append(cp.getUTF8Value(a.type_index)).append('(');
+        for (Annotation.element_value_pair p : a.element_value_pairs) {
+            sb.append(cp.getUTF8Value(p.element_name_index)).append('=');
+            appendValue(sb, p.value, cp);
+            sb.append(',');
+        }
+        sb.append(')');
+    }
+
+    private static void appendValue(StringBuilder sb, Annotation.element_value v, ConstantPool cp)
+            throws ConstantPoolException {
+        sb.append((char) v.tag);
+        if (v instanceof Annotation.Primitive_element_value) {
+            int index = ((Annotation.Primitive_element_value) v).const_value_index;
+            CPInfo info = cp.get(index);
+            sb.append(info.getTag() == ConstantPool.CONSTANT_Utf8
+                      ? quote(cp.getUTF8Value(index))
+                      : info.toString());
+        } else if (v instanceof Annotation.Enum_element_value) {
+            Annotation.Enum_element_value e = (Annotation.Enum_element_value) v;
+            sb.append(cp.getUTF8Value(e.type_name_index)).append('.')
+              .append(cp.getUTF8Value(e.const_name_index));
+        } else if (v instanceof Annotation.Class_element_value) {
+            sb.append(cp.getUTF8Value(((Annotation.Class_element_value) v).class_info_index));
+        } else if (v instanceof Annotation.Annotation_element_value) {
+            appendAnnotation(sb, ((Annotation.Annotation_element_value) v).annotation_value, cp);
+        } else {
+            sb.append('{');
+            for (Annotation.element_value e : ((Annotation.Array_element_value) v).values) {
+                appendValue(sb, e, cp);
+                sb.append(',');
+            }
+            sb.append('}');
+        }
+    }
+
+    /**
+     * Add the types of the annotations of a class and its members, and the
+     * enum and class types of their values, to the given set.
+     */
+    private static void annotationTypes(ClassFile cf, Set<String> types)
+            throws ConstantPoolException {
+        ConstantPool cp = cf.constant_pool;
+        annotationTypes(cf.attributes, cp, types);
+        for (Field f : cf.fields)
+            annotationTypes(f.attributes, cp, types);
+        for (Method m : cf.methods)
+            annotationTypes(m.attributes, cp, types);
+    }
+
+    private static void annotationTypes(Attributes attrs, ConstantPool cp, Set<String> types)
+            throws ConstantPoolException {
+        for (Attribute attr : attrs) {
+            if (attr instanceof RuntimeAnnotations_attribute) {
+                for (Annotation a : ((RuntimeAnnotations_attribute) attr).annotations)
+                    annotationTypes(a, cp, types);
+            } else if (attr instanceof RuntimeParameterAnnotations_attribute) {
+                for (Annotation[] params : ((RuntimeParameterAnnotations_attribute) attr).parameter_annotations) {
+                    for (Annotation a : params)
+                        annotationTypes(a, cp, types);
+                }
+            } else if (attr instanceof AnnotationDefault_attribute) {
+                annotationTypes(((AnnotationDefault_attribute) attr).default_value, cp, types);
+            }
+        }
+    }
+
+    private static void annotationTypes(Annotation a, ConstantPool cp, Set<String> types)
+            throws ConstantPoolException {
+        addDescriptorType(cp.getUTF8Value(a.type_index), types);
+        for (Annotation.element_value_pair p : a.element_value_pairs)
+            annotationTypes(p.value, cp, types);
+    }
+
+    private static void annotationTypes(Annotation.element_value v, ConstantPool cp, Set<String> types)
+            throws ConstantPoolException {
+        if (v instanceof Annotation.Enum_element_value) {
+            addDescriptorType(cp.getUTF8Value(((Annotation.Enum_element_value) v).type_name_index), types);
+        } else if (v instanceof Annotation.Class_element_value) {
+            addDescriptorType(cp.getUTF8Value(((Annotation.Class_element_value) v).class_info_index), types);
+        } else if (v instanceof Annotation.Annotation_element_value) {
+            annotationTypes(((Annotation.Annotation_element_value) v).annotation_value, cp, types);
+        } else if (v instanceof Annotation.Array_element_value) {
+            for (Annotation.element_value e : ((Annotation.Array_element_value) v).values)
+                annotationTypes(e, cp, types);
+        }
+    }
+
+    /** Add the class named by a field descriptor, such as "[Lp/A;", if any. */
+    private static void addDescriptorType(String descriptor, Set<String> types) {
+        int start = descriptor.lastIndexOf('[') + 1;
+        if (descriptor.startsWith("L", start) && descriptor.endsWith(";"))
+            types.add(descriptor.substring(start + 1, descriptor.length() - 1));
+    }
+
+    /** Quote a string value, so that it cannot be mistaken for the rest of an item. */
+    private static String quote(String s) {
+        return '"' + s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + '"';
+    }
+
+    private boolean classFilesExist(SourceState s) {
+        for (String c : s.classes.keySet()) {
+            if (!classFile(c).exists())
+                return false;
+        }
+        return true;
+    }
+
+    private File classFile(String className) {
+        return new File(classDir, className.replace('/', File.separatorChar) + ".class");
+    }
+
+    private void deleteClassFile(String className) {
+        classFile(className).delete();
+    }
+
+    private static String path(File f) {
+        try {
+            return f.getCanonicalPath();
+        } catch (IOException e) {
+            return f.getAbsolutePath();
+        }
+    }
+
+    private static String join(String[] args) {
+        StringBuilder sb = new StringBuilder();
+        for (String a : args) {
+            if (sb.length() > 0)
+                sb.append(' ');
+            sb.append(a);
+        }
+        return sb.toString();
+    }
+
+    /*
+     * The state file is a text file:
+     *     javac incremental state 2
+     *     options <the options of the build>
+     *     source <lastModified> <length> <path>
+     *     class <api digest> <constants digest> <internal name>
+     *     super <internal name>
+     *     dep <internal name>
+     * where each source line is followed by the lines of its classes, and
+     * each class line by the lines of its superclass and superinterfaces,
+     * then of the classes it uses.
+     */
+
+    /**
+     * Read the state of the last build, or return null if there is none,
+     * or if it was made with other options.
+     */
+    private Map<String, SourceState> readState(String options) {
+        if (!stateFile.exists())
+            return null;
+        Map<String, SourceState> state = new HashMap<String, SourceState>();
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(stateFile), "UTF-8"));
+            try {
+                if (!STATE_HEADER.equals(in.readLine()))
+                    return null;
+                if (!("options " + options).equals(in.readLine()))
+                    return null;
+                SourceState source = null;
+                ClassState cls = null;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith("source ")) {
+                        String[] parts = line.split(" ", 4);
+                        source = new SourceState(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                        state.put(parts[3], source);
+                        cls = null;
+                    } else if (line.startsWith("class ") && source != null) {
+                        String[] parts = line.split(" ", 4);
+                        cls = new ClassState(parts[1], parts[2]);
+                        source.classes.put(parts[3], cls);
+                    } else if (line.startsWith("super ") && cls != null) {
+                        cls.supertypes.add(line.substring(6));
+                    } else if (line.startsWith("dep ") && cls != null) {
+                        cls.dependencies.add(line.substring(4));
+                    } else {
+                        return null;
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (RuntimeException e) {
+            // a damaged state file: build everything
+            return null;
+        }
+        return state;
+    }
+
+    private void writeState(String options, Map<String, SourceState> state) throws IOException {
+        File tmp = new File(stateFile.getPath() + ".tmp");
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+        try {
+            out.write(STATE_HEADER + "\n");
+            out.write("options " + options + "\n");
+            for (Map.Entry<String, SourceState> e : state.entrySet()) {
+                SourceState s = e.getValue();
+                out.write("source " + s.lastModified + " " + s.length + " " + e.getKey() + "\n");
+                for (Map.Entry<String, ClassState> ce : s.classes.entrySet()) {
+                    ClassState c = ce.getValue();
+                    out.write("class " + c.api + " " + c.constants + " " + ce.getKey() + "\n");
+                    for (String t : c.supertypes)
+                        out.write("super " + t + "\n");
+                    for (String d : c.dependencies)
+                        out.write("dep " + d + "\n");
+                }
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(stateFile)) {
+            stateFile.delete();
+            if (!tmp.renameTo(stateFile))
+                throw new IOException("cannot write " + stateFile);
+        }
+    }
+}
@@ -41,7 +41,11 @@ import static com.sun.tools.javac.util.ListBuffer.lb;
 import static javax.tools.StandardLocation.CLASS_OUTPUT;
 
 import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -83,6 +87,7 @@ import com.sun.tools.javac.comp.Enter;
 import com.sun.tools.javac.comp.Env;
 import com.sun.tools.javac.comp.Flow;
 import com.sun.tools.javac.comp.Lower;
+import com.sun.tools.javac.comp.Resolve;
 import com.sun.tools.javac.comp.Todo;
 import com.sun.tools.javac.comp.TransTypes;
 import com.sun.tools.javac.file.JavacFileManager;
@@ -105,7 +110,9 @@ import com.sun.tools.javac.tree.TreeTranslator;
 import com.sun.tools.javac.util.Abort;
 import com.sun.tools.javac.util.Assert;
 import com.sun.tools.javac.util.BaseFileManager;
+import com.sun.tools.javac.util.ConcurrentNameTable;
 import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.DiagnosticSource;
 import com.sun.tools.javac.util.JCDiagnostic;
 import com.sun.tools.javac.util.List;
 import com.sun.tools.javac.util.ListBuffer;
@@ -226,7 +233,24 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
          * Means output might be generated for some classes in a compilation unit
          * and not others.
          */
-        BY_TODO;
+        BY_TODO,
+
+        /**
+         * Like {@code SIMPLE}, but the flow analysis and the generation of
+         * the classes are done on several threads, see ParallelFlow and
+         * ParallelGenerator.  Only those two phases run in parallel: the
+         * classes are still attributed and desugared one after the other
+         * on the calling thread, since Attr and Lower share a lot of state
+         * between the classes.  Attribution, usually the largest part of a
+         * compilation, is therefore not made faster.
+         * For the compiler's own sources (612 files, one CPU) attribution
+         * took about 11.1s of 16.2s, flow analysis 0.4s, and desugaring
+         * and code generation 4.6s, so that even a perfect split of Flow
+         * and Gen over many threads gives less than 1.5 times the speed;
+         * on the one CPU measured, the policy was about 4% slower.
+         * 只有Flow和Gen是并行的，属性分析(Attr)仍然在调用线程上顺序进行。
+         */
+        PARALLEL;
 
         static CompilePolicy decode(String option) {
             if (option == null)
@@ -241,6 +265,8 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
                 return BY_FILE;
             else if (option.equals("bytodo"))
                 return BY_TODO;
+            else if (option.equals("parallel"))
+                return PARALLEL;
             else
                 return DEFAULT_COMPILE_POLICY;
         }
@@ -457,6 +483,37 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         }
 
         verboseCompilePolicy = options.isSet("verboseCompilePolicy");
+        cacheStats = options.isSet("cacheStats");
+
+        // -XDprofile[=JSON文件]，-XDprofile.top=N 列出最慢的N个源文件和类
+        if (options.isSet("profile")) {
+            profiler = PhaseProfiler.instance(context);
+            profileTop = 10;
+            if (options.isSet("profile.top")) {
+                try {
+                    profileTop = Integer.parseInt(options.get("profile.top"));
+                } catch (NumberFormatException e) {
+                }
+            }
+        }
+
+        // -XDparallelParse[=线程数]，不指定线程数时使用全部处理器
+        if (options.isSet("parallelParse")) {
+            try {
+                parseThreads = Integer.parseInt(options.get("parallelParse"));
+            } catch (NumberFormatException e) {
+                parseThreads = Runtime.getRuntime().availableProcessors();
+            }
+        }
+
+        // -XDparallelThreads=线程数，用于-XDcompilePolicy=parallel，默认使用全部处理器
+        parallelThreads = Runtime.getRuntime().availableProcessors();
+        if (options.isSet("parallelThreads")) {
+            try {
+                parallelThreads = Integer.parseInt(options.get("parallelThreads"));
+            } catch (NumberFormatException e) {
+            }
+        }
 
         // 编译策略
         if (attrParseOnly) {    // 暂时attrParseOnly永远是false
@@ -562,6 +619,44 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
      */
     public boolean verboseCompilePolicy;
 
+    /**
+     * Report the hit rates of the internal caches at the end of the
+     * compilation (-XDcacheStats)
+     */
+    protected boolean cacheStats;
+
+    /**
+     * If not null, the profiler recording the time and memory taken by
+     * each phase, per source file and class (-XDprofile[=json file]).
+     */
+    public PhaseProfiler profiler;
+
+    /**
+     * The number of the slowest source files and classes reported by
+     * the profiler (-XDprofile.top=n).
+     */
+    protected int profileTop;
+
+    /**
+     * The number of threads used to parse the input files, see
+     * ParallelParser; 0 or 1 means that they are parsed one after
+     * the other on the calling thread.
+     */
+    public int parseThreads;
+
+    /**
+     * The number of threads used for the flow analysis and the code
+     * generation by the PARALLEL compile policy, see ParallelFlow and
+     * ParallelGenerator.
+     */
+    public int parallelThreads;
+
+    /**
+     * If not null, the class files written, with the source files they
+     * were generated from, are added to this queue; see IncrementalBuild.
+     */
+    public Queue<Pair<JavaFileObject, JavaFileObject>> generatedFiles;
+
     /**
      * Policy of how far to continue processing. null means until first
      * error.
@@ -602,7 +697,7 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
             return ecs != null && ecs.isDone(cs);
         }
     }
-    private CompileStates compileStates = new CompileStates();
+    CompileStates compileStates = new CompileStates();
 
     /** The set of currently compiled inputfiles, needed to ensure
      *  we don't accidentally overwrite an input file when -s is set.
@@ -649,18 +744,38 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
 
     /** Try to open input stream with given name.
      *  Report an error if this fails.
+     *  The content is returned in a CharBuffer over an array with a spare
+     *  element, which the scanner uses without copying it, and is given to
+     *  the DiagnosticSource of the file when that is the current source,
+     *  so that the line map of diagnostics comes from the same array.
      *  @param filename   The file name of the input stream to be opened.
      */
     public CharSequence readSource(JavaFileObject filename) {
         try {
             inputFiles.add(filename);
-            return filename.getCharContent(false);
+            CharBuffer content = toCharBuffer(filename.getCharContent(false));
+            DiagnosticSource source = log.currentSource();
+            if (content != null && content.hasArray() && source != null && source.getFile() == filename)
+                source.setContent(content);
+            return content;
         } catch (IOException e) {
             log.error("error.reading.file", filename, JavacFileManager.getMessage(e));
             return null;
         }
     }
 
+    /** Copy content which is not a CharBuffer, such as the String of an
+     *  in-memory file object, once into a CharBuffer the scanner can use.
+     */
+    private static CharBuffer toCharBuffer(CharSequence content) {
+        if (content == null || content instanceof CharBuffer)
+            return (CharBuffer) content;
+        String s = content.toString();
+        char[] buf = new char[s.length() + 1];
+        s.getChars(0, s.length(), buf, 0);
+        return CharBuffer.wrap(buf, 0, s.length());
+    }
+
     /** Parse contents of input stream.
      *  解析原文件输入流内容
      *  @param filename     The name of the file from which input stream comes.
@@ -681,6 +796,7 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
                 TaskEvent e = new TaskEvent(TaskEvent.Kind.PARSE, filename);
                 taskListener.started(e);
             }
+            PhaseProfiler.Sample sample = (profiler != null) ? profiler.start() : null;
             // 建立语法分析实例(newParser()函数内部先建立了词法分析实例)
             Parser parser = parserFactory.newParser(content, keepComments(), genEndPos, lineDebugInfo);
             /*
@@ -691,6 +807,8 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
              * 详细请参考parserFactory.newParse内注释
              */
             tree = parser.parseCompilationUnit();
+            if (profiler != null)
+                profiler.record(PhaseProfiler.Phase.PARSE, sample, filename, null);
             if (verbose) {
                 log.printVerbose("parsing.done", Long.toString(elapsed(msec)));
             }
@@ -851,7 +969,10 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
             taskListener.started(e);
         }
 
+        PhaseProfiler.Sample sample = (profiler != null) ? profiler.start() : null;
         enter.complete(List.of(tree), c);
+        if (profiler != null)
+            profiler.record(PhaseProfiler.Phase.ENTER, sample, filename, null);
 
         if (taskListener != null) {
             TaskEvent e = new TaskEvent(TaskEvent.Kind.ENTER, tree);
@@ -996,6 +1117,10 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
                 generate(desugar(flow(attribute(todo))));
                 break;
 
+            case PARALLEL:
+                parallelGenerate(desugar(parallelFlow(attribute(todo))), null);
+                break;
+
             case BY_FILE: {
                     /*
                      * attribute:   {过程3.1:属性分析(或称语义分析)}
@@ -1034,6 +1159,16 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
             log.printVerbose("total", Long.toString(elapsed_msec));
         }
 
+        if (cacheStats) {
+            printNote("[types cache " + types.cacheStatistics() + "]");
+            printNote("[resolve cache " + Resolve.instance(context).cacheStatistics() + "]");
+            for (String line : reader.readStatistics())
+                printNote("[class reader " + line + "]");
+        }
+
+        if (profiler != null)
+            reportProfile();
+
         reportDeferredDiagnostics();
 
         if (!log.hasDiagnosticListener()) {
@@ -1055,18 +1190,36 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         // parse all files
         // JCCompilationUnit是一个类的最顶层语法树，trees里面维持着所有编译好的类文件的最顶层语法树
         ListBuffer<JCCompilationUnit> trees = lb();
-        Set<JavaFileObject> filesSoFar = new HashSet<JavaFileObject>();
-        // HashSet filesSoFar用来剔除fileObjects中可能存在的重复的项目
-        for (JavaFileObject fileObject : fileObjects) {
-            if (!filesSoFar.contains(fileObject)) {
-                filesSoFar.add(fileObject);
-                // parse开始:循环parse每一个类、接口或枚举，
-                // 返回的每个类、接口或枚举对应的最顶层抽象语法树JCCompilationUnit
-                trees.append(parse(fileObject));
-            }
+        // LinkedHashSet filesSoFar用来剔除fileObjects中可能存在的重复的项目，并保持原来的顺序
+        Set<JavaFileObject> filesSoFar = new LinkedHashSet<JavaFileObject>();
+        for (JavaFileObject fileObject : fileObjects)
+            filesSoFar.add(fileObject);
+        if (canParseInParallel(filesSoFar.size()))
+            return new ParallelParser(this, Math.min(parseThreads, filesSoFar.size())).parseFiles(filesSoFar);
+        for (JavaFileObject fileObject : filesSoFar) {
+            // parse开始:循环parse每一个类、接口或枚举，
+            // 返回的每个类、接口或枚举对应的最顶层抽象语法树JCCompilationUnit
+            trees.append(parse(fileObject));
         }
         return trees.toList();
     }
+    // where
+        /**
+         * Whether the files can be handed to ParallelParser: it produces the
+         * same trees and diagnostics as parse(JavaFileObject), but not the
+         * verbose output and task events, and it cannot know about any
+         * subclasses overriding the parser.
+         */
+        private boolean canParseInParallel(int nfiles) {
+            return parseThreads > 1
+                && nfiles > 1
+                && !verbose
+                && taskListener == null
+                && getClass() == JavaCompiler.class
+                && parserFactory.getClass() == ParserFactory.class
+                && log.getClass() == Log.class
+                && names.table instanceof ConcurrentNameTable;
+        }
 
     /**
      * 过程1.2：输入到符号表
@@ -1083,7 +1236,10 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
             }
         }
 
+        PhaseProfiler.Sample sample = (profiler != null) ? profiler.start() : null;
         enter.main(roots);
+        if (profiler != null)
+            profiler.record(PhaseProfiler.Phase.ENTER, sample, null, null);
 
         if (taskListener != null) {
             for (JCCompilationUnit unit: roots) {
@@ -1348,6 +1504,7 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
                                   env.enclClass.sym.sourcefile != null ?
                                   env.enclClass.sym.sourcefile :
                                   env.toplevel.sourcefile);
+        PhaseProfiler.Sample sample = (profiler != null) ? profiler.start() : null;
         try {
             attr.attrib(env);
             if (errorCount() > 0 && !shouldStop(CompileState.ATTR)) {
@@ -1359,6 +1516,8 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         }
         finally {
             log.useSource(prev);
+            if (profiler != null)
+                profile(PhaseProfiler.Phase.ATTRIBUTE, sample, env, env.enclClass.sym);
         }
 
         return env;
@@ -1378,6 +1537,20 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         return stopIfError(CompileState.FLOW, results);
     }
 
+    /**
+     * Perform dataflow checks on attributed parse trees, on several threads
+     * if possible.
+     */
+    public Queue<Env<AttrContext>> parallelFlow(Queue<Env<AttrContext>> envs) {
+        if (parallelThreads > 1
+                && envs.size() > 1
+                && getClass() == JavaCompiler.class
+                && flow.getClass() == Flow.class
+                && names.table instanceof ConcurrentNameTable)
+            return new ParallelFlow(this, Math.min(parallelThreads, envs.size())).flow(envs);
+        return flow(envs);
+    }
+
     /**
      * Perform dataflow checks on an attributed parse tree.
      */
@@ -1406,6 +1579,7 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
                                                 env.enclClass.sym.sourcefile != null ?
                                                 env.enclClass.sym.sourcefile :
                                                 env.toplevel.sourcefile);
+            PhaseProfiler.Sample sample = (profiler != null) ? profiler.start() : null;
             try {
                 make.at(Position.FIRSTPOS);
                 TreeMaker localMake = make.forToplevel(env.toplevel);
@@ -1419,6 +1593,8 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
             }
             finally {
                 log.useSource(prev);
+                if (profiler != null)
+                    profile(PhaseProfiler.Phase.FLOW, sample, env, env.enclClass.sym);
             }
         }
         finally {
@@ -1506,6 +1682,7 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         JavaFileObject prev = log.useSource(env.enclClass.sym.sourcefile != null ?
                                   env.enclClass.sym.sourcefile :
                                   env.toplevel.sourcefile);
+        PhaseProfiler.Sample sample = (profiler != null) ? profiler.start() : null;
         try {
             // save tree prior to rewriting
             JCTree untranslated = env.tree;
@@ -1574,6 +1751,8 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         }
         finally {
             log.useSource(prev);
+            if (profiler != null)
+                profile(PhaseProfiler.Phase.DESUGAR, sample, env, env.enclClass.sym);
         }
 
     }
@@ -1611,6 +1790,7 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
             JavaFileObject prev = log.useSource(env.enclClass.sym.sourcefile != null ?
                                       env.enclClass.sym.sourcefile :
                                       env.toplevel.sourcefile);
+            PhaseProfiler.Sample sample = (profiler != null) ? profiler.start() : null;
             try {
                 JavaFileObject file;
                 if (usePrintSource)
@@ -1619,12 +1799,16 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
                     file = genCode(env, cdef);
                 if (results != null && file != null)
                     results.add(file);
+                if (generatedFiles != null && file != null && !usePrintSource)
+                    generatedFiles.add(new Pair<JavaFileObject, JavaFileObject>(env.toplevel.sourcefile, file));
             } catch (IOException ex) {
                 log.error(cdef.pos(), "class.cant.write",
                           cdef.sym, ex.getMessage());
                 return;
             } finally {
                 log.useSource(prev);
+                if (profiler != null)
+                    profile(PhaseProfiler.Phase.GENERATE, sample, env, cdef.sym);
             }
 
             if (taskListener != null) {
@@ -1634,6 +1818,25 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         }
     }
 
+    /**
+     * Generate code and write class files, on several threads if possible,
+     * with the same results as generate(Queue, Queue).
+     */
+    public void parallelGenerate(Queue<Pair<Env<AttrContext>, JCClassDecl>> queue, Queue<JavaFileObject> results) {
+        if (parallelThreads > 1
+                && queue.size() > 1
+                && !(stubOutput || sourceOutput || printFlat)
+                && !verbose
+                && getClass() == JavaCompiler.class
+                && gen.getClass() == Gen.class
+                && writer.getClass() == ClassWriter.class
+                && types.getClass() == Types.class
+                && names.table instanceof ConcurrentNameTable)
+            new ParallelGenerator(this, Math.min(parallelThreads, queue.size())).generate(queue, results);
+        else
+            generate(queue, results);
+    }
+
         // where
         Map<JCCompilationUnit, Queue<Env<AttrContext>>> groupByFile(Queue<Env<AttrContext>> envs) {
             // use a LinkedHashMap to preserve the order of the original list as much as possible
@@ -1772,6 +1975,33 @@ public class JavaCompiler implements ClassReader.SourceCompleter {
         }
     }
 
+    /** Record a phase of the given class with the profiler. */
+    void profile(PhaseProfiler.Phase phase, PhaseProfiler.Sample sample,
+            Env<AttrContext> env, ClassSymbol c) {
+        profiler.record(phase, sample,
+                c.sourcefile != null ? c.sourcefile : env.toplevel.sourcefile,
+                c.flatname.toString());
+    }
+
+    /** Print the phase times, and write them to the file given by -XDprofile=file. */
+    private void reportProfile() {
+        for (String line : profiler.summary(profileTop))
+            printNote(line);
+        String file = options.get("profile");
+        if (file == null || file.isEmpty() || file.equals("profile"))
+            return;
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            try {
+                profiler.writeJSON(out, profileTop);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            printNote("[profile not written to " + file + ": " + e.getMessage() + "]");
+        }
+    }
+
     private static long now() {
         return System.currentTimeMillis();
     }
@@ -25,6 +25,7 @@ import static com.sun.tools.javac.main.OptionName.D;
 import static com.sun.tools.javac.main.OptionName.FULLVERSION;
 import static com.sun.tools.javac.main.OptionName.HELP;
 import static com.sun.tools.javac.main.OptionName.S;
+import static javax.tools.StandardLocation.CLASS_PATH;
 import static com.sun.tools.javac.main.OptionName.SOURCE;
 import static com.sun.tools.javac.main.OptionName.TARGET;
 import static com.sun.tools.javac.main.OptionName.VERSION;
@@ -36,11 +37,13 @@ import java.io.PrintWriter;
 import java.net.URL;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.MissingResourceException;
 
 import javax.annotation.processing.Processor;
 import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
 
 import com.sun.tools.javac.code.Source;
 import com.sun.tools.javac.file.CacheFSInfo;
@@ -57,6 +60,7 @@ import com.sun.tools.javac.util.List;
 import com.sun.tools.javac.util.ListBuffer;
 import com.sun.tools.javac.util.Log;
 import com.sun.tools.javac.util.Options;
+import com.sun.tools.javac.util.Pair;
 import com.sun.tools.javac.util.PropagatedException;
 
 /**
@@ -104,6 +108,14 @@ public class Main {
 	 */
 	boolean apiMode;
 
+	/**
+	 * Set by IncrementalBuild for each of its compilations.
+	 * 增量编译中的一次编译：-d目录加到类路径的最前面，
+	 * 生成的类文件(及其源文件)记录在generatedFiles中
+	 */
+	boolean incrementalRound;
+	ListBuffer<Pair<JavaFileObject, JavaFileObject>> generatedFiles;
+
 	/**
 	 * Result codes.
 	 * an integer equivalent to the exit value from invoking javac
@@ -404,6 +416,43 @@ public class Main {
 		}
 	}
 
+	/**
+	 * Return the options among the given command line arguments, without
+	 * the source files and without -XDincremental; see IncrementalBuild.
+	 * 返回命令行参数中的选项(包括选项的操作数)，去掉源文件和-XDincremental
+	 */
+	String[] optionArgs(String[] flags) {
+		java.util.List<String> result = new ArrayList<String>();
+		Option sourceFile = this.recognizedOptions[this.recognizedOptions.length - 1];
+		int ac = 0;
+		while (ac < flags.length) {
+			String flag = flags[ac++];
+			Option option = null;
+			if (flag.length() > 0 && flag.charAt(0) == '-') {
+				for (Option o : this.recognizedOptions) {
+					if (o != sourceFile && o.matches(flag)) {
+						option = o;
+						break;
+					}
+				}
+			}
+			if (option == null) {
+				continue; // 源文件或类名
+			}
+			boolean keep = !flag.startsWith("-XDincremental");
+			if (keep) {
+				result.add(flag);
+			}
+			if (option.hasArg() && ac < flags.length) {
+				String operand = flags[ac++];
+				if (keep) {
+					result.add(operand);
+				}
+			}
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
 	// where
 	/**
 	 * 检查-d选项的后缀操作数是不是一个目录
@@ -491,10 +540,12 @@ public class Main {
 			}
 
 			List<File> files;
+			String[] flags;
 			try {
 				// 处理所有的命令行参数并存入options中
 				// 返回源代码文件列表
-				files = processArgs(CommandLine.parse(args));
+				flags = CommandLine.parse(args);
+				files = processArgs(flags);
 				if (files == null) {
 					// null signals an error in options, abort
 					return EXIT_CMDERR; // 非法的命令行参数
@@ -519,6 +570,18 @@ public class Main {
 				Log.printLines(this.out, this.ownName + ": " + getLocalizedString("err.file.not.found", e.getMessage()));
 				return EXIT_SYSERR; // 系统错误或者资源枯竭
 			}
+			// -XDincremental[=状态文件]：只编译修改过的源文件和受影响的源文件
+			if (this.options.isSet("incremental") && !this.incrementalRound && !this.apiMode
+					&& fileObjects.isEmpty() && this.classnames.isEmpty()) {
+				String classDir = this.options.get(D);
+				if (classDir != null) {
+					String stateFile = this.options.get("incremental");
+					return new IncrementalBuild(this, optionArgs(flags), files, new File(classDir),
+							stateFile.equals("incremental") ? null : stateFile).run();
+				}
+				Log.printLines(this.out, this.ownName + ": -XDincremental requires -d, compiling all files");
+			}
+
 			boolean forceStdOut = this.options.isSet("stdout");
 			if (forceStdOut) {
 				this.out.flush();
@@ -537,12 +600,26 @@ public class Main {
 			}
 
 			this.fileManager = context.get(JavaFileManager.class);
+			if (this.incrementalRound && this.fileManager instanceof StandardJavaFileManager) {
+				// 没有重新编译的类从上一次编译的类文件中读取
+				StandardJavaFileManager sfm = (StandardJavaFileManager) this.fileManager;
+				java.util.List<File> path = new ArrayList<File>();
+				path.add(new File(this.options.get(D)));
+				Iterable<? extends File> classPath = sfm.getLocation(CLASS_PATH);
+				if (classPath != null) {
+					for (File f : classPath) {
+						path.add(f);
+					}
+				}
+				sfm.setLocation(CLASS_PATH, path);
+			}
 
 			// 取得编译器实例
 			comp = JavaCompiler.instance(context);
 			if (comp == null) {
 				return EXIT_SYSERR;
 			}
+			comp.generatedFiles = this.generatedFiles;
 
 			Log log = Log.instance(context);
 
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package com.sun.tools.javac.main;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.tools.JavaFileObject;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.tools.javac.code.CompletionLock;
+import com.sun.tools.javac.comp.AttrContext;
+import com.sun.tools.javac.comp.Env;
+import com.sun.tools.javac.comp.Flow;
+import com.sun.tools.javac.main.JavaCompiler.CompileState;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeMaker;
+import com.sun.tools.javac.util.Abort;
+import com.sun.tools.javac.util.DiagnosticSource;
+import com.sun.tools.javac.util.JCDiagnostic;
+import com.sun.tools.javac.util.ListBuffer;
+import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Position;
+
+/**
+ * Does the flow analysis of JavaCompiler.CompilePolicy.PARALLEL: the
+ * classes, attributed on the calling thread, are analyzed on several
+ * threads (-XDparallelThreads=threads).
+ * 多线程数据流分析：每个工作线程有自己的Flow(见Flow.fork)和WorkerLog，
+ * 各个类的分析互不相关。Flow所用的Check、Types、Resolve以及符号的补全
+ * (Symbol.complete)由本context的CompletionLock保护。工作线程的诊断信息由主线程
+ * 按原来的顺序报告，在第一个出错的类之后的结果与顺序分析时一样被丢弃，
+ * 所以输出与SIMPLE策略相同。
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+class ParallelFlow {
+
+    private final JavaCompiler compiler;
+    private final Log log;
+    private final int nthreads;
+    private final CompletionLock completionLock;
+
+    /** The flow analyzers and logs of the worker threads not currently in use. */
+    private final BlockingQueue<Worker> idle;
+
+    ParallelFlow(JavaCompiler compiler, int nthreads) {
+        this.compiler = compiler;
+        this.log = compiler.log;
+        this.nthreads = nthreads;
+        completionLock = CompletionLock.instance(compiler.context);
+        idle = new ArrayBlockingQueue<Worker>(nthreads);
+        // the workers are created here, since Context is not thread-safe
+        for (int i = 0; i < nthreads; i++)
+            idle.add(new Worker());
+    }
+
+    /**
+     * Perform dataflow checks on the given attributed parse trees, with
+     * the same results as JavaCompiler.flow(Queue).
+     */
+    Queue<Env<AttrContext>> flow(Queue<Env<AttrContext>> envs) {
+        ListBuffer<Env<AttrContext>> results = ListBuffer.lb();
+        if (compiler.shouldStop(CompileState.FLOW))
+            return compiler.stopIfError(CompileState.FLOW, results);
+
+        java.util.List<Unit> units = new ArrayList<Unit>();
+        for (Env<AttrContext> env : envs)
+            units.add(new Unit(env));
+
+        ExecutorService executor = Executors.newFixedThreadPool(nthreads, new ThreadFactory() {
+            int count;
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "javac-flow-" + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            for (final Unit u : units) {
+                if (u.skip)
+                    continue;
+                u.result = executor.submit(new Callable<Void>() {
+                    public Void call() throws InterruptedException {
+                        Worker w = idle.take();
+                        completionLock.enter();
+                        try {
+                            w.analyze(u);
+                        } finally {
+                            completionLock.leave();
+                            idle.add(w);
+                        }
+                        return null;
+                    }
+                });
+            }
+            for (Unit u : units) {
+                if (u.result != null)
+                    waitFor(u);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Unit u : units)
+            finish(u, results);
+        return compiler.stopIfError(CompileState.FLOW, results);
+    }
+
+    /** A class on its way through the flow analysis. */
+    private class Unit {
+        final Env<AttrContext> env;
+        /** True if the class needs no flow analysis. */
+        final boolean skip;
+        JavaFileObject file;
+        Map<JCTree, Integer> endPositions;
+        TreeMaker make;
+        Future<Void> result;
+        /** The exception thrown by the analysis, if any. */
+        Throwable failure;
+        /** Set by the worker: diagnostics reported during the analysis. */
+        Queue<JCDiagnostic> diagnostics;
+
+        Unit(Env<AttrContext> env) {
+            this.env = env;
+            skip = compiler.relax || compiler.compileStates.isDone(env, CompileState.FLOW);
+            if (skip)
+                return;
+            file = (env.enclClass.sym.sourcefile != null)
+                ? env.enclClass.sym.sourcefile
+                : env.toplevel.sourcefile;
+            JavaFileObject prev = log.useSource(file);
+            try {
+                endPositions = log.currentSource().getEndPosTable();
+            } finally {
+                log.useSource(prev);
+            }
+            compiler.make.at(Position.FIRSTPOS);
+            make = compiler.make.forToplevel(env.toplevel);
+        }
+    }
+
+    private void waitFor(Unit u) {
+        try {
+            u.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Abort(e);
+        } catch (ExecutionException e) {
+            u.failure = e.getCause();
+        }
+    }
+
+    /**
+     * Report the diagnostics of a unit, just as JavaCompiler.flow(Env, Queue)
+     * would have done.
+     */
+    private void finish(Unit u, Queue<Env<AttrContext>> results) {
+        try {
+            if (compiler.shouldStop(CompileState.FLOW))
+                return;
+
+            if (u.skip) {
+                results.add(u.env);
+                return;
+            }
+
+            if (compiler.verboseCompilePolicy)
+                compiler.printNote("[flow " + u.env.enclClass.sym + "]");
+            if (u.diagnostics != null) {
+                for (JCDiagnostic d : u.diagnostics)
+                    log.report(d);
+            }
+            if (u.failure instanceof RuntimeException)
+                throw (RuntimeException) u.failure;
+            if (u.failure instanceof Error)
+                throw (Error) u.failure;
+            if (u.failure != null)
+                throw new Abort(u.failure);
+            compiler.compileStates.put(u.env, CompileState.FLOW);
+
+            if (compiler.shouldStop(CompileState.FLOW))
+                return;
+
+            results.add(u.env);
+        } finally {
+            if (compiler.taskListener != null) {
+                TaskEvent e = new TaskEvent(TaskEvent.Kind.ANALYZE, u.env.toplevel, u.env.enclClass.sym);
+                compiler.taskListener.finished(e);
+            }
+        }
+    }
+
+    /** The flow analyzer and log of one worker thread. */
+    private class Worker {
+        final WorkerLog wlog;
+        final Flow flow;
+
+        Worker() {
+            wlog = new WorkerLog(compiler.context);
+            flow = compiler.flow.fork(wlog);
+        }
+
+        void analyze(Unit u) {
+            wlog.reset(log.nerrors, log.nwarnings);
+            wlog.useSource(u.file);
+            DiagnosticSource source = wlog.currentSource();
+            if (u.endPositions != null && source.getEndPosTable() == null)
+                source.setEndPosTable(u.endPositions);
+            PhaseProfiler.Sample sample = (compiler.profiler != null) ? compiler.profiler.start() : null;
+            try {
+                flow.analyzeTree(u.env, u.make);
+            } finally {
+                if (compiler.profiler != null)
+                    compiler.profile(PhaseProfiler.Phase.FLOW, sample, u.env, u.env.enclClass.sym);
+                u.diagnostics = wlog.takeDiagnostics();
+                u.make = null;
+                wlog.useSource(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package com.sun.tools.javac.main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.tools.JavaFileObject;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.tools.javac.code.CompletionLock;
+import com.sun.tools.javac.code.Symbol.CompletionFailure;
+import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.comp.AttrContext;
+import com.sun.tools.javac.comp.Env;
+import com.sun.tools.javac.jvm.ClassWriter;
+import com.sun.tools.javac.jvm.Gen;
+import com.sun.tools.javac.main.JavaCompiler.CompileState;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.util.Abort;
+import com.sun.tools.javac.util.DiagnosticSource;
+import com.sun.tools.javac.util.JCDiagnostic;
+import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Pair;
+
+/**
+ * Does the code generation of JavaCompiler.CompilePolicy.PARALLEL: the
+ * desugared classes are generated and written on several threads
+ * (-XDparallelThreads=threads).
+ * 多线程生成字节码：每个工作线程有自己的Gen、ClassWriter(因而有自己的Code、
+ * Pool和缓冲区)、Types(见Types.fork)以及WorkerLog。工作线程只把类文件的内容
+ * 生成到内存中；类文件、诊断信息和TaskListener的GENERATE finished事件都由
+ * 主线程按原来的顺序写出、报告。GENERATE started事件在开始生成之前，也在主线程
+ * 中按顺序报告。与顺序生成一样，出错之后的类不会写出类文件，
+ * 上一次编译留下的类文件也不会被改动或删除。
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+class ParallelGenerator {
+
+    private final JavaCompiler compiler;
+    private final Log log;
+    private final int nthreads;
+    private final CompletionLock completionLock;
+
+    /** The code generators and logs of the worker threads not currently in use. */
+    private final BlockingQueue<Worker> idle;
+
+    ParallelGenerator(JavaCompiler compiler, int nthreads) {
+        this.compiler = compiler;
+        this.log = compiler.log;
+        this.nthreads = nthreads;
+        completionLock = CompletionLock.instance(compiler.context);
+        idle = new ArrayBlockingQueue<Worker>(nthreads);
+        // the workers are created here, since Context is not thread-safe
+        for (int i = 0; i < nthreads; i++)
+            idle.add(new Worker());
+    }
+
+    /**
+     * Generate the given classes, with the same results as
+     * JavaCompiler.generate(Queue, Queue).
+     */
+    void generate(Queue<Pair<Env<AttrContext>, JCClassDecl>> queue, Queue<JavaFileObject> results) {
+        if (compiler.shouldStop(CompileState.GENERATE))
+            return;
+
+        java.util.List<Unit> units = new ArrayList<Unit>();
+        for (Pair<Env<AttrContext>, JCClassDecl> x : queue)
+            units.add(new Unit(x.fst, x.snd));
+
+        // the listener is never called while the workers are running
+        if (compiler.taskListener != null) {
+            for (Unit u : units) {
+                TaskEvent e = new TaskEvent(TaskEvent.Kind.GENERATE, u.env.toplevel, u.cdef.sym);
+                compiler.taskListener.started(e);
+            }
+        }
+
+        final boolean write = (compiler.errorCount() == 0);
+        ExecutorService executor = Executors.newFixedThreadPool(nthreads, new ThreadFactory() {
+            int count;
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "javac-gen-" + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            for (final Unit u : units) {
+                u.result = executor.submit(new Callable<Void>() {
+                    public Void call() throws InterruptedException {
+                        Worker w = idle.take();
+                        completionLock.enter();
+                        try {
+                            w.generate(u, write);
+                        } finally {
+                            completionLock.leave();
+                            idle.add(w);
+                        }
+                        return null;
+                    }
+                });
+            }
+            for (Unit u : units)
+                waitFor(u);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // classes after one that could not be written, or that failed,
+        // would not have been generated at all
+        for (Unit u : units) {
+            if (!finish(u, results))
+                break;
+        }
+    }
+
+    /** A class on its way through the code generator. */
+    private class Unit {
+        final Env<AttrContext> env;
+        final JCClassDecl cdef;
+        final JavaFileObject file;
+        final Map<JCTree, Integer> endPositions;
+        Future<Void> result;
+        /** The exception thrown by the code generator, if any. */
+        Throwable failure;
+        /** Set by the worker: the contents of the class file, if any. */
+        byte[] classFile;
+        /** Set by the worker if the class file could not be written. */
+        IOException writeFailure;
+        /** Set by the worker: diagnostics reported while generating the class. */
+        Queue<JCDiagnostic> diagnostics;
+
+        Unit(Env<AttrContext> env, JCClassDecl cdef) {
+            this.env = env;
+            this.cdef = cdef;
+            file = (env.enclClass.sym.sourcefile != null)
+                ? env.enclClass.sym.sourcefile
+                : env.toplevel.sourcefile;
+            JavaFileObject prev = log.useSource(file);
+            try {
+                endPositions = log.currentSource().getEndPosTable();
+            } finally {
+                log.useSource(prev);
+            }
+        }
+    }
+
+    private void waitFor(Unit u) {
+        try {
+            u.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Abort(e);
+        } catch (ExecutionException e) {
+            u.failure = e.getCause();
+        }
+    }
+
+    /**
+     * Report the diagnostics of a unit, just as JavaCompiler.generate(Queue, Queue)
+     * would have done.
+     * @return false if no more classes should be generated
+     */
+    private boolean finish(Unit u, Queue<JavaFileObject> results) {
+        if (compiler.verboseCompilePolicy)
+            compiler.printNote("[generate code " + u.cdef.sym + "]");
+
+        JavaFileObject prev = log.useSource(u.file);
+        try {
+            if (u.diagnostics != null) {
+                for (JCDiagnostic d : u.diagnostics)
+                    log.report(d);
+            }
+            if (u.failure instanceof RuntimeException)
+                throw (RuntimeException) u.failure;
+            if (u.failure instanceof Error)
+                throw (Error) u.failure;
+            if (u.failure != null)
+                throw new Abort(u.failure);
+            // the class file is only written if no errors have been
+            // reported so far, as in JavaCompiler.genCode
+            JavaFileObject output = null;
+            if (u.writeFailure == null && u.classFile != null && compiler.errorCount() == 0) {
+                try {
+                    output = compiler.writer.writeClass(u.cdef.sym, u.classFile);
+                } catch (IOException ex) {
+                    u.writeFailure = ex;
+                }
+            }
+            if (u.writeFailure != null) {
+                log.error(u.cdef.pos(), "class.cant.write",
+                          u.cdef.sym, u.writeFailure.getMessage());
+                return false;
+            }
+            if (results != null && output != null)
+                results.add(output);
+            if (compiler.generatedFiles != null && output != null)
+                compiler.generatedFiles.add(
+                    new Pair<JavaFileObject, JavaFileObject>(u.env.toplevel.sourcefile, output));
+        } finally {
+            log.useSource(prev);
+        }
+
+        if (compiler.taskListener != null) {
+            TaskEvent e = new TaskEvent(TaskEvent.Kind.GENERATE, u.env.toplevel, u.cdef.sym);
+            compiler.taskListener.finished(e);
+        }
+        return true;
+    }
+
+    /** The code generator, class writer and log of one worker thread. */
+    private class Worker {
+        final WorkerLog wlog;
+        final Gen gen;
+        final ClassWriter writer;
+
+        Worker() {
+            wlog = new WorkerLog(compiler.context);
+            Types types = compiler.types.fork();
+            gen = compiler.gen.fork(wlog, types);
+            writer = compiler.writer.fork(wlog, types);
+        }
+
+        void generate(Unit u, boolean write) {
+            wlog.reset(log.nerrors, log.nwarnings);
+            wlog.useSource(u.file);
+            DiagnosticSource source = wlog.currentSource();
+            if (u.endPositions != null && source.getEndPosTable() == null)
+                source.setEndPosTable(u.endPositions);
+            PhaseProfiler.Sample sample = (compiler.profiler != null) ? compiler.profiler.start() : null;
+            try {
+                if (gen.genClass(u.env, u.cdef) && write) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    writer.writeClassFile(out, u.cdef.sym);
+                    u.classFile = out.toByteArray();
+                }
+            } catch (ClassWriter.PoolOverflow ex) {
+                wlog.error(u.cdef.pos(), "limit.pool");
+            } catch (ClassWriter.StringOverflow ex) {
+                wlog.error(u.cdef.pos(), "limit.string.overflow",
+                           ex.value.substring(0, 20));
+            } catch (CompletionFailure ex) {
+                compiler.chk.completionError(wlog, u.cdef.pos(), ex);
+            } catch (IOException ex) {
+                u.writeFailure = ex;
+            } finally {
+                if (compiler.profiler != null)
+                    compiler.profile(PhaseProfiler.Phase.GENERATE, sample, u.env, u.cdef.sym);
+                u.diagnostics = wlog.takeDiagnostics();
+                wlog.useSource(null);
+            }
+        }
+    }
+}
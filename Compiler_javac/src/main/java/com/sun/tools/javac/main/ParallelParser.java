@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.main;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.tools.JavaFileObject;
+
+import com.sun.tools.javac.parser.ParserFactory;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Abort;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.DiagnosticSource;
+import com.sun.tools.javac.util.JCDiagnostic;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.ListBuffer;
+import com.sun.tools.javac.util.Log;
+
+/**
+ * Parses the compilation units of JavaCompiler.parseFiles on several
+ * threads (-XDparallelParse[=threads]).
+ * 多线程语法分析：源文件仍在主线程中按顺序读取(文件管理器不是线程安全的)，
+ * 然后交给工作线程做词法、语法分析。每个工作线程有自己的ParserFactory、
+ * TreeMaker和Log，只共享名称表(ConcurrentNameTable)。工作线程中的诊断信息
+ * 先缓存起来，再由主线程按输入文件的顺序报告，所以输出与顺序分析时相同。
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+class ParallelParser {
+
+    /** How many files may be read ahead of the oldest unfinished one, per thread. */
+    private static final int READ_AHEAD = 4;
+
+    private final JavaCompiler compiler;
+    private final Log log;
+    private final int nthreads;
+
+    /** The parser factories and logs of the worker threads not currently parsing. */
+    private final BlockingQueue<Worker> idle;
+
+    ParallelParser(JavaCompiler compiler, int nthreads) {
+        this.compiler = compiler;
+        this.log = compiler.log;
+        this.nthreads = nthreads;
+        idle = new ArrayBlockingQueue<Worker>(nthreads);
+        // the workers are created here, since Context is not thread-safe
+        for (int i = 0; i < nthreads; i++)
+            idle.add(new Worker(compiler.context, compiler.parserFactory));
+    }
+
+    /**
+     * Parse the given files, which contain no duplicates, and return the
+     * trees in the same order.
+     */
+    List<JCCompilationUnit> parseFiles(Iterable<JavaFileObject> files) {
+        ListBuffer<JCCompilationUnit> trees = ListBuffer.lb();
+        Queue<Unit> pending = new LinkedList<Unit>();
+        ExecutorService executor = Executors.newFixedThreadPool(nthreads, new ThreadFactory() {
+            int count;
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "javac-parser-" + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            for (JavaFileObject file : files) {
+                final Unit u = read(file);
+                if (u.content != null) {
+                    u.result = executor.submit(new Callable<JCCompilationUnit>() {
+                        public JCCompilationUnit call() throws InterruptedException {
+                            Worker w = idle.take();
+                            try {
+                                return w.parse(u);
+                            } finally {
+                                idle.add(w);
+                            }
+                        }
+                    });
+                }
+                pending.add(u);
+                if (pending.size() > READ_AHEAD * nthreads)
+                    trees.append(finish(pending.remove()));
+            }
+            while (!pending.isEmpty())
+                trees.append(finish(pending.remove()));
+        } finally {
+            executor.shutdownNow();
+        }
+        return trees.toList();
+    }
+
+    /** A compilation unit on its way through the parser. */
+    private static class Unit {
+        final JavaFileObject file;
+        /** Diagnostics reported while reading the file. */
+        final Queue<JCDiagnostic> readDiagnostics = new ListBuffer<JCDiagnostic>();
+        CharSequence content;
+        Future<JCCompilationUnit> result;
+        /** Set by the worker: diagnostics reported while parsing the file. */
+        Queue<JCDiagnostic> diagnostics;
+        /** Set by the worker: the source used in those diagnostics. */
+        DiagnosticSource source;
+
+        Unit(JavaFileObject file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Read a file on the calling thread, keeping back any errors until
+     * the diagnostics of the files before it have been reported.
+     */
+    private Unit read(JavaFileObject file) {
+        Unit u = new Unit(file);
+        JavaFileObject prev = log.useSource(file);
+        boolean prevDefer = log.deferDiagnostics;
+        Queue<JCDiagnostic> prevDeferred = log.deferredDiagnostics;
+        log.deferDiagnostics = true;
+        log.deferredDiagnostics = u.readDiagnostics;
+        try {
+            u.content = compiler.readSource(file);
+        } finally {
+            log.deferDiagnostics = prevDefer;
+            log.deferredDiagnostics = prevDeferred;
+            log.useSource(prev);
+        }
+        return u;
+    }
+
+    /**
+     * Wait for the tree of a unit, and report its diagnostics, just as
+     * JavaCompiler.parse(JavaFileObject) would have done.
+     */
+    private JCCompilationUnit finish(Unit u) {
+        JCCompilationUnit tree;
+        for (JCDiagnostic d : u.readDiagnostics)
+            log.report(d);
+        if (u.result == null) {
+            tree = compiler.make.TopLevel(List.<JCTree.JCAnnotation>nil(), null, List.<JCTree>nil());
+            tree.sourcefile = u.file;
+            return tree;
+        }
+        try {
+            tree = u.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Abort(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new Abort(cause);
+        }
+        for (JCDiagnostic d : u.diagnostics)
+            log.report(d);
+        if (tree.endPositions != null) {
+            log.setEndPosTable(u.file, tree.endPositions);
+            u.source.setEndPosTable(tree.endPositions);
+        }
+        return tree;
+    }
+
+    /** The parser factory and log of one worker thread. */
+    private class Worker {
+        final WorkerLog wlog;
+        final ParserFactory parserFactory;
+
+        Worker(Context mainContext, ParserFactory mainFactory) {
+            wlog = new WorkerLog(mainContext);
+            parserFactory = mainFactory.fork(wlog);
+        }
+
+        JCCompilationUnit parse(Unit u) {
+            wlog.reset(0, 0);
+            wlog.current = new ContentSource(u.file, u.content, wlog);
+            wlog.useSource(u.file);
+            PhaseProfiler profiler = compiler.profiler;
+            PhaseProfiler.Sample sample = (profiler != null) ? profiler.start() : null;
+            try {
+                JCCompilationUnit tree = parserFactory.newParser(u.content,
+                        compiler.keepComments(), compiler.genEndPos, compiler.lineDebugInfo)
+                        .parseCompilationUnit();
+                tree.sourcefile = u.file;
+                if (profiler != null)
+                    profiler.record(PhaseProfiler.Phase.PARSE, sample, u.file, null);
+                return tree;
+            } finally {
+                u.diagnostics = wlog.takeDiagnostics();
+                u.source = wlog.current;
+                u.content = null;
+                wlog.current = null;
+                wlog.useSource(null);
+            }
+        }
+    }
+
+    private static class ContentSource extends DiagnosticSource {
+        private final CharSequence content;
+
+        ContentSource(JavaFileObject file, CharSequence content, Log log) {
+            super(file, log);
+            this.content = content;
+        }
+
+        @Override
+        protected char[] initBuf(JavaFileObject fileObject) throws IOException {
+            return initBuf(content);
+        }
+    }
+}
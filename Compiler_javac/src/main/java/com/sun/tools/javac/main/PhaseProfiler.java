@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.main;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.util.Context;
+
+/**
+ * Records the wall time, CPU time and allocated bytes of the phases of a
+ * compilation, per compilation unit and per class (-XDprofile[=json file]).
+ * 编译各阶段的耗时统计：JavaCompiler在每个阶段的开始调用start()，结束时调用
+ * record()，CPU时间和分配的字节数都按当前线程计算，所以多线程的语法分析、
+ * 数据流分析和字节码生成也能正确统计。阶段可以嵌套(例如属性分析时按需要
+ * 分析、输入的源文件)，每个记录只算它自己的部分，不包括嵌套在里面的阶段，
+ * 所以各阶段的和就是总的时间。
+ *
+ * With several threads (-XDparallelParse, -XDcompilePolicy=parallel) the
+ * times of the units are added up over the threads, so a phase may take
+ * more wall time than the whole compilation, whose time is that of the
+ * thread that created the profiler.
+ *
+ * The profiler is also a TaskListener, so that it can be used through
+ * JavacTask.setTaskListener.  Task events do not separate attribution
+ * from flow analysis, nor desugaring from code generation, so the
+ * ANALYZE events are recorded as ATTRIBUTE and the GENERATE events as
+ * GENERATE; and, since they need not be nested, the times recorded
+ * through the listener include any nested phases.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class PhaseProfiler implements TaskListener {
+
+    /** The context key for the profiler. */
+    public static final Context.Key<PhaseProfiler> profilerKey =
+        new Context.Key<PhaseProfiler>();
+
+    /** Get the profiler of a context, creating it if there is none;
+     *  the profiler is carried over to the contexts of later annotation
+     *  processing rounds.
+     */
+    public static PhaseProfiler instance(Context context) {
+        PhaseProfiler instance = context.get(profilerKey);
+        if (instance == null) {
+            instance = new PhaseProfiler();
+            context.put(profilerKey, instance);
+        }
+        return instance;
+    }
+
+    public enum Phase {
+        PARSE("parse"),
+        ENTER("enter"),
+        PROCESS("process"),
+        ATTRIBUTE("attribute"),
+        FLOW("flow"),
+        DESUGAR("desugar"),
+        GENERATE("generate");
+
+        public final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    /** The state of the current thread at the start of a phase. */
+    public static class Sample {
+        final long wall;
+        final long cpu;
+        final long allocated;
+        /** The enclosing phase on the same thread, if this sample is nested. */
+        final Sample outer;
+        final boolean nested;
+        /** The time and memory taken by the phases nested in this one. */
+        long innerWall, innerCpu, innerAllocated;
+
+        Sample(long wall, long cpu, long allocated, Sample outer, boolean nested) {
+            this.wall = wall;
+            this.cpu = cpu;
+            this.allocated = allocated;
+            this.outer = outer;
+            this.nested = nested;
+        }
+    }
+
+    /** Accumulated time and memory. */
+    static class Times {
+        long wall;
+        long cpu;
+        long allocated;
+        int count;
+
+        void add(long wall, long cpu, long allocated) {
+            this.wall += wall;
+            this.cpu += cpu;
+            this.allocated += allocated;
+            count++;
+        }
+    }
+
+    /** The times of one source file or class, with the wall time per phase. */
+    static class Entry extends Times {
+        final String name;
+        final String file;
+        final long[] phaseWall = new long[Phase.values().length];
+
+        Entry(String name, String file) {
+            this.name = name;
+            this.file = file;
+        }
+    }
+
+    private final ThreadMXBean threads;
+    private final boolean cpuSupported;
+    private final com.sun.management.ThreadMXBean allocation;
+
+    private final Sample startSample;
+    private final ThreadLocal<Sample> current = new ThreadLocal<Sample>();
+
+    private final Times[] phases = new Times[Phase.values().length];
+    private final Map<JavaFileObject, Entry> files = new LinkedHashMap<JavaFileObject, Entry>();
+    private final Map<String, Entry> classes = new LinkedHashMap<String, Entry>();
+
+    /** The samples of task events that have been started but not finished. */
+    private final Map<Object, Sample> events = new HashMap<Object, Sample>();
+
+    public PhaseProfiler() {
+        threads = ManagementFactory.getThreadMXBean();
+        boolean cpu = threads.isCurrentThreadCpuTimeSupported();
+        if (cpu && !threads.isThreadCpuTimeEnabled()) {
+            try {
+                threads.setThreadCpuTimeEnabled(true);
+            } catch (UnsupportedOperationException e) {
+                cpu = false;
+            }
+        }
+        cpuSupported = cpu;
+        com.sun.management.ThreadMXBean alloc = null;
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            alloc = (com.sun.management.ThreadMXBean) threads;
+            if (!alloc.isThreadAllocatedMemorySupported())
+                alloc = null;
+            else if (!alloc.isThreadAllocatedMemoryEnabled())
+                alloc.setThreadAllocatedMemoryEnabled(true);
+        }
+        allocation = alloc;
+        for (int i = 0; i < phases.length; i++)
+            phases[i] = new Times();
+        startSample = sample(null, false);
+    }
+
+    private Sample sample(Sample outer, boolean nested) {
+        long cpu = cpuSupported ? threads.getCurrentThreadCpuTime() : 0;
+        long allocated = (allocation != null)
+            ? allocation.getThreadAllocatedBytes(Thread.currentThread().getId())
+            : 0;
+        return new Sample(System.nanoTime(), cpu, allocated, outer, nested);
+    }
+
+    /** Start a phase on the current thread.  Each call must be followed
+     *  by a call of record, on the same thread; the phases started in
+     *  between are nested in this one.
+     */
+    public Sample start() {
+        Sample s = sample(current.get(), true);
+        current.set(s);
+        return s;
+    }
+
+    /**
+     * Record a phase started on the current thread.
+     * @param phase     the phase
+     * @param start     the sample returned by start()
+     * @param file      the source file the phase worked on, or null if
+     *                  it was not about a single file
+     * @param className the flat name of the class the phase worked on,
+     *                  or null
+     */
+    public void record(Phase phase, Sample start, JavaFileObject file, String className) {
+        Sample end = sample(null, false);
+        long wall = end.wall - start.wall;
+        long cpu = end.cpu - start.cpu;
+        long allocated = end.allocated - start.allocated;
+        if (start.nested) {
+            // a phase left by an exception is simply dropped
+            current.set(start.outer);
+            if (start.outer != null) {
+                start.outer.innerWall += wall;
+                start.outer.innerCpu += cpu;
+                start.outer.innerAllocated += allocated;
+            }
+            wall -= start.innerWall;
+            cpu -= start.innerCpu;
+            allocated -= start.innerAllocated;
+        }
+        add(phase, file, className, wall, cpu, allocated);
+    }
+
+    private synchronized void add(Phase phase, JavaFileObject file, String className,
+            long wall, long cpu, long allocated) {
+        phases[phase.ordinal()].add(wall, cpu, allocated);
+        String fileName = null;
+        if (file != null) {
+            Entry e = files.get(file);
+            if (e == null) {
+                e = new Entry(file.getName(), null);
+                files.put(file, e);
+            }
+            e.add(wall, cpu, allocated);
+            e.phaseWall[phase.ordinal()] += wall;
+            fileName = e.name;
+        }
+        if (className != null) {
+            Entry e = classes.get(className);
+            if (e == null) {
+                e = new Entry(className, fileName);
+                classes.put(className, e);
+            }
+            e.add(wall, cpu, allocated);
+            e.phaseWall[phase.ordinal()] += wall;
+        }
+    }
+
+    /** The phase recorded for an event, or null if the kind is not recorded. */
+    private static Phase phase(TaskEvent.Kind kind) {
+        switch (kind) {
+        case PARSE:
+            return Phase.PARSE;
+        case ENTER:
+            return Phase.ENTER;
+        case ANNOTATION_PROCESSING_ROUND:
+            return Phase.PROCESS;
+        case ANALYZE:
+            return Phase.ATTRIBUTE;
+        case GENERATE:
+            return Phase.GENERATE;
+        default:
+            return null;
+        }
+    }
+
+    private static Object key(TaskEvent e) {
+        Object subject = (e.getTypeElement() != null)
+            ? e.getTypeElement()
+            : e.getSourceFile();
+        return Arrays.asList(e.getKind(), subject);
+    }
+
+    public void started(TaskEvent e) {
+        if (phase(e.getKind()) == null)
+            return;
+        Sample s = sample(null, false);
+        synchronized (this) {
+            events.put(key(e), s);
+        }
+    }
+
+    public void finished(TaskEvent e) {
+        Phase phase = phase(e.getKind());
+        if (phase == null)
+            return;
+        Sample s;
+        synchronized (this) {
+            s = events.remove(key(e));
+        }
+        if (s == null)
+            return;
+        TypeElement te = e.getTypeElement();
+        String className = null;
+        if (te instanceof ClassSymbol)
+            className = ((ClassSymbol) te).flatname.toString();
+        else if (te != null)
+            className = te.getQualifiedName().toString();
+        record(phase, s, e.getSourceFile(), className);
+    }
+
+    /**
+     * The summary printed with -XDprofile: one line per phase, followed by
+     * the slowest source files.
+     */
+    public synchronized List<String> summary(int top) {
+        List<String> lines = new ArrayList<String>();
+        for (Phase p : Phase.values()) {
+            Times t = phases[p.ordinal()];
+            if (t.count == 0)
+                continue;
+            lines.add("[profile " + p.key + ": " + describe(t) + ", " + t.count + " units]");
+        }
+        Times total = total();
+        lines.add("[profile total: " + describe(total) + "]");
+        for (Entry e : slowest(files.values(), top))
+            lines.add("[profile " + describe(e) + ": " + e.name + "]");
+        return lines;
+    }
+
+    private String describe(Times t) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(t.wall / 1000000).append(" ms wall");
+        if (cpuSupported)
+            sb.append(", ").append(t.cpu / 1000000).append(" ms cpu");
+        if (allocation != null)
+            sb.append(", ").append(t.allocated >> 10).append(" KB allocated");
+        return sb.toString();
+    }
+
+    /** The time and memory taken since the profiler was created, on the thread that created it. */
+    private Times total() {
+        Sample now = sample(null, false);
+        Times t = new Times();
+        t.add(now.wall - startSample.wall, now.cpu - startSample.cpu,
+              now.allocated - startSample.allocated);
+        return t;
+    }
+
+    private static List<Entry> slowest(Collection<Entry> entries, int top) {
+        List<Entry> list = new ArrayList<Entry>(entries);
+        Collections.sort(list, new Comparator<Entry>() {
+            public int compare(Entry e1, Entry e2) {
+                return (e1.wall < e2.wall) ? 1 : (e1.wall > e2.wall) ? -1 : 0;
+            }
+        });
+        return (list.size() > top) ? list.subList(0, top) : list;
+    }
+
+    /**
+     * Write the times of the phases, and of the top slowest source files
+     * and classes, as a JSON object.  Times are in milliseconds; the CPU
+     * time and the allocated bytes are null if the VM cannot measure them.
+     */
+    public synchronized void writeJSON(Writer out, int top) throws IOException {
+        out.write("{\n  \"total\": ");
+        writeTimes(out, total());
+        out.write(",\n  \"phases\": {");
+        String sep = "\n";
+        for (Phase p : Phase.values()) {
+            Times t = phases[p.ordinal()];
+            out.write(sep + "    " + quote(p.key) + ": ");
+            writeTimes(out, t);
+            sep = ",\n";
+        }
+        out.write("\n  },\n  \"files\": ");
+        writeEntries(out, slowest(files.values(), top), "file");
+        out.write(",\n  \"classes\": ");
+        writeEntries(out, slowest(classes.values(), top), "class");
+        out.write("\n}\n");
+        out.flush();
+    }
+
+    private void writeTimes(Writer out, Times t) throws IOException {
+        out.write("{\"wall\": " + millis(t.wall)
+                + ", \"cpu\": " + (cpuSupported ? millis(t.cpu) : "null")
+                + ", \"allocated\": " + (allocation != null ? String.valueOf(t.allocated) : "null")
+                + ", \"count\": " + t.count + "}");
+    }
+
+    private void writeEntries(Writer out, List<Entry> entries, String kind) throws IOException {
+        if (entries.isEmpty()) {
+            out.write("[]");
+            return;
+        }
+        out.write("[");
+        String sep = "\n";
+        for (Entry e : entries) {
+            out.write(sep + "    {" + quote(kind) + ": " + quote(e.name));
+            if (e.file != null)
+                out.write(", \"file\": " + quote(e.file));
+            out.write(", \"times\": ");
+            writeTimes(out, e);
+            out.write(", \"phases\": {");
+            String psep = "";
+            for (Phase p : Phase.values()) {
+                long w = e.phaseWall[p.ordinal()];
+                if (w == 0)
+                    continue;
+                out.write(psep + quote(p.key) + ": " + millis(w));
+                psep = ", ";
+            }
+            out.write("}}");
+            sep = ",\n";
+        }
+        out.write("\n  ]");
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"':  sb.append("\\\""); break;
+            case '\\': sb.append("\\\\"); break;
+            case '\n': sb.append("\\n"); break;
+            case '\r': sb.append("\\r"); break;
+            case '\t': sb.append("\\t"); break;
+            default:
+                if (c < 0x20)
+                    sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                else
+                    sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
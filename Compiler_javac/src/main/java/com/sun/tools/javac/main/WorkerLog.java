@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package com.sun.tools.javac.main;
+
+import java.io.IOException;
+import java.util.Queue;
+
+import javax.tools.JavaFileObject;
+
+import com.sun.tools.javac.code.CompletionLock;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.DiagnosticSource;
+import com.sun.tools.javac.util.JCDiagnostic;
+import com.sun.tools.javac.util.JavacMessages;
+import com.sun.tools.javac.util.ListBuffer;
+import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Options;
+
+/**
+ * The log of a worker thread of ParallelParser or ParallelFlow.
+ * 工作线程的Log：诊断信息照常计数、去重，但不输出，而是缓存起来，由主线程
+ * 按顺序交给主Log报告。它有自己的Context，只与主Context共享Options和
+ * JavacMessages，所以可以在工作线程中创建诊断信息。
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+class WorkerLog extends Log {
+    /** If set, the source of its file, instead of one read from the file manager. */
+    DiagnosticSource current;
+
+    private Queue<JCDiagnostic> diagnostics = new ListBuffer<JCDiagnostic>();
+
+    /** The lock the file manager of the main context is called with. */
+    private final CompletionLock completionLock;
+
+    /** Must be called on the thread that owns mainContext. */
+    WorkerLog(Context mainContext) {
+        super(workerContext(mainContext));
+        completionLock = CompletionLock.instance(mainContext);
+    }
+
+    private static Context workerContext(Context mainContext) {
+        Context c = new Context();
+        c.put(Options.optionsKey, Options.instance(mainContext));
+        c.put(JavacMessages.messagesKey, JavacMessages.instance(mainContext));
+        if (mainContext.get(Log.outKey) != null)
+            c.put(Log.outKey, mainContext.get(Log.outKey));
+        return c;
+    }
+
+    /**
+     * Start a new piece of work, counting the diagnostics from the given
+     * numbers, so that -Xmaxerrs and -Xmaxwarns have the same effect as
+     * in the main log.
+     */
+    void reset(int nerrors, int nwarnings) {
+        this.nerrors = nerrors;
+        this.nwarnings = nwarnings;
+    }
+
+    /** Return the diagnostics written since the last call, in order. */
+    Queue<JCDiagnostic> takeDiagnostics() {
+        Queue<JCDiagnostic> result = diagnostics;
+        diagnostics = new ListBuffer<JCDiagnostic>();
+        return result;
+    }
+
+    @Override
+    protected void writeDiagnostic(JCDiagnostic diag) {
+        diagnostics.add(diag);
+    }
+
+    /**
+     * Return the source of a file; sources other than current are read
+     * through the file manager, which is not thread-safe.
+     */
+    @Override
+    protected DiagnosticSource getSource(JavaFileObject file) {
+        if (current != null && file == current.getFile())
+            return current;
+        if (file == null)
+            return DiagnosticSource.NO_SOURCE;
+        DiagnosticSource s = sourceMap.get(file);
+        if (s == null) {
+            s = new DiagnosticSource(file, this) {
+                @Override
+                protected char[] initBuf(JavaFileObject fileObject) throws IOException {
+                    synchronized (completionLock) {
+                        return super.initBuf(fileObject);
+                    }
+                }
+            };
+            sourceMap.put(file, s);
+        }
+        return s;
+    }
+}
@@ -25,6 +25,9 @@
 
 package com.sun.tools.javac.parser;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Log;
 import com.sun.tools.javac.util.Name;
@@ -79,6 +82,109 @@ public class Keywords {
         return (name.getIndex() > maxKey) ? IDENTIFIER : key[name.getIndex()];
     }
 
+    /** The token of the identifier in cs[start..start+len), if it is spelled
+     *  like a keyword or literal (true, false, null), otherwise null.  Lets
+     *  the scanner find keywords without entering the chars in the name
+     *  table first.
+     *  在字符数组上直接判断是否为关键字(完美哈希)，不必先得到Name。
+     */
+    public Token key(char[] cs, int start, int len) {
+        if (len < 2 || wordTokens == null)
+            return null;
+        int h = wordHash(cs[start], cs[start + 1], len) & wordMask;
+        char[] w = words[h];
+        if (w == null || w.length != len)
+            return null;
+        for (int i = 0; i < len; i++) {
+            if (w[i] != cs[start + i])
+                return null;
+        }
+        return wordTokens[h];
+    }
+
+    /** The name of a token, as key(Name) maps it; null if it has none.
+     */
+    public Name name(Token token) {
+        return tokenName[token.ordinal()];
+    }
+
+    /** The spellings of the tokens that look like identifiers, indexed by
+     *  a perfect hash of their first two chars and their length, and their
+     *  tokens.  They depend on Token only, so they are made once, by a
+     *  search for multipliers which hash the words without collisions; for
+     *  the keywords of Java 7 a table of 256 entries is found.  Null if no
+     *  such hash was found.
+     */
+    private static final char[][] words;
+    private static final Token[] wordTokens;
+    private static final int wordMask;
+    private static final int wordMult1;
+    private static final int wordMult2;
+
+    private static int wordHash(char c0, char c1, int len) {
+        return (c0 * wordMult1 + c1) * wordMult2 + len;
+    }
+
+    static {
+        List<String> ws = new ArrayList<String>();
+        for (Token t : Token.values()) {
+            if (t.name != null && isWord(t.name))
+                ws.add(t.name);
+        }
+        int[] used = new int[1024];
+        int attempt = 0;
+        int size = 64, m1 = 1, m2 = 1;
+    search:
+        for (; size <= 1024; size <<= 1) {
+            for (m1 = 1; m1 < 64; m1++) {
+                for (m2 = 1; m2 < 64; m2++) {
+                    attempt++;
+                    boolean perfect = true;
+                    for (String w : ws) {
+                        int h = ((w.charAt(0) * m1 + w.charAt(1)) * m2 + w.length()) & (size - 1);
+                        if (used[h] == attempt) {
+                            perfect = false;
+                            break;
+                        }
+                        used[h] = attempt;
+                    }
+                    if (perfect)
+                        break search;
+                }
+            }
+        }
+        wordMult1 = m1;
+        wordMult2 = m2;
+        if (size <= 1024) {
+            wordMask = size - 1;
+            words = new char[size][];
+            wordTokens = new Token[size];
+            for (Token t : Token.values()) {
+                if (t.name != null && isWord(t.name)) {
+                    int h = wordHash(t.name.charAt(0), t.name.charAt(1), t.name.length()) & wordMask;
+                    words[h] = t.name.toCharArray();
+                    wordTokens[h] = t;
+                }
+            }
+        } else {
+            wordMask = 0;
+            words = null;
+            wordTokens = null;
+        }
+    }
+
+    /** Is s spelled like an identifier of at least two chars?
+     */
+    private static boolean isWord(String s) {
+        if (s.length() < 2 || !Character.isJavaIdentifierStart(s.charAt(0)))
+            return false;
+        for (int i = 1; i < s.length(); i++) {
+            if (!Character.isJavaIdentifierPart(s.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
     /**
      * Keyword array. Maps name indices to Token.
      * 保存着Name映射为Token的Token数组
@@ -73,6 +73,29 @@ public class ParserFactory {
         this.scannerFactory = ScannerFactory.instance(context);
     }
 
+    /** Create a parser factory with the settings of another one, but with
+     *  its own tree maker and scanner factory reporting to the given log.
+     */
+    protected ParserFactory(ParserFactory fac, Log log) {
+        this.F = fac.F.forToplevel(null);
+        this.log = log;
+        this.names = fac.names;
+        this.keywords = fac.keywords;
+        this.source = fac.source;
+        this.options = fac.options;
+        this.scannerFactory = new ScannerFactory(fac.scannerFactory, log);
+    }
+
+    /**
+     * Return a copy of this factory whose parsers report to the given log
+     * and share no mutable state with the parsers of this factory, except
+     * for the name table; used to parse on several threads at once, see
+     * com.sun.tools.javac.main.ParallelParser.
+     */
+    public ParserFactory fork(Log log) {
+        return new ParserFactory(this, log);
+    }
+
     /**
      * 建立语法分析实例,第一行代码先建立了一个词法分析实例
      * @param input
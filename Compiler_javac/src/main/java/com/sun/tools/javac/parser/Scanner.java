@@ -305,6 +305,18 @@ public class Scanner implements Lexer {
         sbuf[sp++] = ch;
     }
 
+    /** Append len characters of src, from start, to sbuf.
+     */
+    private void putChars(char[] src, int start, int len) {
+        if (sp + len > sbuf.length) {
+            char[] newsbuf = new char[Math.max(sp + len, sbuf.length * 2)];
+            System.arraycopy(sbuf, 0, newsbuf, 0, sp);
+            sbuf = newsbuf;
+        }
+        System.arraycopy(src, start, sbuf, sp, len);
+        sp += len;
+    }
+
     /** Read next character in character or string literal and copy into sbuf.
      */
     private void scanLitChar() {
@@ -527,6 +539,35 @@ public class Scanner implements Lexer {
      *  读取一个完整的标示符，存入sbuf
      */
     private void scanIdent() {
+        if (sp == 0 && unicodeConversionBp != bp) {
+            // Fast path: ch is buf[bp] itself.  Run over the ASCII identifier
+            // parts in buf, and take the name or keyword straight from buf.
+            // 快速路径：直接在buf上扫描ASCII标识符，不经过sbuf
+            int start = bp;
+            int end = bp + 1;
+            char c = buf[end];
+            while (c < IDENT_PART_LENGTH && (isIdentPart[c] || c == EOI && end < buflen))
+                c = buf[++end];
+            if (c != '\\' && c < IDENT_PART_LENGTH) {
+                int len = end - start;
+                bp = end;
+                ch = c;
+                Token t = keywords.key(buf, start, len);
+                if (t != null) {
+                    token = t;
+                    name = keywords.name(t);
+                } else {
+                    name = names.fromChars(buf, start, len);
+                    token = keywords.key(name);
+                }
+                return;
+            }
+            // a unicode escape or a non-ASCII char: go on from the last
+            // plain identifier part as below
+            putChars(buf, start, end - 1 - start);
+            bp = end - 1;
+            ch = buf[bp];
+        }
         boolean isJavaIdentifierPart;   // 是否为java标示符的一部分
         char high;
         do {
@@ -596,6 +637,18 @@ public class Scanner implements Lexer {
         } while (true);
     }
 
+    /** The ASCII chars which are identifier parts, as in the switch of
+     *  scanIdent, except EOI, which is one only before the end of input.
+     *  ASCII字符的类别表：是否为标识符的一部分
+     */
+    private static final boolean[] isIdentPart = new boolean[0x80];
+    private static final int IDENT_PART_LENGTH = 0x80;
+    static {
+        for (char c = 0; c < IDENT_PART_LENGTH; c++) {
+            isIdentPart[c] = c != EOI && Character.isJavaIdentifierPart(c);
+        }
+    }
+
     /** Are surrogates supported?
      */
     final static boolean surrogatesSupported = surrogatesSupported();
@@ -964,6 +1017,19 @@ public class Scanner implements Lexer {
                     return;
                 case '\"':
                     scanChar();
+                    if (unicodeConversionBp != bp) {
+                        // Fast path: copy the chars up to the closing quote
+                        // in one go, if there is no backslash before it.
+                        int end = bp;
+                        char c;
+                        while ((c = buf[end]) != '\"' && c != '\\' && c != CR && c != LF && end < buflen)
+                            end++;
+                        if (c == '\"' && end < buflen) {
+                            putChars(buf, bp, end - bp);
+                            bp = end;
+                            ch = c;
+                        }
+                    }
                     while (ch != '\"' && ch != CR && ch != LF && bp < buflen)
                         scanLitChar();
                     if (ch == '\"') {
@@ -1171,7 +1237,13 @@ public class Scanner implements Lexer {
      *
      * @return a LineMap */
     public Position.LineMap getLineMap() {
-        return Position.makeLineMap(buf, buflen, false);
+        return makeLineMap(false);
+    }
+
+    /** Build the line map from the input buffer itself, without copying it.
+     */
+    protected Position.LineMap makeLineMap(boolean expandTabs) {
+        return Position.makeLineMap(buf, buflen, expandTabs);
     }
 
 }
@@ -68,6 +68,16 @@ public class ScannerFactory {
         this.keywords = Keywords.instance(context);
     }
 
+    /** Create a scanner factory with the settings of another one, reporting
+     *  to the given log.
+     */
+    protected ScannerFactory(ScannerFactory fac, Log log) {
+        this.log = log;
+        this.names = fac.names;
+        this.source = fac.source;
+        this.keywords = fac.keywords;
+    }
+
     /**
      * 创建词法分析器
      */
@@ -81,8 +91,11 @@ public class ScannerFactory {
             else
                 return new Scanner(this, buf);
         } else {
-            char[] array = input.toString().toCharArray();
-            return newScanner(array, array.length, keepDocComments);
+            // copy once, into an array with the spare element the scanner needs
+            String s = input.toString();
+            char[] array = new char[s.length() + 1];
+            s.getChars(0, s.length(), array, 0);
+            return newScanner(array, s.length(), keepDocComments);
         }
     }
 
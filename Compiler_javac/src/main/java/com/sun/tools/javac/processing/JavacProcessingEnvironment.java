@@ -61,6 +61,7 @@ import com.sun.tools.javac.jvm.*;
 import com.sun.tools.javac.jvm.ClassReader.BadClassFile;
 import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.main.JavaCompiler.CompileState;
+import com.sun.tools.javac.main.PhaseProfiler;
 import com.sun.tools.javac.model.JavacElements;
 import com.sun.tools.javac.model.JavacTypes;
 import com.sun.tools.javac.parser.*;
@@ -1103,6 +1104,8 @@ public class JavacProcessingEnvironment implements ProcessingEnvironment, Closea
             if (taskListener != null)
                 taskListener.started(new TaskEvent(TaskEvent.Kind.ANNOTATION_PROCESSING_ROUND));
 
+            PhaseProfiler profiler = compiler.profiler;
+            PhaseProfiler.Sample sample = (profiler != null) ? profiler.start() : null;
             try {
                 if (lastRound) {
                     filer.setLastRound(true);
@@ -1116,6 +1119,8 @@ public class JavacProcessingEnvironment implements ProcessingEnvironment, Closea
                     discoverAndRunProcs(context, annotationsPresent, topLevelClasses, packageInfoFiles);
                 }
             } finally {
+                if (profiler != null)
+                    profiler.record(PhaseProfiler.Phase.PROCESS, sample, null, null);
                 if (taskListener != null)
                     taskListener.finished(new TaskEvent(TaskEvent.Kind.ANNOTATION_PROCESSING_ROUND));
             }
@@ -1180,6 +1185,10 @@ public class JavacProcessingEnvironment implements ProcessingEnvironment, Closea
             if (tl != null)
                 next.put(TaskListener.class, tl);
 
+            PhaseProfiler profiler = context.get(PhaseProfiler.profilerKey);
+            if (profiler != null)
+                next.put(PhaseProfiler.profilerKey, profiler);
+
             FSInfo fsInfo = context.get(FSInfo.class);
             if (fsInfo != null)
                 next.put(FSInfo.class, fsInfo);
@@ -32,15 +32,18 @@ import com.sun.tools.javac.main.RecognizedOptions;
 import com.sun.tools.javac.util.JCDiagnostic.SimpleDiagnosticPosition;
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.lang.ref.SoftReference;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
@@ -199,12 +202,42 @@ public abstract class BaseFileManager {
             return (CharBuffer)CharBuffer.allocate(1).flip();
         }
 
-        // slightly overestimate the buffer size to avoid reallocation.
-        float factor =
-            decoder.averageCharsPerByte() * 0.8f +
-            decoder.maxCharsPerByte() * 0.2f;
-        CharBuffer dest = CharBuffer.
-            allocate(10 + (int)(inbuf.remaining()*factor));
+        CharBuffer dest;
+        if (isAsciiCompatible(decoder.charset())) {
+            // These encodings decode a byte below 0x80 to the same char and
+            // never to more chars than bytes: widen the ASCII prefix, usually
+            // the whole file, directly into a buffer with one spare element,
+            // which the scanner can then use as it is, and leave the rest
+            // to the decoder.
+            int n = inbuf.remaining();
+            char[] chars = new char[n + 1];
+            int start = inbuf.position();
+            int i = 0;
+            if (inbuf.hasArray()) {
+                byte[] bytes = inbuf.array();
+                int off = inbuf.arrayOffset() + start;
+                while (i < n && bytes[off + i] >= 0) {
+                    chars[i] = (char) bytes[off + i];
+                    i++;
+                }
+            } else {
+                byte b;
+                while (i < n && (b = inbuf.get(start + i)) >= 0) {
+                    chars[i] = (char) b;
+                    i++;
+                }
+            }
+            inbuf.position(start + i);
+            dest = CharBuffer.wrap(chars);
+            dest.position(i);
+        } else {
+            // slightly overestimate the buffer size to avoid reallocation.
+            float factor =
+                decoder.averageCharsPerByte() * 0.8f +
+                decoder.maxCharsPerByte() * 0.2f;
+            dest = CharBuffer.
+                allocate(10 + (int)(inbuf.remaining()*factor));
+        }
 
         while (true) {
             CoderResult result = decoder.decode(inbuf, dest, true);
@@ -251,6 +284,14 @@ public abstract class BaseFileManager {
         // unreached
     }
 
+    /** Does the charset decode the bytes below 0x80 as ASCII, one char
+     *  per byte, and never to more chars than bytes?
+     */
+    private static boolean isAsciiCompatible(Charset cs) {
+        String name = cs.name();
+        return name.equals("UTF-8") || name.equals("US-ASCII") || name.equals("ISO-8859-1");
+    }
+
     public CharsetDecoder getDecoder(String encodingName, boolean ignoreEncodingErrors) {
         Charset cs = (this.charset == null)
             ? Charset.forName(encodingName)
@@ -290,8 +331,72 @@ public abstract class BaseFileManager {
         return (ByteBuffer)result.flip();
     }
 
+    /**
+     * Make a byte buffer from a source file.  Files of MAP_THRESHOLD bytes
+     * or more are mapped instead of being read, so that decode() takes
+     * their bytes from the page cache without another copy.  The caller
+     * must pass the buffer to recycleByteBuffer once it has been decoded,
+     * which unmaps it: a mapping that stays until the buffer is collected
+     * keeps the file locked on Windows, for instance across the
+     * compilations of com.sun.tools.javac.Server.
+     * 大文件(例如生成的源文件)用内存映射，不再复制到ByteBuffer中；
+     * 解码后立即解除映射。不能解除映射时改为读入ByteBuffer。
+     */
+    public ByteBuffer mapByteBuffer(FileInputStream in) throws IOException {
+        FileChannel channel = in.getChannel();
+        long size = channel.size();
+        if (canUnmap && size >= MAP_THRESHOLD && size <= Integer.MAX_VALUE)
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        return makeByteBuffer(in);
+    }
+
+    /** The size from which source files are mapped. */
+    private static final int MAP_THRESHOLD = 256 * 1024;
+
+    /**
+     * Release a buffer made by makeByteBuffer or mapByteBuffer.  A mapped
+     * buffer is unmapped and must not be used afterwards.
+     */
     public void recycleByteBuffer(ByteBuffer bb) {
-        byteBufferCache.put(bb);
+        if (bb.hasArray())
+            byteBufferCache.put(bb);
+        else if (bb.isDirect())
+            unmap(bb);
+    }
+
+    /**
+     * The methods that unmap a mapped buffer, sun.nio.ch.DirectBuffer.cleaner()
+     * and sun.misc.Cleaner.clean(), or null if this platform has none.
+     */
+    private static final Method cleanerMethod;
+    private static final Method cleanMethod;
+
+    /** Whether files are still mapped: cleared if unmapping ever fails. */
+    private static volatile boolean canUnmap;
+
+    static {
+        Method cleaner = null, clean = null;
+        try {
+            cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+        } catch (Exception e) {
+            cleaner = clean = null;
+        }
+        cleanerMethod = cleaner;
+        cleanMethod = clean;
+        canUnmap = (cleaner != null);
+    }
+
+    private static void unmap(ByteBuffer bb) {
+        try {
+            Object cleaner = cleanerMethod.invoke(bb);
+            if (cleaner != null)
+                cleanMethod.invoke(cleaner);
+        } catch (Exception e) {
+            // the mapping is released when the buffer is collected; read
+            // later files instead
+            canUnmap = false;
+        }
     }
 
     /**
@@ -304,7 +409,7 @@ public abstract class BaseFileManager {
             ByteBuffer result =
                 (cached != null && cached.capacity() >= capacity)
                 ? (ByteBuffer)cached.clear()
-                : ByteBuffer.allocate(capacity + capacity>>1);
+                : ByteBuffer.allocate(capacity + (capacity >> 1));
             cached = null;
             return result;
         }
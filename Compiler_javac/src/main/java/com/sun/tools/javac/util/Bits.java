@@ -26,6 +26,9 @@
 package com.sun.tools.javac.util;
 
 /** A class for extensible, mutable bit sets.
+ *  The elements are kept in 64 bit words; the first of them is a field of
+ *  its own, so sets of at most 64 elements, such as the variables of most
+ *  methods in Flow, need no array.
  *
  *  <p><b>This is NOT part of any supported API.
  *  If you write code that depends on this, you do so at your own risk.
@@ -35,22 +38,36 @@ package com.sun.tools.javac.util;
 public class Bits {
 
 
-    private final static int wordlen = 32;
-    private final static int wordshift = 5;
+    private final static int wordlen = 64;
+    private final static int wordshift = 6;
     private final static int wordmask = wordlen - 1;
 
-    private int[] bits;
+    /** The elements 0..63.
+     */
+    private long bits0;
+
+    /** The elements from 64 on, 64 in each word; null, or shorter than
+     *  length requires, as long as the words it lacks are zero.
+     */
+    private long[] bits;
+
+    /** The number of 32 bit words this set has been sized to.  andSet only
+     *  clears the elements of this set that are within the length of its
+     *  argument, as the int[] based sets did; all elements beyond the
+     *  length are zero.
+     */
+    private int length;
 
     /** Construct an initially empty set.
      */
     public Bits() {
-        this(new int[1]);
+        length = 1;
     }
 
-    /** Construct a set consisting initially of given bit vector.
-     */
-    public Bits(int[] bits) {
+    private Bits(long bits0, long[] bits, int length) {
+        this.bits0 = bits0;
         this.bits = bits;
+        this.length = length;
     }
 
     /** Construct a set consisting initially of given range.
@@ -61,97 +78,164 @@ public class Bits {
     }
 
     private void sizeTo(int len) {
-        if (bits.length < len) {
-            int[] newbits = new int[len];
+        if (length < len)
+            length = len;
+    }
+
+    /** The i-th word of this set.
+     */
+    private long word(int i) {
+        if (i == 0)
+            return bits0;
+        return (bits != null && i <= bits.length) ? bits[i - 1] : 0;
+    }
+
+    /** Make room for the i-th word, i > 0.
+     */
+    private void ensureWord(int i) {
+        if (bits == null) {
+            bits = new long[Math.max(i, 2)];
+        } else if (bits.length < i) {
+            long[] newbits = new long[Math.max(i, bits.length * 2)];
             System.arraycopy(bits, 0, newbits, 0, bits.length);
             bits = newbits;
         }
     }
 
+    /** The number of words that may be non-zero.
+     */
+    private int words() {
+        return (bits == null) ? 1 : bits.length + 1;
+    }
+
     /** This set = {}.
      */
     public void clear() {
-        for (int i = 0; i < bits.length; i++) bits[i] = 0;
+        bits0 = 0;
+        if (bits != null) {
+            for (int i = 0; i < bits.length; i++) bits[i] = 0;
+        }
     }
 
     /** Return a copy of this set.
      */
     public Bits dup() {
-        int[] newbits = new int[bits.length];
-        System.arraycopy(bits, 0, newbits, 0, bits.length);
-        return new Bits(newbits);
+        return new Bits(bits0, (bits == null) ? null : bits.clone(), length);
     }
 
     /** Include x in this set.
      */
     public void incl(int x) {
         Assert.check(x >= 0);
-        sizeTo((x >>> wordshift) + 1);
-        bits[x >>> wordshift] = bits[x >>> wordshift] |
-            (1 << (x & wordmask));
+        sizeTo((x >>> 5) + 1);
+        int i = x >>> wordshift;
+        if (i == 0) {
+            bits0 |= 1L << x;
+        } else {
+            ensureWord(i);
+            bits[i - 1] |= 1L << x;
+        }
     }
 
 
     /** Include [start..limit) in this set.
      */
     public void inclRange(int start, int limit) {
-        sizeTo((limit >>> wordshift) + 1);
-        for (int x = start; x < limit; x++)
-            bits[x >>> wordshift] = bits[x >>> wordshift] |
-                (1 << (x & wordmask));
+        sizeTo((limit >>> 5) + 1);
+        if (start >= limit)
+            return;
+        int first = start >>> wordshift;
+        int last = (limit - 1) >>> wordshift;
+        for (int i = first; i <= last; i++) {
+            long mask = -1L;
+            if (i == first)
+                mask &= -1L << start;
+            if (i == last)
+                mask &= -1L >>> (wordlen - 1 - ((limit - 1) & wordmask));
+            if (i == 0) {
+                bits0 |= mask;
+            } else {
+                ensureWord(i);
+                bits[i - 1] |= mask;
+            }
+        }
     }
 
     /** Exclude [start...end] from this set.
      */
     public void excludeFrom(int start) {
-        Bits temp = new Bits();
-        temp.sizeTo(bits.length);
-        temp.inclRange(0, start);
-        andSet(temp);
+        sizeTo((start >>> 5) + 1);
+        int i = start >>> wordshift;
+        long mask = (1L << start) - 1;
+        if (i == 0) {
+            bits0 &= mask;
+            i = 1;
+        } else if (bits != null && i <= bits.length) {
+            bits[i - 1] &= mask;
+            i++;
+        }
+        if (bits != null) {
+            for (; i <= bits.length; i++)
+                bits[i - 1] = 0;
+        }
     }
 
     /** Exclude x from this set.
      */
     public void excl(int x) {
         Assert.check(x >= 0);
-        sizeTo((x >>> wordshift) + 1);
-        bits[x >>> wordshift] = bits[x >>> wordshift] &
-            ~(1 << (x & wordmask));
+        sizeTo((x >>> 5) + 1);
+        int i = x >>> wordshift;
+        if (i == 0)
+            bits0 &= ~(1L << x);
+        else if (bits != null && i <= bits.length)
+            bits[i - 1] &= ~(1L << x);
     }
 
     /** Is x an element of this set?
      */
     public boolean isMember(int x) {
-        return
-            0 <= x && x < (bits.length << wordshift) &&
-            (bits[x >>> wordshift] & (1 << (x & wordmask))) != 0;
+        return x >= 0 && (word(x >>> wordshift) & (1L << x)) != 0;
     }
 
     /** this set = this set & xs.
      */
     public Bits andSet(Bits xs) {
-        sizeTo(xs.bits.length);
-        for (int i = 0; i < xs.bits.length; i++)
-            bits[i] = bits[i] & xs.bits[i];
+        sizeTo(xs.length);
+        // xs covers the elements below xs.length * 32 only
+        int full = xs.length >>> 1;
+        bits0 &= (full > 0) ? xs.bits0 : xs.bits0 | 0xFFFFFFFF00000000L;
+        if (bits != null) {
+            int n = Math.min(bits.length + 1, (xs.length + 1) >>> 1);
+            for (int i = 1; i < n; i++) {
+                long w = xs.word(i);
+                bits[i - 1] &= (i < full) ? w : w | 0xFFFFFFFF00000000L;
+            }
+        }
         return this;
     }
 
     /** this set = this set | xs.
      */
     public Bits orSet(Bits xs) {
-        sizeTo(xs.bits.length);
-        for (int i = 0; i < xs.bits.length; i++)
-            bits[i] = bits[i] | xs.bits[i];
+        sizeTo(xs.length);
+        bits0 |= xs.bits0;
+        if (xs.bits != null) {
+            ensureWord(xs.bits.length);
+            for (int i = 0; i < xs.bits.length; i++)
+                bits[i] |= xs.bits[i];
+        }
         return this;
     }
 
     /** this set = this set \ xs.
      */
     public Bits diffSet(Bits xs) {
-        for (int i = 0; i < bits.length; i++) {
-            if (i < xs.bits.length) {
-                bits[i] = bits[i] & ~xs.bits[i];
-            }
+        bits0 &= ~xs.bits0;
+        if (bits != null && xs.bits != null) {
+            int n = Math.min(bits.length, xs.bits.length);
+            for (int i = 0; i < n; i++)
+                bits[i] &= ~xs.bits[i];
         }
         return this;
     }
@@ -159,26 +243,16 @@ public class Bits {
     /** this set = this set ^ xs.
      */
     public Bits xorSet(Bits xs) {
-        sizeTo(xs.bits.length);
-        for (int i = 0; i < xs.bits.length; i++)
-            bits[i] = bits[i] ^ xs.bits[i];
+        sizeTo(xs.length);
+        bits0 ^= xs.bits0;
+        if (xs.bits != null) {
+            ensureWord(xs.bits.length);
+            for (int i = 0; i < xs.bits.length; i++)
+                bits[i] ^= xs.bits[i];
+        }
         return this;
     }
 
-    /** Count trailing zero bits in an int. Algorithm from "Hacker's
-     *  Delight" by Henry S. Warren Jr. (figure 5-13)
-     */
-    private static int trailingZeroBits(int x) {
-        Assert.check(wordlen == 32);
-        if (x == 0) return 32;
-        int n = 1;
-        if ((x & 0xffff) == 0) { n += 16; x >>>= 16; }
-        if ((x & 0x00ff) == 0) { n +=  8; x >>>=  8; }
-        if ((x & 0x000f) == 0) { n +=  4; x >>>=  4; }
-        if ((x & 0x0003) == 0) { n +=  2; x >>>=  2; }
-        return n - (x&1);
-    }
-
     /** Return the index of the least bit position >= x that is set.
      *  If none are set, returns -1.  This provides a nice way to iterate
      *  over the members of a bit set:
@@ -187,23 +261,34 @@ public class Bits {
      *  </pre>
      */
     public int nextBit(int x) {
+        return diffNextBit(null, x);
+    }
+
+    /** Return the index of the least bit position >= x that is set in
+     *  this set but not in xs, or -1; the same as dup().diffSet(xs).nextBit(x),
+     *  without the copy.
+     */
+    public int diffNextBit(Bits xs, int x) {
         int windex = x >>> wordshift;
-        if (windex >= bits.length) return -1;
-        int word = bits[windex] & ~((1 << (x & wordmask))-1);
+        int n = words();
+        if (windex >= n) return -1;
+        long word = word(windex) & (-1L << x);
         while (true) {
+            if (xs != null)
+                word &= ~xs.word(windex);
             if (word != 0)
-                return (windex << wordshift) + trailingZeroBits(word);
+                return (windex << wordshift) + Long.numberOfTrailingZeros(word);
             windex++;
-            if (windex >= bits.length) return -1;
-            word = bits[windex];
+            if (windex >= n) return -1;
+            word = bits[windex - 1];
         }
     }
 
     /** a string representation of this set.
      */
     public String toString() {
-        char[] digits = new char[bits.length * wordlen];
-        for (int i = 0; i < bits.length * wordlen; i++)
+        char[] digits = new char[length * 32];
+        for (int i = 0; i < length * 32; i++)
             digits[i] = isMember(i) ? '1' : '0';
         return new String(digits);
     }
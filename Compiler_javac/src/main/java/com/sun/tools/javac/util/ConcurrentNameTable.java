@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.tools.javac.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of Name.Table that can be used by several threads at
+ * once. The table is split into stripes, each with its own lock, its own
+ * hash table, which grows with the number of names, and its own chunks of
+ * bytes, which are never copied once filled.
+ * 名称表分成若干段(stripe)，每段单独加锁；不同段的插入互不阻塞。
+ * 与SharedNameTable不同，bytes不是一个不断翻倍复制的大数组，而是固定大小的
+ * 分块(chunk)，name的字节总是存放在同一个分块里。
+ *
+ * Name indices are handed out in the order the threads enter the names,
+ * so they differ from run to run when several threads share the table.
+ * hashCode and compareTo therefore depend on the bytes of a name only,
+ * which keeps hash orders, the ordering of Symbol.precedes and hence the
+ * class files reproducible.  They are not always the orders a
+ * SharedNameTable gives, so the output may still differ from that of a
+ * compilation with the default table.  The scrambled names of
+ * -XDscramble and -XDscrambleAll are built from indices (see
+ * ClassWriter.fieldName) and are not reproducible with this table.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class ConcurrentNameTable extends Name.Table {
+    static public Name.Table create(Names names) {
+        return new ConcurrentNameTable(names);
+    }
+
+    /** log2 of the number of stripes. */
+    private static final int STRIPE_BITS = 5;
+
+    /** The initial size of the hash table of each stripe, a power of two. */
+    private static final int INITIAL_HASH_SIZE = 0x400;
+
+    /** The size of the chunks the bytes of names are stored in. Names
+     *  longer than a quarter of a chunk get an array of their own.
+     */
+    private static final int CHUNK_SIZE = 0x4000;
+
+    private final Stripe[] stripes;
+
+    /** The index of the next new name. */
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    /** Per thread buffer for converting chars to utf8 in fromChars. */
+    private final ThreadLocal<byte[]> utfBuffer = new ThreadLocal<byte[]>();
+
+    public ConcurrentNameTable(Names names) {
+        super(names);
+        stripes = new Stripe[1 << STRIPE_BITS];
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe();
+    }
+
+    @Override
+    public Name fromChars(char[] cs, int start, int len) {
+        byte[] buf = utfBuffer.get();
+        if (buf == null || buf.length < len * 3) {
+            buf = new byte[Math.max(len * 3, 256)];
+            utfBuffer.set(buf);
+        }
+        int nbytes = Convert.chars2utf(cs, start, buf, 0, len);
+        return fromUtf(buf, 0, nbytes);
+    }
+
+    @Override
+    public Name fromUtf(byte[] cs, int start, int len) {
+        int h = hashValue(cs, start, len);
+        // the low bits select the bucket, so take the stripe from the high
+        // bits of a scrambled hash; short names have small hash values
+        Stripe s = stripes[(h * 0x9E3779B9) >>> (32 - STRIPE_BITS)];
+        return s.lookup(cs, start, len, h);
+    }
+
+    /**
+     * The stripes are not recycled as in SharedNameTable, and the names
+     * remain valid, so that the table can still be used, for instance by
+     * the next compilation of com.sun.tools.javac.Server.
+     */
+    @Override
+    public void dispose() {
+    }
+
+    /** A part of the table, guarded by its own lock. */
+    private class Stripe {
+        private NameImpl[] hashes = new NameImpl[INITIAL_HASH_SIZE];
+
+        /** The number of names in this stripe. */
+        private int count;
+
+        /** The chunk new names are added to, and its filled length. */
+        private byte[] chunk;
+        private int chunkLength;
+
+        synchronized Name lookup(byte[] cs, int start, int len, int h) {
+            int i = h & (hashes.length - 1);
+            for (NameImpl n = hashes[i]; n != null; n = n.next) {
+                if (n.hash == h && n.length == len
+                        && ConcurrentNameTable.equals(n.bytes, n.offset, cs, start, len))
+                    return n;
+            }
+            NameImpl n;
+            if (len > CHUNK_SIZE / 4) {
+                byte[] bytes = new byte[len];
+                System.arraycopy(cs, start, bytes, 0, len);
+                n = new NameImpl(ConcurrentNameTable.this, bytes, 0, len, h, nextIndex.getAndIncrement());
+            } else {
+                if (chunk == null || chunkLength + len > chunk.length) {
+                    chunk = new byte[CHUNK_SIZE];
+                    chunkLength = 0;
+                }
+                System.arraycopy(cs, start, chunk, chunkLength, len);
+                n = new NameImpl(ConcurrentNameTable.this, chunk, chunkLength, len, h, nextIndex.getAndIncrement());
+                chunkLength += len;
+            }
+            n.next = hashes[i];
+            hashes[i] = n;
+            if (++count > hashes.length - (hashes.length >> 2))
+                grow();
+            return n;
+        }
+
+        /** Double the size of the hash table. */
+        private void grow() {
+            NameImpl[] newHashes = new NameImpl[hashes.length * 2];
+            int mask = newHashes.length - 1;
+            for (NameImpl n : hashes) {
+                while (n != null) {
+                    NameImpl next = n.next;
+                    int i = n.hash & mask;
+                    n.next = newHashes[i];
+                    newHashes[i] = n;
+                    n = next;
+                }
+            }
+            hashes = newHashes;
+        }
+    }
+
+    static class NameImpl extends Name {
+        /** The next name in the same bucket; guarded by the lock of the stripe. */
+        NameImpl next;
+
+        final byte[] bytes;
+        final int offset;
+        final int length;
+        final int hash;
+        final int index;
+
+        NameImpl(ConcurrentNameTable table, byte[] bytes, int offset, int length, int hash, int index) {
+            super(table);
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            this.hash = hash;
+            this.index = index;
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public int getByteLength() {
+            return length;
+        }
+
+        @Override
+        public byte getByteAt(int i) {
+            return bytes[offset + i];
+        }
+
+        @Override
+        public byte[] getByteArray() {
+            return bytes;
+        }
+
+        @Override
+        public int getByteOffset() {
+            return offset;
+        }
+
+        /** Return the hash value of this name.
+         *  Unlike the index, it depends only on the bytes of the name.
+         */
+        public int hashCode() {
+            return hash;
+        }
+
+        /** Order names by their bytes rather than by their indices, which
+         *  depend on the order in which the threads entered the names.
+         */
+        @Override
+        public int compareTo(Name other) {
+            if (other == this)
+                return 0;
+            byte[] obytes = other.getByteArray();
+            int ooffset = other.getByteOffset();
+            int olength = other.getByteLength();
+            int n = Math.min(length, olength);
+            for (int i = 0; i < n; i++) {
+                int d = (bytes[offset + i] & 0xff) - (obytes[ooffset + i] & 0xff);
+                if (d != 0)
+                    return d;
+            }
+            return length - olength;
+        }
+
+        /** Is this name equal to other?
+         */
+        public boolean equals(Object other) {
+            if (other instanceof Name)
+                return
+                    table == ((Name)other).table && index == ((Name) other).getIndex();
+            else return false;
+        }
+    }
+}
@@ -206,6 +206,21 @@ public class Convert {
         return chars2utf(src, 0, src.length);
     }
 
+    /** Return the number of bytes of string s in Utf8 representation,
+     *  as chars2utf would encode it.
+     *  字符串按(修改后的)UTF-8编码后的字节数，即常量池中CONSTANT_Utf8的长度
+     */
+    public static int utfLength(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (1 <= ch && ch <= 0x7F) n += 1;
+            else if (ch <= 0x7FF) n += 2;
+            else n += 3;
+        }
+        return n;
+    }
+
     /** Return string as an array of bytes in in Utf8 representation.
      */
     public static byte[] string2utf(String s) {
@@ -185,8 +185,22 @@ public class DiagnosticSource {
     }
 
     protected char[] initBuf(JavaFileObject fileObject) throws IOException {
+        return initBuf(fileObject.getCharContent(true));
+    }
+
+    /** Use the given content of the file, as the one of the scanner, so
+     *  that the lines are found in the array the scanner has read rather
+     *  than in a second copy of the file.
+     */
+    public void setContent(CharSequence content) {
+        buf = null;
+        initBuf(content);
+        lineStart = 0;
+        line = 1;
+    }
+
+    protected char[] initBuf(CharSequence cs) {
         char[] buf;
-        CharSequence cs = fileObject.getCharContent(true);
         if (cs instanceof CharBuffer) {
             CharBuffer cb = (CharBuffer) cs;
             buf = JavacFileManager.toArray(cb);
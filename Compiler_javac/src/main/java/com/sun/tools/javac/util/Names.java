@@ -73,6 +73,12 @@ public class Names {
     public final Name java_lang_Cloneable;
     public final Name java_io_Serializable;
     public final Name serialVersionUID;
+    public final Name serialPersistentFields;
+    public final Name writeObject;
+    public final Name readObject;
+    public final Name readObjectNoData;
+    public final Name writeReplace;
+    public final Name readResolve;
     public final Name java_lang_Enum;
     public final Name java_lang_invoke_MethodHandle;
     public final Name package_info;
@@ -85,6 +91,7 @@ public class Names {
     public final Name StackMapTable;
     public final Name SourceID;
     public final Name CompilationID;
+    public final Name ABIFingerprint;
     public final Name Code;
     public final Name Exceptions;
     public final Name SourceFile;
@@ -188,6 +195,12 @@ public class Names {
         java_lang_invoke_MethodHandle = fromString("java.lang.invoke.MethodHandle");
         package_info = fromString("package-info");
         serialVersionUID = fromString("serialVersionUID");
+        serialPersistentFields = fromString("serialPersistentFields");
+        writeObject = fromString("writeObject");
+        readObject = fromString("readObject");
+        readObjectNoData = fromString("readObjectNoData");
+        writeReplace = fromString("writeReplace");
+        readResolve = fromString("readResolve");
         ConstantValue = fromString("ConstantValue");
         LineNumberTable = fromString("LineNumberTable");                    // 行号信息
         LocalVariableTable = fromString("LocalVariableTable");              // 局部变量表
@@ -197,6 +210,7 @@ public class Names {
         StackMapTable = fromString("StackMapTable");
         SourceID = fromString("SourceID");
         CompilationID = fromString("CompilationID");
+        ABIFingerprint = fromString("ABIFingerprint");
         Code = fromString("Code");
         Exceptions = fromString("Exceptions");
         SourceFile = fromString("SourceFile");
@@ -275,6 +289,11 @@ public class Names {
         boolean useUnsharedTable = options.isSet("useUnsharedTable");
         if (useUnsharedTable)
             return new UnsharedNameTable(this);
+        // 多线程语法分析(-XDparallelParse)或-XDcompilePolicy=parallel时默认使用分段加锁的名称表，
+        // 其他名称表只能在一个线程中使用
+        else if (options.isSet("useConcurrentTable") || options.isSet("parallelParse")
+                 || "parallel".equals(options.get("compilePolicy")))
+            return new ConcurrentNameTable(this);
         else
             return new SharedNameTable(this);
     }
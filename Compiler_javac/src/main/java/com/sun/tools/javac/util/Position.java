@@ -25,6 +25,7 @@
 
 package com.sun.tools.javac.util;
 
+import java.util.Arrays;
 import java.util.BitSet;
 import static com.sun.tools.javac.util.LayoutCharacters.*;
 
@@ -150,8 +151,11 @@ public class Position {
         protected void build(char[] src, int max) {
             int c = 0;
             int i = 0;
-            int[] linebuf = new int[max];
+            // one line per 32 chars to begin with, rather than one per char
+            int[] linebuf = new int[Math.max(16, max >> 5)];
             while (i < max) {
+                if (c == linebuf.length)
+                    linebuf = Arrays.copyOf(linebuf, c << 1);
                 linebuf[c++] = i;
                 do {
                     char ch = src[i];
@@ -27,6 +27,7 @@ package com.sun.tools.javap;
 
 import java.util.Formatter;
 
+import com.sun.tools.classfile.ABIFingerprint_attribute;
 import com.sun.tools.classfile.AccessFlags;
 import com.sun.tools.classfile.AnnotationDefault_attribute;
 import com.sun.tools.classfile.Attribute;
@@ -214,6 +215,11 @@ public class AttributeWriter extends BasicWriter
         return null;
     }
 
+    public Void visitABIFingerprint(ABIFingerprint_attribute attr, Void ignore) {
+        println("ABIFingerprint: " + attr.getValue());
+        return null;
+    }
+
     public Void visitCompilationID(CompilationID_attribute attr, Void ignore) {
         constantWriter.write(attr.compilationID_index);
         return null;
@@ -0,0 +1,115 @@
+package com.sun.tools.javac.comp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectStreamClass;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.tools.javac.main.Main;
+
+/**
+ * -XDwidenPrivateAccess：没有声明serialVersionUID的可序列化类，
+ * 其成员不能放宽，否则默认的serialVersionUID会改变
+ */
+public class WidenPrivateAccessTest {
+    private File dir;
+
+    @Before public void setUp() throws IOException {
+        dir = File.createTempFile("widen", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After public void tearDown() {
+        delete(dir);
+    }
+
+    private static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File c : files)
+                delete(c);
+        }
+        f.delete();
+    }
+
+    private File write(String name, String content) throws IOException {
+        File f = new File(dir, name);
+        Writer out = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+        return f;
+    }
+
+    /** Compile the file into a new directory and load the named class. */
+    private Class<?> compile(File file, String className, String... options) throws Exception {
+        File classes = new File(dir, "classes" + options.length);
+        classes.mkdirs();
+        String[] args = new String[options.length + 3];
+        System.arraycopy(options, 0, args, 0, options.length);
+        args[options.length] = "-d";
+        args[options.length + 1] = classes.getPath();
+        args[options.length + 2] = file.getPath();
+        StringWriter output = new StringWriter();
+        int result = new Main("javac", new PrintWriter(output, true)).compile(args);
+        assertEquals(output.toString(), 0, result);
+        ClassLoader loader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, null);
+        return Class.forName(className, false, loader);
+    }
+
+    private static boolean hasAccessMethod(Class<?> c) {
+        for (Method m : c.getDeclaredMethods()) {
+            if (m.getName().startsWith("access$"))
+                return true;
+        }
+        return false;
+    }
+
+    @Test public void testDefaultSerialVersionUID() throws Exception {
+        File f = write("S.java",
+                "public class S implements java.io.Serializable {\n" +
+                "    private int x;\n" +
+                "    private S() { }\n" +
+                "    private static int f() { return 1; }\n" +
+                "    class Inner { int get() { return new S().x + f(); } }\n" +
+                "}\n");
+        Class<?> plain = compile(f, "S");
+        Class<?> widened = compile(f, "S", "-XDwidenPrivateAccess");
+        assertEquals(ObjectStreamClass.lookup(plain).getSerialVersionUID(),
+                ObjectStreamClass.lookup(widened).getSerialVersionUID());
+        assertTrue(Modifier.isPrivate(widened.getDeclaredField("x").getModifiers()));
+        assertTrue(hasAccessMethod(widened));
+    }
+
+    @Test public void testExplicitSerialVersionUID() throws Exception {
+        File f = write("V.java",
+                "public class V implements java.io.Serializable {\n" +
+                "    private static final long serialVersionUID = 1L;\n" +
+                "    private int x;\n" +
+                "    class Inner { int get() { return x; } }\n" +
+                "}\n");
+        Class<?> widened = compile(f, "V", "-XDwidenPrivateAccess");
+        assertEquals(1L, ObjectStreamClass.lookup(widened).getSerialVersionUID());
+        assertFalse(Modifier.isPrivate(widened.getDeclaredField("x").getModifiers()));
+        assertFalse(hasAccessMethod(widened));
+    }
+}
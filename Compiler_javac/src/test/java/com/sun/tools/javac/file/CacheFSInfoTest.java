@@ -0,0 +1,154 @@
+package com.sun.tools.javac.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.tools.javac.main.Main;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.List;
+
+/**
+ * CacheFSInfo缓存的目录列表：注解处理器在类路径上的已有目录中生成类文件之后，
+ * 下一轮要能找到这个类
+ */
+public class CacheFSInfoTest {
+    private File dir;
+
+    @Before public void setUp() throws IOException {
+        dir = File.createTempFile("fsinfo", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After public void tearDown() {
+        delete(dir);
+    }
+
+    private static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File c : files)
+                delete(c);
+        }
+        f.delete();
+    }
+
+    private File write(String name, String content) throws IOException {
+        File f = new File(dir, name);
+        f.getParentFile().mkdirs();
+        Writer out = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+        return f;
+    }
+
+    private static byte[] read(File f) throws IOException {
+        byte[] bytes = new byte[(int) f.length()];
+        InputStream in = new FileInputStream(f);
+        try {
+            int n = 0;
+            while (n < bytes.length)
+                n += in.read(bytes, n, bytes.length - n);
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    /** Writes the class file gen/G.class in the first round. */
+    @SupportedAnnotationTypes("*")
+    static class ClassFileGenerator extends AbstractProcessor {
+        private final byte[] classFile;
+        private boolean done;
+
+        ClassFileGenerator(byte[] classFile) {
+            this.classFile = classFile;
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latest();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            if (!done) {
+                done = true;
+                try {
+                    JavaFileObject fo = processingEnv.getFiler().createClassFile("gen.G");
+                    OutputStream out = fo.openOutputStream();
+                    try {
+                        out.write(classFile);
+                    } finally {
+                        out.close();
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return false;
+        }
+    }
+
+    private int compile(StringWriter output, AbstractProcessor processor, String... options) {
+        // 索引文件写在测试目录中
+        File index = new File(dir, "index");
+        index.mkdirs();
+        String[] args = new String[options.length + 1];
+        args[0] = "-XDcachezipindexdir=" + index.getPath();
+        System.arraycopy(options, 0, args, 1, options.length);
+        Context context = new Context();
+        JavacFileManager.preRegister(context);
+        Main main = new Main("javac", new PrintWriter(output, true));
+        return main.compile(args, context, List.<JavaFileObject>nil(),
+                processor == null ? null : Arrays.asList(processor));
+    }
+
+    @Test public void testClassGeneratedIntoListedDirectory() throws IOException {
+        File g = write("gsrc/gen/G.java", "package gen; public class G { }");
+        File gclasses = new File(dir, "gclasses");
+        gclasses.mkdirs();
+        StringWriter output = new StringWriter();
+        assertEquals(output.toString(), 0,
+                compile(output, null, "-d", gclasses.getPath(), g.getPath()));
+        byte[] classFile = read(new File(gclasses, "gen/G.class"));
+
+        // out/gen已经存在，并且在第一轮中就被列出
+        File out = new File(dir, "out");
+        File outGen = new File(out, "gen");
+        outGen.mkdirs();
+        write("out/gen/readme.txt", "");
+        outGen.setLastModified(System.currentTimeMillis() - 60000);
+        File a = write("src/A.java", "class A {\n    gen.G g;\n}\n");
+        output = new StringWriter();
+        int result = compile(output, new ClassFileGenerator(classFile),
+                "-d", out.getPath(), "-cp", out.getPath(), a.getPath());
+        assertEquals(output.toString(), 0, result);
+    }
+}
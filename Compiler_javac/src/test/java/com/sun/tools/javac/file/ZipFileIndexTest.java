@@ -0,0 +1,192 @@
+package com.sun.tools.javac.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.tools.javac.file.RelativePath.RelativeDirectory;
+import com.sun.tools.javac.file.RelativePath.RelativeFile;
+
+/**
+ * 预建索引文件(zip index)的读写：索引文件损坏、被截断或者jar被touch之后，
+ * 都要退回到完整扫描，并且结果与不用索引时完全一致
+ */
+public class ZipFileIndexTest {
+    private File dir;
+    private File jar;
+
+    @Before public void setUp() throws IOException {
+        dir = File.createTempFile("zipindex", "");
+        dir.delete();
+        dir.mkdirs();
+        jar = new File(dir, "test.jar");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+        try {
+            for (int i = 0; i < 20; i++) {
+                // 第一个条目不压缩，其余的用deflate压缩
+                ZipEntry e = new ZipEntry("p/q/C" + i + ".class");
+                byte[] data = content(i);
+                if (i == 0) {
+                    java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+                    crc.update(data);
+                    e.setMethod(ZipEntry.STORED);
+                    e.setSize(data.length);
+                    e.setCrc(crc.getValue());
+                }
+                out.putNextEntry(e);
+                out.write(data);
+                out.closeEntry();
+            }
+            out.putNextEntry(new ZipEntry("p/R.class"));
+            out.write(content(99));
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+        // 让时间戳看起来是"旧的"
+        jar.setLastModified(System.currentTimeMillis() - 60000);
+    }
+
+    @After public void tearDown() {
+        for (File f : dir.listFiles())
+            f.delete();
+        dir.delete();
+    }
+
+    private static byte[] content(int i) {
+        byte[] data = new byte[1000 + i * 37];
+        for (int j = 0; j < data.length; j++)
+            data[j] = (byte) (j % (i + 7));
+        return data;
+    }
+
+    private ZipFileIndex open(boolean mapped) throws IOException {
+        return new ZipFileIndex(jar, null, true, true,
+                                dir.getPath() + File.separator, mapped);
+    }
+
+    /** 把索引的内容全部列出来，用于比较 */
+    private static List<String> dump(ZipFileIndex index) throws IOException {
+        List<String> result = new ArrayList<String>();
+        List<RelativeDirectory> dirs = new ArrayList<RelativeDirectory>(index.getAllDirectories());
+        Collections.sort(dirs);
+        for (RelativeDirectory d : dirs) {
+            result.add(d.getPath() + " " + index.getDirectories(d));
+            for (String name : index.getFiles(d)) {
+                byte[] data = index.read(new RelativeFile(d, name));
+                result.add(d.getPath() + name + " " + data.length + " "
+                           + IndexFile.checksum(data, 0, data.length));
+            }
+        }
+        return result;
+    }
+
+    private File indexFile() {
+        for (File f : dir.listFiles()) {
+            if (f.getName().endsWith(".index"))
+                return f;
+        }
+        return null;
+    }
+
+    @Test public void testIndexRoundTrip() throws IOException {
+        ZipFileIndex first = open(false);
+        List<String> expected = dump(first);
+        assertEquals(2 + 21, expected.size());
+        assertTrue(first.writeZipIndex());
+        assertTrue(indexFile() != null);
+
+        assertEquals(expected, dump(open(false)));
+        assertEquals(expected, dump(open(true)));
+    }
+
+    @Test public void testCorruptIndex() throws IOException {
+        open(false).writeZipIndex();
+        File index = indexFile();
+        RandomAccessFile raf = new RandomAccessFile(index, "rw");
+        try {
+            raf.seek(raf.length() / 2);
+            int b = raf.read();
+            raf.seek(raf.length() / 2);
+            raf.write(b ^ 0xff);
+        } finally {
+            raf.close();
+        }
+        assertEquals(dump(open(false)), dump(new ZipFileIndex(jar, null, false, false, null)));
+    }
+
+    @Test public void testTruncatedIndex() throws IOException {
+        open(false).writeZipIndex();
+        File index = indexFile();
+        RandomAccessFile raf = new RandomAccessFile(index, "rw");
+        try {
+            raf.setLength(raf.length() - 10);
+        } finally {
+            raf.close();
+        }
+        assertEquals(dump(open(true)), dump(new ZipFileIndex(jar, null, false, false, null)));
+    }
+
+    @Test public void testTouchedArchive() throws IOException {
+        open(false).writeZipIndex();
+        byte[] before = IndexFile.read(indexFile(), 0x4A5A4958);
+        jar.setLastModified(jar.lastModified() - 10000);
+
+        // 时间戳变了，索引失效，要重新扫描并重写索引
+        ZipFileIndex index = open(false);
+        assertEquals(dump(new ZipFileIndex(jar, null, false, false, null)), dump(index));
+        assertTrue(index.writeZipIndex());
+        byte[] after = IndexFile.read(indexFile(), 0x4A5A4958);
+        assertTrue(before != null && after != null);
+        assertTrue(!java.util.Arrays.equals(before, after));
+    }
+
+    @Test public void testReadContent() throws IOException {
+        ZipFileIndex index = open(true);
+        RelativeFile path = new RelativeFile("p/q/C3.class");
+        byte[] expected = index.read(path);
+        // 缓冲区太小时会重新分配
+        byte[] small = index.readInto(index.getZipIndexEntry(path), new byte[4]);
+        assertArrayEquals(expected, small);
+        byte[] large = index.readInto(index.getZipIndexEntry(path), new byte[65536]);
+        assertArrayEquals(expected, java.util.Arrays.copyOf(large, expected.length));
+    }
+
+    @Test public void testPruneUnusedIndexFiles() throws IOException {
+        long old = System.currentTimeMillis() - (IndexFile.MAX_UNUSED_DAYS + 1) * 24L * 60 * 60 * 1000;
+        // 读过的索引文件不会被删除
+        open(false).writeZipIndex();
+        File used = indexFile();
+        used.setLastModified(old);
+        assertTrue(IndexFile.read(used, 0x4A5A4958) != null);
+
+        File unused = new File(dir, "fsinfo-1a2b3c.index");
+        File leftover = new File(dir, "fsinfo-1a2b3c.index12345.tmp");
+        File other = new File(dir, "notes.index");
+        for (File f : new File[] { unused, leftover, other }) {
+            new FileOutputStream(f).close();
+            f.setLastModified(old);
+        }
+
+        IndexFile.prune(dir);
+        assertTrue(!unused.exists());
+        assertTrue(!leftover.exists());
+        assertTrue(other.exists());
+        assertTrue(used.exists());
+        assertTrue(jar.exists());
+    }
+}
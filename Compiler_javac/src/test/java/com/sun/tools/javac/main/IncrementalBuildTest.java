@@ -0,0 +1,118 @@
+package com.sun.tools.javac.main;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 增量编译(-XDincremental)：API有变化的类的子类也要看作有变化，
+ * 否则通过子类使用继承成员的类不会被重新编译
+ */
+public class IncrementalBuildTest {
+    private File dir;
+    private File classes;
+    private StringWriter output;
+
+    @Before public void setUp() throws IOException {
+        dir = File.createTempFile("incremental", "");
+        dir.delete();
+        dir.mkdirs();
+        classes = new File(dir, "classes");
+        classes.mkdirs();
+    }
+
+    @After public void tearDown() {
+        delete(dir);
+    }
+
+    private static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File c : files)
+                delete(c);
+        }
+        f.delete();
+    }
+
+    private File write(String name, String content) throws IOException {
+        File f = new File(dir, name);
+        Writer out = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+        return f;
+    }
+
+    private int compile(File... files) {
+        String[] args = new String[files.length + 3];
+        args[0] = "-XDincremental";
+        args[1] = "-d";
+        args[2] = classes.getPath();
+        for (int i = 0; i < files.length; i++)
+            args[i + 3] = files[i].getPath();
+        output = new StringWriter();
+        return new Main("javac", new PrintWriter(output, true)).compile(args);
+    }
+
+    @Test public void testInheritedMemberRemoved() throws IOException {
+        File a = write("A.java", "class A { void m() { } }");
+        File c = write("C.java", "class C extends A { }");
+        File d = write("D.java", "class D extends C { }");
+        File b = write("B.java", "class B { void use() { new D().m(); } }");
+        int result = compile(a, b, c, d);
+        assertEquals(output.toString(), Main.EXIT_OK, result);
+
+        // B只引用了D，D和C的API本身都没有变化
+        a = write("A.java", "class A { }");
+        assertEquals(Main.EXIT_ERROR, compile(a, b, c, d));
+        assertTrue(output.toString(), output.toString().contains("B.java"));
+    }
+
+    @Test public void testInterfaceChanged() throws IOException {
+        File i = write("I.java", "interface I { void m(); }");
+        File c = write("C.java", "abstract class C implements I { }");
+        File b = write("B.java", "class B { void use(C c) { c.m(); } }");
+        int result = compile(i, b, c);
+        assertEquals(output.toString(), Main.EXIT_OK, result);
+
+        i = write("I.java", "interface I { void n(); }");
+        assertEquals(Main.EXIT_ERROR, compile(i, b, c));
+        assertTrue(output.toString(), output.toString().contains("B.java"));
+    }
+
+    @Test public void testNestedClassMadePrivate() throws IOException {
+        File a = write("A.java", "class A { interface In { } }");
+        File b = write("B.java", "class B { A.In x; }");
+        int result = compile(a, b);
+        assertEquals(output.toString(), Main.EXIT_OK, result);
+
+        // A$In的access_flags不变，private只写在InnerClasses中
+        a = write("A.java", "class A { private interface In { } }");
+        assertEquals(Main.EXIT_ERROR, compile(a, b));
+        assertTrue(output.toString(), output.toString().contains("B.java"));
+    }
+
+    @Test public void testAnnotationDefaultRemoved() throws IOException {
+        File ann = write("Ann.java", "@interface Ann { String value() default \"x\"; }");
+        File b = write("B.java", "@Ann class B { }");
+        int result = compile(ann, b);
+        assertEquals(output.toString(), Main.EXIT_OK, result);
+
+        ann = write("Ann.java", "@interface Ann { String value(); }");
+        assertEquals(Main.EXIT_ERROR, compile(ann, b));
+        assertTrue(output.toString(), output.toString().contains("B.java"));
+    }
+}
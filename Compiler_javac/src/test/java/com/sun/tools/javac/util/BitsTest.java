@@ -0,0 +1,154 @@
+package com.sun.tools.javac.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * 随机的操作序列：Bits与原来基于int[]的实现(IntBits)的结果必须完全相同，
+ * 包括andSet只处理参数长度以内的元素这一点
+ */
+public class BitsTest {
+    private static final int SETS = 6;
+    private static final int STEPS = 20000;
+
+    /** 原来的实现，只保留比较所需的操作 */
+    static class IntBits {
+        int[] bits = new int[1];
+
+        void sizeTo(int len) {
+            if (bits.length < len) {
+                int[] newbits = new int[len];
+                System.arraycopy(bits, 0, newbits, 0, bits.length);
+                bits = newbits;
+            }
+        }
+        IntBits dup() {
+            IntBits b = new IntBits();
+            b.bits = bits.clone();
+            return b;
+        }
+        void incl(int x) {
+            sizeTo((x >>> 5) + 1);
+            bits[x >>> 5] |= 1 << (x & 31);
+        }
+        void inclRange(int start, int limit) {
+            sizeTo((limit >>> 5) + 1);
+            for (int x = start; x < limit; x++)
+                bits[x >>> 5] |= 1 << (x & 31);
+        }
+        void excludeFrom(int start) {
+            IntBits temp = new IntBits();
+            temp.sizeTo(bits.length);
+            temp.inclRange(0, start);
+            andSet(temp);
+        }
+        void excl(int x) {
+            sizeTo((x >>> 5) + 1);
+            bits[x >>> 5] &= ~(1 << (x & 31));
+        }
+        boolean isMember(int x) {
+            return 0 <= x && x < (bits.length << 5) && (bits[x >>> 5] & (1 << (x & 31))) != 0;
+        }
+        void andSet(IntBits xs) {
+            sizeTo(xs.bits.length);
+            for (int i = 0; i < xs.bits.length; i++)
+                bits[i] &= xs.bits[i];
+        }
+        void orSet(IntBits xs) {
+            sizeTo(xs.bits.length);
+            for (int i = 0; i < xs.bits.length; i++)
+                bits[i] |= xs.bits[i];
+        }
+        void diffSet(IntBits xs) {
+            for (int i = 0; i < bits.length && i < xs.bits.length; i++)
+                bits[i] &= ~xs.bits[i];
+        }
+        void xorSet(IntBits xs) {
+            sizeTo(xs.bits.length);
+            for (int i = 0; i < xs.bits.length; i++)
+                bits[i] ^= xs.bits[i];
+        }
+        int nextBit(int x) {
+            for (int i = Math.max(x, 0); i < bits.length << 5; i++)
+                if (isMember(i))
+                    return i;
+            return -1;
+        }
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < bits.length << 5; i++)
+                sb.append(isMember(i) ? '1' : '0');
+            return sb.toString();
+        }
+    }
+
+    @Test public void testAgainstIntBits() {
+        Random r = new Random(42);
+        List<Bits> sets = new ArrayList<Bits>();
+        List<IntBits> refs = new ArrayList<IntBits>();
+        for (int i = 0; i < SETS; i++) {
+            sets.add(new Bits());
+            refs.add(new IntBits());
+        }
+        for (int step = 0; step < STEPS; step++) {
+            int a = r.nextInt(SETS), b = r.nextInt(SETS);
+            Bits s = sets.get(a), t = sets.get(b);
+            IntBits rs = refs.get(a), rt = refs.get(b);
+            // 大多数元素在64以内，偶尔会用到后面的字
+            int x = r.nextInt(8) == 0 ? r.nextInt(300) : r.nextInt(70);
+            int y = x + r.nextInt(100);
+            switch (r.nextInt(12)) {
+            case 0: case 1: s.incl(x); rs.incl(x); break;
+            case 2: s.excl(x); rs.excl(x); break;
+            case 3: s.inclRange(x, y); rs.inclRange(x, y); break;
+            case 4: s.excludeFrom(x); rs.excludeFrom(x); break;
+            case 5: s.andSet(t); rs.andSet(rt); break;
+            case 6: s.orSet(t); rs.orSet(rt); break;
+            case 7: s.diffSet(t); rs.diffSet(rt); break;
+            case 8: s.xorSet(t); rs.xorSet(rt); break;
+            case 9:
+                sets.set(b, s.dup());
+                refs.set(b, rs.dup());
+                break;
+            case 10:
+                if (r.nextInt(10) == 0) {
+                    sets.set(a, new Bits());
+                    refs.set(a, new IntBits());
+                } else {
+                    s.clear();
+                    java.util.Arrays.fill(rs.bits, 0);
+                }
+                break;
+            case 11:
+                IntBits d = rs.dup();
+                d.diffSet(rt);
+                assertEquals(d.nextBit(x), s.diffNextBit(t, x));
+                break;
+            }
+            s = sets.get(a);
+            rs = refs.get(a);
+            assertEquals("step " + step, rs.toString(), s.toString());
+            assertEquals(rs.nextBit(x), s.nextBit(x));
+            assertEquals(rs.isMember(x), s.isMember(x));
+        }
+    }
+
+    @Test public void testRanges() {
+        for (int start = 0; start < 200; start += 7) {
+            for (int limit = start; limit < 260; limit += 5) {
+                Bits b = new Bits(start, limit);
+                int count = 0;
+                for (int i = b.nextBit(0); i >= 0; i = b.nextBit(i + 1)) {
+                    assertEquals(start + count, i);
+                    count++;
+                }
+                assertEquals(limit - start, count);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.sun.tools.javac.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * 多个线程同时向ConcurrentNameTable加入name：同样的字符串总是得到同一个Name，
+ * 哈希表扩容、字节分块之后name的内容不变
+ */
+public class ConcurrentNameTableTest {
+    private static final int THREADS = 4;
+    private static final int COUNT = 20000;
+    /** 与COUNT互素，使每个线程以不同的顺序遍历所有的字符串 */
+    private static final int[] STEPS = { 1, 3, 7, 9 };
+
+    private static Names names() {
+        Context context = new Context();
+        Options.instance(context).put("useConcurrentTable", "useConcurrentTable");
+        Names names = Names.instance(context);
+        assertTrue(names.table instanceof ConcurrentNameTable);
+        return names;
+    }
+
+    private static String string(int i) {
+        // 包括空串、非ASCII字符以及超过一个分块四分之一长度的name
+        if (i % 5000 == 0) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < 5000; j++)
+                sb.append((char) ('a' + j % 26));
+            return sb.append(i).toString();
+        }
+        return (i % 3 == 0 ? "名称" : "name") + (i == 1 ? "" : Integer.toString(i));
+    }
+
+    @Test public void testConcurrentInsertion() throws InterruptedException {
+        final Names names = names();
+        final Name[][] results = new Name[THREADS][COUNT];
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int n = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    // 各个线程以不同的顺序加入，一半用fromString，一半用fromUtf
+                    for (int i = 0; i < COUNT; i++) {
+                        int k = (i * STEPS[n]) % COUNT;
+                        String s = string(k);
+                        results[n][k] = (k % 2 == 0)
+                            ? names.fromString(s)
+                            : names.fromUtf(Convert.string2utf(s));
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread t : threads)
+            t.join();
+
+        Set<Integer> indexes = new HashSet<Integer>();
+        for (int i = 0; i < COUNT; i++) {
+            Name name = results[0][i];
+            for (int t = 1; t < THREADS; t++)
+                assertSame(name, results[t][i]);
+            assertEquals(string(i), name.toString());
+            assertSame(name, names.fromString(string(i)));
+            assertTrue(indexes.add(name.getIndex()));
+        }
+    }
+
+    @Test public void testOrderIndependentOfIndex() {
+        // 加入顺序不同的两个名称表，hashCode和compareTo的结果相同
+        Names n1 = names();
+        Names n2 = names();
+        Name[] a = new Name[100];
+        Name[] b = new Name[100];
+        for (int i = 0; i < 100; i++)
+            a[i] = n1.fromString(string(i));
+        for (int i = 99; i >= 0; i--)
+            b[i] = n2.fromString(string(i));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(a[i].hashCode(), b[i].hashCode());
+            for (int j = 0; j < 100; j++) {
+                assertEquals(Integer.signum(a[i].compareTo(a[j])),
+                             Integer.signum(b[i].compareTo(b[j])));
+                assertEquals(i == j, a[i].compareTo(a[j]) == 0);
+            }
+        }
+    }
+
+    @Test public void testNameOperations() {
+        Names names = names();
+        Name a = names.fromString("java.lang");
+        Name b = names.fromString("Object");
+        assertSame(names.java_lang_Object, a.append('.', b));
+        assertSame(a, names.java_lang_Object.subName(0, 9));
+        assertEquals(9, names.java_lang_Object.lastIndexOf((byte) '.'));
+        assertTrue(names.java_lang_Object.startsWith(a));
+        assertSame(names.empty, names.fromString(""));
+    }
+}